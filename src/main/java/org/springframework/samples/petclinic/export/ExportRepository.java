@@ -0,0 +1,82 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.export;
+
+import java.time.LocalDate;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.Repository;
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.QueryHint;
+
+/**
+ * Repository reading the whole owner, pet and visit dataset as flat projections, for the
+ * {@link OwnerExporter}, so that an export never loads the owner aggregates.
+ */
+public interface ExportRepository extends Repository<Owner, Integer> {
+
+	/**
+	 * The number of rows fetched at a time by {@link #streamRows()}.
+	 */
+	int FETCH_SIZE = 500;
+
+	/**
+	 * Stream every visit with its pet and owner, as well as the pets without visits and
+	 * the owners without pets. The rows are read through a forward-only cursor,
+	 * {@value #FETCH_SIZE} at a time, so the dataset is never materialized: the stream
+	 * must be consumed, and closed, within the transaction.
+	 * @return the rows, ordered by owner id, then pet id, then visit id, so that the rows
+	 * of an owner, and of a pet, are contiguous
+	 */
+	@Query("SELECT new org.springframework.samples.petclinic.export.ExportRepository$Row(owner.id, owner.firstName, "
+			+ "owner.lastName, owner.address, owner.city, owner.telephone, pet.id, pet.name, pet.birthDate, "
+			+ "type.name, visit.id, visit.date, visit.description) "
+			+ "FROM Owner owner LEFT JOIN owner.pets pet LEFT JOIN pet.type type LEFT JOIN pet.visits visit "
+			+ "ORDER BY owner.id, pet.id, visit.id")
+	@QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + FETCH_SIZE),
+			@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+	@Transactional(readOnly = true)
+	Stream<Row> streamRows();
+
+	/**
+	 * A visit with its pet and owner, or a pet without visits, or an owner without pets.
+	 *
+	 * @param ownerId the owner id
+	 * @param firstName the owner's first name
+	 * @param lastName the owner's last name
+	 * @param address the owner's address
+	 * @param city the owner's city
+	 * @param telephone the owner's telephone number
+	 * @param petId the pet id, or {@code null} for an owner without pets
+	 * @param petName the pet's name
+	 * @param birthDate the pet's birth date
+	 * @param petType the name of the pet's type
+	 * @param visitId the visit id, or {@code null} for a pet without visits
+	 * @param visitDate the date of the visit
+	 * @param description the description of the visit
+	 */
+	record Row(Integer ownerId, String firstName, String lastName, String address, String city, String telephone,
+			Integer petId, String petName, LocalDate birthDate, String petType, Integer visitId, LocalDate visitDate,
+			String description) {
+
+	}
+
+}
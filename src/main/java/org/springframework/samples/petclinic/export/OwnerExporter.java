@@ -0,0 +1,145 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import org.springframework.samples.petclinic.export.ExportRepository.Row;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Export of every owner, with their pets and visits, as newline-delimited JSON: one owner
+ * per line, in the format read by the bulk import, with the ids of the owners, pets and
+ * visits added.
+ * <p>
+ * The dataset is read through the cursor of {@link ExportRepository#streamRows()}, inside
+ * a read-only transaction, as projections rather than entities, so the persistence
+ * context stays empty however many owners there are. Each row is written as it is read:
+ * an owner is opened at its first row and closed at the first row of the next owner, so
+ * nothing but the current row is held in memory.
+ */
+@Service
+public class OwnerExporter {
+
+	private final ExportRepository export;
+
+	private final ObjectMapper objectMapper;
+
+	public OwnerExporter(ExportRepository export, ObjectMapper objectMapper) {
+		this.export = export;
+		this.objectMapper = objectMapper;
+	}
+
+	/**
+	 * Write every owner, with their pets and visits, as newline-delimited JSON.
+	 * @param out the stream to write to, which is left open
+	 * @return the number of owners written
+	 * @throws IOException if the owners could not be written
+	 */
+	@Transactional(readOnly = true)
+	public long writeNdjson(OutputStream out) throws IOException {
+		try (Stream<Row> rows = this.export.streamRows(); JsonGenerator json = this.objectMapper.createGenerator(out)) {
+			json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			// the lines are ended by hand, not separated by the default space
+			json.setRootValueSeparator(null);
+			long written = 0;
+			Row previous = null;
+			for (Iterator<Row> iterator = rows.iterator(); iterator.hasNext();) {
+				Row row = iterator.next();
+				boolean newOwner = previous == null || !previous.ownerId().equals(row.ownerId());
+				boolean newPet = newOwner || !Objects.equals(previous.petId(), row.petId());
+				if (newPet && previous != null && previous.petId() != null) {
+					endPet(json);
+				}
+				if (newOwner) {
+					if (previous != null) {
+						endOwner(json);
+					}
+					startOwner(json, row);
+					written++;
+				}
+				if (newPet && row.petId() != null) {
+					startPet(json, row);
+				}
+				if (row.visitId() != null) {
+					json.writeStartObject();
+					json.writeNumberField("id", row.visitId());
+					writeDateField(json, "date", row.visitDate());
+					json.writeStringField("description", row.description());
+					json.writeEndObject();
+				}
+				previous = row;
+			}
+			if (previous != null) {
+				if (previous.petId() != null) {
+					endPet(json);
+				}
+				endOwner(json);
+			}
+			return written;
+		}
+	}
+
+	private static void startOwner(JsonGenerator json, Row row) throws IOException {
+		json.writeStartObject();
+		json.writeNumberField("id", row.ownerId());
+		json.writeStringField("firstName", row.firstName());
+		json.writeStringField("lastName", row.lastName());
+		json.writeStringField("address", row.address());
+		json.writeStringField("city", row.city());
+		json.writeStringField("telephone", row.telephone());
+		json.writeArrayFieldStart("pets");
+	}
+
+	private static void endOwner(JsonGenerator json) throws IOException {
+		json.writeEndArray();
+		json.writeEndObject();
+		json.writeRaw('\n');
+	}
+
+	private static void startPet(JsonGenerator json, Row row) throws IOException {
+		json.writeStartObject();
+		json.writeNumberField("id", row.petId());
+		json.writeStringField("name", row.petName());
+		writeDateField(json, "birthDate", row.birthDate());
+		json.writeStringField("type", row.petType());
+		json.writeArrayFieldStart("visits");
+	}
+
+	private static void endPet(JsonGenerator json) throws IOException {
+		json.writeEndArray();
+		json.writeEndObject();
+	}
+
+	private static void writeDateField(JsonGenerator json, String name, LocalDate date) throws IOException {
+		if (date != null) {
+			json.writeStringField(name, date.toString());
+		}
+		else {
+			json.writeNullField(name);
+		}
+	}
+
+}
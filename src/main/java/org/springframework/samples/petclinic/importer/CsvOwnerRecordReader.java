@@ -0,0 +1,269 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+import org.springframework.samples.petclinic.importer.OwnerRecord.PetRecord;
+import org.springframework.samples.petclinic.importer.OwnerRecord.VisitRecord;
+
+/**
+ * Reads owners from comma-separated values.
+ * <p>
+ * The first row names the columns, in any order: {@value #OWNER_REF}, {@code first_name},
+ * {@code last_name}, {@code address}, {@code city} and {@code telephone} are required,
+ * and {@code pet_name}, {@code pet_birth_date}, {@code pet_type}, {@code visit_date} and
+ * {@code visit_description} are optional. Each following row holds an owner, a pet of the
+ * owner, a visit of the pet, or all three. The rows of an owner must be contiguous and
+ * share the same {@value #OWNER_REF}, a key of the owner in the source data; its contact
+ * details are read from its first row. The rows of a pet are those of the owner with the
+ * same {@code pet_name}, ignoring case; its birth date and type are read from its first
+ * row. Values may be quoted, with doubled quotes, and empty values are absent. Dates are
+ * ISO dates, like {@code 2024-01-31}.
+ * <p>
+ * Only the rows of the current owner are held in memory.
+ */
+class CsvOwnerRecordReader implements OwnerRecordReader {
+
+	static final String OWNER_REF = "owner_ref";
+
+	private static final List<String> OWNER_COLUMNS = List.of(OWNER_REF, "first_name", "last_name", "address", "city",
+			"telephone");
+
+	private final Tokenizer tokenizer;
+
+	private final Map<String, Integer> columns = new HashMap<>();
+
+	private List<String> row;
+
+	private long rowLine;
+
+	/**
+	 * Create a reader, reading the header row.
+	 * @param input the input, which the reader closes
+	 * @throws IOException if the input cannot be read
+	 * @throws IllegalArgumentException if the header row lacks a required column
+	 */
+	CsvOwnerRecordReader(Reader input) throws IOException {
+		this.tokenizer = new Tokenizer(input);
+		List<String> header = this.tokenizer.readRow();
+		if (header == null) {
+			return;
+		}
+		for (int i = 0; i < header.size(); i++) {
+			this.columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+		}
+		List<String> missing = OWNER_COLUMNS.stream().filter((column) -> !this.columns.containsKey(column)).toList();
+		if (!missing.isEmpty()) {
+			throw new IllegalArgumentException("Missing CSV columns: " + String.join(", ", missing));
+		}
+		advance();
+	}
+
+	@Override
+	public Entry next() throws IOException {
+		if (this.row == null) {
+			return null;
+		}
+		long line = this.rowLine;
+		String ref = value(OWNER_REF);
+		String firstName = value("first_name");
+		String lastName = value("last_name");
+		String address = value("address");
+		String city = value("city");
+		String telephone = value("telephone");
+		Map<String, PetRows> pets = new LinkedHashMap<>();
+		String error = (ref != null) ? null : OWNER_REF + ": required";
+		do {
+			if (error == null) {
+				error = addRow(pets);
+			}
+			advance();
+		}
+		while (ref != null && this.row != null && Objects.equals(ref, value(OWNER_REF)));
+		if (error != null) {
+			return new Entry(line, null, error);
+		}
+		List<PetRecord> petRecords = pets.values().stream().map(PetRows::toRecord).toList();
+		return new Entry(line, new OwnerRecord(firstName, lastName, address, city, telephone, petRecords), null);
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.tokenizer.input.close();
+	}
+
+	/**
+	 * Add the pet and visit of the current row.
+	 * @return why the row could not be read, or {@code null} if it was
+	 */
+	private String addRow(Map<String, PetRows> pets) {
+		String petName = value("pet_name");
+		String visitDescription = value("visit_description");
+		try {
+			LocalDate birthDate = date("pet_birth_date");
+			LocalDate visitDate = date("visit_date");
+			if (petName == null) {
+				boolean hasPetValues = birthDate != null || value("pet_type") != null;
+				boolean hasVisitValues = visitDate != null || visitDescription != null;
+				return (hasPetValues || hasVisitValues) ? atLine("pet_name: required") : null;
+			}
+			PetRows pet = pets.computeIfAbsent(petName.toLowerCase(Locale.ROOT),
+					(key) -> new PetRows(petName, birthDate, value("pet_type")));
+			if (visitDate != null || visitDescription != null) {
+				pet.visits.add(new VisitRecord(visitDate, visitDescription));
+			}
+			return null;
+		}
+		catch (DateTimeParseException ex) {
+			return atLine("invalid date '" + ex.getParsedString() + "'");
+		}
+	}
+
+	private LocalDate date(String column) {
+		String value = value(column);
+		return (value != null) ? LocalDate.parse(value) : null;
+	}
+
+	private String value(String column) {
+		Integer index = this.columns.get(column);
+		if (index == null || index >= this.row.size()) {
+			return null;
+		}
+		String value = this.row.get(index).trim();
+		return value.isEmpty() ? null : value;
+	}
+
+	private String atLine(String error) {
+		return error + " (line " + this.rowLine + ")";
+	}
+
+	private void advance() throws IOException {
+		do {
+			this.rowLine = this.tokenizer.line;
+			this.row = this.tokenizer.readRow();
+		}
+		// skip blank lines
+		while (this.row != null && this.row.size() == 1 && this.row.get(0).isBlank());
+	}
+
+	/**
+	 * The rows of a pet read so far.
+	 */
+	private static final class PetRows {
+
+		private final String name;
+
+		private final LocalDate birthDate;
+
+		private final String type;
+
+		private final List<VisitRecord> visits = new ArrayList<>();
+
+		PetRows(String name, LocalDate birthDate, String type) {
+			this.name = name;
+			this.birthDate = birthDate;
+			this.type = type;
+		}
+
+		PetRecord toRecord() {
+			return new PetRecord(this.name, this.birthDate, this.type, List.copyOf(this.visits));
+		}
+
+	}
+
+	/**
+	 * Splits the input into rows of values, following RFC 4180.
+	 */
+	private static final class Tokenizer {
+
+		private final Reader input;
+
+		/**
+		 * The line the next row starts at.
+		 */
+		private long line = 1;
+
+		Tokenizer(Reader input) {
+			this.input = (input instanceof BufferedReader) ? input : new BufferedReader(input);
+		}
+
+		/**
+		 * Read the next row.
+		 * @return the values of the row, or {@code null} at the end of the input
+		 */
+		List<String> readRow() throws IOException {
+			int c = read();
+			if (c == -1) {
+				return null;
+			}
+			List<String> values = new ArrayList<>();
+			StringBuilder value = new StringBuilder();
+			boolean quoted = false;
+			while (true) {
+				if (quoted) {
+					if (c == -1) {
+						throw new IOException("Unterminated quoted value at line " + this.line);
+					}
+					if (c == '"') {
+						c = read();
+						if (c != '"') {
+							quoted = false;
+							continue;
+						}
+					}
+					value.append((char) c);
+				}
+				else if (c == '"' && value.isEmpty()) {
+					quoted = true;
+				}
+				else if (c == ',') {
+					values.add(value.toString());
+					value.setLength(0);
+				}
+				else if (c == '\n' || c == -1) {
+					values.add(value.toString());
+					return values;
+				}
+				else if (c != '\r') {
+					value.append((char) c);
+				}
+				c = read();
+			}
+		}
+
+		private int read() throws IOException {
+			int c = this.input.read();
+			if (c == '\n') {
+				this.line++;
+			}
+			return c;
+		}
+
+	}
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.importer;
+
+import java.util.Locale;
+
+/**
+ * The formats owners can be imported from.
+ */
+public enum ImportFormat {
+
+	/**
+	 * Comma-separated values with a header row, one row per visit, read by
+	 * {@link CsvOwnerRecordReader}.
+	 */
+	CSV,
+
+	/**
+	 * Newline-delimited JSON, one owner with their pets and visits per line, read by
+	 * {@link NdjsonOwnerRecordReader}.
+	 */
+	NDJSON;
+
+	/**
+	 * Return the format of a file from the extension of its name: {@code .csv} for CSV,
+	 * and {@code .ndjson} or {@code .jsonl} for NDJSON.
+	 * @param filename the name of the file
+	 * @return the format
+	 * @throws IllegalArgumentException if the extension is not one of these
+	 */
+	public static ImportFormat ofFilename(String filename) {
+		String name = filename.toLowerCase(Locale.ROOT);
+		if (name.endsWith(".csv")) {
+			return CSV;
+		}
+		if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+			return NDJSON;
+		}
+		throw new IllegalArgumentException("Unknown import format: " + filename);
+	}
+
+}
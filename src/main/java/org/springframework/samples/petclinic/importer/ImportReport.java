@@ -0,0 +1,42 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.importer;
+
+import java.util.List;
+
+/**
+ * The outcome of an import.
+ *
+ * @param read the number of owners read from the input
+ * @param imported the number of owners imported
+ * @param rejected the number of owners rejected, with their pets and visits
+ * @param rejections the first {@value OwnerImporter#MAX_REJECTIONS} rejected owners, in
+ * the order they were rejected
+ */
+public record ImportReport(long read, long imported, long rejected, List<Rejection> rejections) {
+
+	/**
+	 * An owner rejected by the import.
+	 *
+	 * @param line the line of the input the owner starts at
+	 * @param owner the name of the owner, or {@code null} if it could not be read
+	 * @param errors why the owner was rejected
+	 */
+	public record Rejection(long line, String owner, List<String> errors) {
+
+	}
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+
+/**
+ * Reads owners from newline-delimited JSON: each non-blank line holds an
+ * {@link OwnerRecord} object, with the owner's {@code firstName}, {@code lastName},
+ * {@code address}, {@code city} and {@code telephone}, and their {@code pets}, each with
+ * its {@code name}, {@code birthDate}, {@code type} and {@code visits}, each with its
+ * {@code date} and {@code description}. Dates are ISO dates, like {@code 2024-01-31}. A
+ * line holding valid JSON other than an object, including {@code null}, is reported as
+ * not an owner object.
+ * <p>
+ * Only the line of the current owner is held in memory.
+ */
+class NdjsonOwnerRecordReader implements OwnerRecordReader {
+
+	private static final String NOT_AN_OWNER = "not an owner object";
+
+	private final BufferedReader input;
+
+	private final ObjectReader reader;
+
+	private long line;
+
+	/**
+	 * Create a reader.
+	 * @param input the input, which the reader closes
+	 * @param objectMapper the object mapper reading the lines
+	 */
+	NdjsonOwnerRecordReader(Reader input, ObjectMapper objectMapper) {
+		this.input = (input instanceof BufferedReader buffered) ? buffered : new BufferedReader(input);
+		this.reader = objectMapper.readerFor(OwnerRecord.class);
+	}
+
+	@Override
+	public Entry next() throws IOException {
+		String text;
+		do {
+			text = this.input.readLine();
+			if (text == null) {
+				return null;
+			}
+			this.line++;
+		}
+		while (text.isBlank());
+		try {
+			OwnerRecord owner = this.reader.readValue(text);
+			if (owner == null) {
+				return new Entry(this.line, null, NOT_AN_OWNER);
+			}
+			return new Entry(this.line, owner, null);
+		}
+		catch (MismatchedInputException ex) {
+			// a mismatch of the line itself rather than of one of its fields
+			return new Entry(this.line, null,
+					ex.getPath().isEmpty() ? NOT_AN_OWNER : "invalid JSON: " + ex.getOriginalMessage());
+		}
+		catch (JsonProcessingException ex) {
+			return new Entry(this.line, null, "invalid JSON: " + ex.getOriginalMessage());
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.input.close();
+	}
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.importer;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.server.ResponseStatusException;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Bulk import of owners, with their pets and visits, from a CSV ({@code text/csv}) or
+ * NDJSON ({@code application/x-ndjson}) request body, which is streamed to the
+ * {@link OwnerImporter} as it is received. Responds with the {@link ImportReport} once
+ * the import is complete.
+ */
+@Controller
+class OwnerImportController {
+
+	static final String TEXT_CSV_VALUE = "text/csv";
+
+	static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+	private final OwnerImporter importer;
+
+	OwnerImportController(OwnerImporter importer) {
+		this.importer = importer;
+	}
+
+	@PostMapping(path = "/api/import/owners", consumes = TEXT_CSV_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+	@ResponseBody
+	public ImportReport importCsv(HttpServletRequest request) throws IOException {
+		return importOwners(request, ImportFormat.CSV);
+	}
+
+	@PostMapping(path = "/api/import/owners", consumes = APPLICATION_NDJSON_VALUE,
+			produces = MediaType.APPLICATION_JSON_VALUE)
+	@ResponseBody
+	public ImportReport importNdjson(HttpServletRequest request) throws IOException {
+		return importOwners(request, ImportFormat.NDJSON);
+	}
+
+	private ImportReport importOwners(HttpServletRequest request, ImportFormat format) throws IOException {
+		try {
+			return this.importer.importOwners(request.getReader(), format);
+		}
+		catch (IllegalArgumentException ex) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.importer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.samples.petclinic.importer.ImportReport.Rejection;
+import org.springframework.stereotype.Component;
+
+/**
+ * Imports the owners of the file named by {@code petclinic.import.file} at startup, its
+ * format given by its extension (see {@link ImportFormat#ofFilename(String)}), and logs
+ * the {@link ImportReport}. To import a file without serving the application, run it
+ * without a web server, e.g.
+ * {@code --petclinic.import.file=owners.csv --spring.main.web-application-type=none}.
+ */
+@Component
+@ConditionalOnProperty("petclinic.import.file")
+class OwnerImportRunner implements ApplicationRunner {
+
+	private static final Log logger = LogFactory.getLog(OwnerImportRunner.class);
+
+	private final OwnerImporter importer;
+
+	private final Path file;
+
+	OwnerImportRunner(OwnerImporter importer, @Value("${petclinic.import.file}") Path file) {
+		this.importer = importer;
+		this.file = file;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) throws IOException {
+		ImportFormat format = ImportFormat.ofFilename(this.file.getFileName().toString());
+		ImportReport report = this.importer.importOwners(Files.newBufferedReader(this.file, StandardCharsets.UTF_8),
+				format);
+		for (Rejection rejection : report.rejections()) {
+			logger.warn("Rejected owner " + ((rejection.owner() != null) ? "'" + rejection.owner() + "' " : "")
+					+ "at line " + rejection.line() + ": " + String.join("; ", rejection.errors()));
+		}
+		logger.info("Imported " + report.imported() + " of " + report.read() + " owners from " + this.file
+				+ ", rejected " + report.rejected());
+	}
+
+}
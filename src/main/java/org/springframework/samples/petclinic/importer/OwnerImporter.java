@@ -0,0 +1,366 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.samples.petclinic.importer.ImportReport.Rejection;
+import org.springframework.samples.petclinic.importer.OwnerRecord.PetRecord;
+import org.springframework.samples.petclinic.importer.OwnerRecord.VisitRecord;
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.owner.OwnersImportedEvent;
+import org.springframework.samples.petclinic.owner.Pet;
+import org.springframework.samples.petclinic.owner.PetTypeRegistry;
+import org.springframework.samples.petclinic.owner.PetValidator;
+import org.springframework.samples.petclinic.owner.Visit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.Validator;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Bulk import of owners, with their pets and visits, streamed from CSV or NDJSON.
+ * <p>
+ * Each owner is validated as the forms validate it: the owner and their visits with Bean
+ * Validation, and their pets with the {@link PetValidator}. Pet types are resolved by
+ * name from the {@link PetTypeRegistry}. An owner that cannot be read, or that fails
+ * validation, is rejected with all of their pets and visits; the others are imported.
+ * <p>
+ * Valid owners are gathered in chunks of {@code petclinic.import.chunk-size}, each
+ * written in its own transaction in JDBC batches of
+ * {@code petclinic.import.jdbc-batch-size} statements. Owners being independent of each
+ * other, {@code petclinic.import.parallelism} chunks are written in parallel while the
+ * input is read on; reading waits when that many chunks are being written, so no more
+ * than that many chunks, plus the one being gathered, are held in memory however large
+ * the input. A chunk that fails to write is retried an owner at a time, so that only the
+ * owners the database rejects are rejected.
+ * <p>
+ * Progress is logged once each chunk is written, and counted in the
+ * {@code petclinic.import.owners} counter, tagged with the {@code outcome}
+ * ({@code imported} or {@code rejected}). Imported owners do not publish an
+ * {@link org.springframework.samples.petclinic.owner.OwnerChangedEvent} each: an
+ * {@link OwnersImportedEvent} is published once the import is complete instead.
+ */
+@Service
+public class OwnerImporter {
+
+	/**
+	 * The number of rejected owners detailed in an {@link ImportReport}.
+	 */
+	public static final int MAX_REJECTIONS = 100;
+
+	private static final Log logger = LogFactory.getLog(OwnerImporter.class);
+
+	private final PetTypeRegistry petTypes;
+
+	private final Validator validator;
+
+	private final Validator petValidator = new PetValidator();
+
+	private final ObjectMapper objectMapper;
+
+	private final EntityManager entityManager;
+
+	private final TransactionTemplate transactions;
+
+	private final ApplicationEventPublisher events;
+
+	private final Counter importedCounter;
+
+	private final Counter rejectedCounter;
+
+	private final int chunkSize;
+
+	private final int jdbcBatchSize;
+
+	private final int parallelism;
+
+	public OwnerImporter(PetTypeRegistry petTypes, jakarta.validation.Validator validator, ObjectMapper objectMapper,
+			EntityManager entityManager, PlatformTransactionManager transactionManager,
+			ApplicationEventPublisher events, MeterRegistry registry,
+			@Value("${petclinic.import.chunk-size:1000}") int chunkSize,
+			@Value("${petclinic.import.jdbc-batch-size:1000}") int jdbcBatchSize,
+			@Value("${petclinic.import.parallelism:0}") int parallelism) {
+		this.petTypes = petTypes;
+		this.validator = new SpringValidatorAdapter(validator);
+		this.objectMapper = objectMapper;
+		this.entityManager = entityManager;
+		this.transactions = new TransactionTemplate(transactionManager);
+		this.events = events;
+		this.importedCounter = counter(registry, "imported");
+		this.rejectedCounter = counter(registry, "rejected");
+		this.chunkSize = chunkSize;
+		this.jdbcBatchSize = jdbcBatchSize;
+		this.parallelism = (parallelism > 0) ? parallelism : Runtime.getRuntime().availableProcessors();
+	}
+
+	private static Counter counter(MeterRegistry registry, String outcome) {
+		return Counter.builder("petclinic.import.owners")
+			.description("Owners read by the bulk imports")
+			.tag("outcome", outcome)
+			.register(registry);
+	}
+
+	/**
+	 * Import the owners of an input.
+	 * @param input the input, which is closed once read
+	 * @param format the format of the input
+	 * @return the outcome of the import
+	 * @throws IOException if the input cannot be read, in which case the owners read
+	 * before the failure are imported
+	 * @throws IllegalArgumentException if the input lacks required CSV columns
+	 */
+	public ImportReport importOwners(Reader input, ImportFormat format) throws IOException {
+		Progress progress = new Progress();
+		ExecutorService writers = Executors.newFixedThreadPool(this.parallelism);
+		Semaphore inFlight = new Semaphore(this.parallelism);
+		try (OwnerRecordReader reader = reader(input, format)) {
+			List<Pending> chunk = new ArrayList<>(this.chunkSize);
+			for (OwnerRecordReader.Entry entry = reader.next(); entry != null; entry = reader.next()) {
+				Pending pending = prepare(entry, progress);
+				if (pending != null) {
+					chunk.add(pending);
+				}
+				if (chunk.size() == this.chunkSize) {
+					submit(chunk, writers, inFlight, progress);
+					chunk = new ArrayList<>(this.chunkSize);
+				}
+			}
+			if (!chunk.isEmpty()) {
+				submit(chunk, writers, inFlight, progress);
+			}
+		}
+		finally {
+			// wait for the chunks being written
+			inFlight.acquireUninterruptibly(this.parallelism);
+			writers.shutdown();
+		}
+		if (progress.imported.get() > 0) {
+			this.events.publishEvent(new OwnersImportedEvent(progress.imported.get()));
+		}
+		return progress.report();
+	}
+
+	private OwnerRecordReader reader(Reader input, ImportFormat format) throws IOException {
+		return switch (format) {
+			case CSV -> new CsvOwnerRecordReader(input);
+			case NDJSON -> new NdjsonOwnerRecordReader(input, this.objectMapper);
+		};
+	}
+
+	/**
+	 * Turn an owner read from the input into an entity ready to be written.
+	 * @return the entity, or {@code null} if the owner is rejected
+	 */
+	private Pending prepare(OwnerRecordReader.Entry entry, Progress progress) {
+		progress.read.incrementAndGet();
+		if (entry.error() != null) {
+			reject(progress, entry.line(), null, List.of(entry.error()));
+			return null;
+		}
+		OwnerRecord record = entry.owner();
+		Owner owner = new Owner();
+		owner.setFirstName(record.firstName());
+		owner.setLastName(record.lastName());
+		owner.setAddress(record.address());
+		owner.setCity(record.city());
+		owner.setTelephone(record.telephone());
+		List<String> errors = new ArrayList<>();
+		validate(this.validator, owner, "", errors);
+		List<PetRecord> pets = (record.pets() != null) ? record.pets() : List.of();
+		Set<String> petNames = new HashSet<>();
+		for (int p = 0; p < pets.size(); p++) {
+			PetRecord petRecord = pets.get(p);
+			String path = "pets[" + p + "].";
+			Pet pet = new Pet();
+			pet.setName(petRecord.name());
+			pet.setBirthDate(petRecord.birthDate());
+			pet.setType(
+					StringUtils.hasText(petRecord.type()) ? this.petTypes.findByName(petRecord.type().trim()) : null);
+			if (StringUtils.hasText(petRecord.type()) && pet.getType() == null) {
+				errors.add(path + "type: unknown pet type '" + petRecord.type() + "'");
+			}
+			else {
+				validate(this.petValidator, pet, path, errors);
+			}
+			if (petRecord.name() != null && !petNames.add(petRecord.name().toLowerCase(Locale.ROOT))) {
+				errors.add(path + "name: already exists");
+			}
+			List<VisitRecord> visits = (petRecord.visits() != null) ? petRecord.visits() : List.of();
+			for (int v = 0; v < visits.size(); v++) {
+				VisitRecord visitRecord = visits.get(v);
+				Visit visit = new Visit();
+				visit.setDate(visitRecord.date());
+				visit.setDescription(visitRecord.description());
+				String visitPath = path + "visits[" + v + "].";
+				if (visitRecord.date() == null) {
+					errors.add(visitPath + "date: required");
+				}
+				validate(this.validator, visit, visitPath, errors);
+				pet.addVisit(visit);
+			}
+			owner.addPet(pet);
+		}
+		if (!errors.isEmpty()) {
+			reject(progress, entry.line(), name(owner), errors);
+			return null;
+		}
+		return new Pending(entry.line(), owner);
+	}
+
+	private static void validate(Validator validator, Object target, String path, List<String> errors) {
+		Errors result = new BeanPropertyBindingResult(target, "target");
+		validator.validate(target, result);
+		for (FieldError error : result.getFieldErrors()) {
+			errors.add(path + error.getField() + ": " + error.getDefaultMessage());
+		}
+	}
+
+	private void submit(List<Pending> chunk, ExecutorService writers, Semaphore inFlight, Progress progress) {
+		inFlight.acquireUninterruptibly();
+		try {
+			writers.execute(() -> {
+				try {
+					write(chunk, progress);
+					logger.info("Imported " + progress.imported + " owners, rejected " + progress.rejected);
+				}
+				finally {
+					inFlight.release();
+				}
+			});
+		}
+		catch (RuntimeException ex) {
+			inFlight.release();
+			throw ex;
+		}
+	}
+
+	private void write(List<Pending> chunk, Progress progress) {
+		try {
+			this.transactions.executeWithoutResult((status) -> {
+				this.entityManager.unwrap(Session.class).setJdbcBatchSize(this.jdbcBatchSize);
+				for (Pending pending : chunk) {
+					this.entityManager.persist(pending.owner());
+				}
+			});
+			progress.imported.addAndGet(chunk.size());
+			this.importedCounter.increment(chunk.size());
+		}
+		catch (RuntimeException ex) {
+			if (chunk.size() > 1) {
+				for (Pending pending : chunk) {
+					clearIds(pending.owner());
+					write(List.of(pending), progress);
+				}
+				return;
+			}
+			Pending pending = chunk.get(0);
+			String cause = NestedExceptionUtils.getMostSpecificCause(ex).getMessage();
+			reject(progress, pending.line(), name(pending.owner()), List.of("not written: " + cause));
+		}
+	}
+
+	private void reject(Progress progress, long line, String owner, List<String> errors) {
+		progress.reject(new Rejection(line, owner, List.copyOf(errors)));
+		this.rejectedCounter.increment();
+	}
+
+	/**
+	 * Clear the ids assigned to an owner, their pets and visits by a rolled back write.
+	 */
+	private static void clearIds(Owner owner) {
+		owner.setId(null);
+		for (Pet pet : owner.getPets()) {
+			pet.setId(null);
+			pet.getVisits().forEach((visit) -> visit.setId(null));
+		}
+	}
+
+	private static String name(Owner owner) {
+		return Stream.of(owner.getFirstName(), owner.getLastName())
+			.filter(Objects::nonNull)
+			.collect(Collectors.joining(" "));
+	}
+
+	/**
+	 * A valid owner waiting to be written.
+	 */
+	private record Pending(long line, Owner owner) {
+
+	}
+
+	/**
+	 * The progress of an import, updated by the reading and the writing threads.
+	 */
+	private static final class Progress {
+
+		private final AtomicLong read = new AtomicLong();
+
+		private final AtomicLong imported = new AtomicLong();
+
+		private final AtomicLong rejected = new AtomicLong();
+
+		private final List<Rejection> rejections = new ArrayList<>();
+
+		void reject(Rejection rejection) {
+			this.rejected.incrementAndGet();
+			synchronized (this.rejections) {
+				if (this.rejections.size() < MAX_REJECTIONS) {
+					this.rejections.add(rejection);
+				}
+			}
+		}
+
+		ImportReport report() {
+			synchronized (this.rejections) {
+				return new ImportReport(this.read.get(), this.imported.get(), this.rejected.get(),
+						List.copyOf(this.rejections));
+			}
+		}
+
+	}
+
+}
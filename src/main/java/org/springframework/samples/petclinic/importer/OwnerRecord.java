@@ -0,0 +1,57 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.importer;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * An owner to import, with their pets and visits, as read from the import input.
+ *
+ * @param firstName the owner's first name
+ * @param lastName the owner's last name
+ * @param address the owner's address
+ * @param city the owner's city
+ * @param telephone the owner's telephone number
+ * @param pets the owner's pets, or {@code null} if they have none
+ */
+public record OwnerRecord(String firstName, String lastName, String address, String city, String telephone,
+		List<PetRecord> pets) {
+
+	/**
+	 * A pet of the owner.
+	 *
+	 * @param name the pet's name
+	 * @param birthDate the pet's birth date
+	 * @param type the name of the pet's
+	 * {@link org.springframework.samples.petclinic.owner.PetType type}
+	 * @param visits the pet's visits, or {@code null} if it has none
+	 */
+	public record PetRecord(String name, LocalDate birthDate, String type, List<VisitRecord> visits) {
+
+	}
+
+	/**
+	 * A visit of a pet.
+	 *
+	 * @param date the date of the visit
+	 * @param description the description of the visit
+	 */
+	public record VisitRecord(LocalDate date, String description) {
+
+	}
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Streams the {@link OwnerRecord owners} of an import input, one at a time.
+ */
+interface OwnerRecordReader extends Closeable {
+
+	/**
+	 * Read the next owner.
+	 * @return the next owner, or {@code null} at the end of the input
+	 * @throws IOException if the input cannot be read
+	 */
+	Entry next() throws IOException;
+
+	/**
+	 * An owner read from the input, or the reason it could not be read.
+	 *
+	 * @param line the line of the input the owner starts at
+	 * @param owner the owner, or {@code null} if it could not be read
+	 * @param error why the owner could not be read, or {@code null} if it was
+	 */
+	record Entry(long line, OwnerRecord owner, String error) {
+
+	}
+
+}
@@ -25,6 +25,11 @@ import jakarta.persistence.MappedSuperclass;
 /**
  * Simple JavaBean domain object with an id property. Used as a base class for objects
  * needing this property.
+ * <p>
+ * Ids come from a sequence per table, named after the table with a {@code _seq} suffix
+ * (e.g. {@code owners_seq}), which Hibernate reads in blocks of 50 ids. Unlike identity
+ * columns, this lets Hibernate assign the ids of new entities before inserting them, and
+ * so batch the inserts.
  *
  * @author Ken Krebs
  * @author Juergen Hoeller
@@ -33,7 +38,7 @@ import jakarta.persistence.MappedSuperclass;
 public class BaseEntity implements Serializable {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE)
 	private Integer id;
 
 	public Integer getId() {
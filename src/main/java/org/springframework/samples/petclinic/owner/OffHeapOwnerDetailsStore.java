@@ -0,0 +1,270 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Off-heap store of {@link OwnerDetails} read models, keyed by owner id, kept as
+ * {@link OwnerDetailsCodec} encodings in a ring of direct {@link ByteBuffer} slabs, so
+ * that a large number of owners can be cached without growing the Java heap.
+ * <p>
+ * Entries are appended to the current slab. When it is full, the next slab in the ring
+ * becomes current and the entries it still holds are evicted all at once, so the oldest
+ * writes are evicted first. Replacing or removing an entry only drops it from the index:
+ * its bytes stay in their slab, as dead bytes, until the slab is reused. Entries larger
+ * than a slab are not stored.
+ * <p>
+ * Only the index lives on the heap. Reads run concurrently, and copy the encoding out of
+ * its slab before decoding it; writes are serialized.
+ */
+class OffHeapOwnerDetailsStore {
+
+	private final OwnerDetailsCodec codec;
+
+	private final ByteBuffer[] slabs;
+
+	private final List<List<Integer>> slabKeys;
+
+	private final Map<Integer, Long> index = new HashMap<>();
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private int currentSlab;
+
+	private long liveBytes;
+
+	private long evictions;
+
+	/**
+	 * Create a store, allocating all of its slabs up front.
+	 * @param codec the codec encoding the read models
+	 * @param slabCount the number of slabs
+	 * @param slabSize the size of each slab, in bytes
+	 */
+	OffHeapOwnerDetailsStore(OwnerDetailsCodec codec, int slabCount, int slabSize) {
+		if (slabCount < 1 || slabSize <= Integer.BYTES) {
+			throw new IllegalArgumentException("Invalid slabs: " + slabCount + " of " + slabSize + " bytes");
+		}
+		this.codec = codec;
+		this.slabs = new ByteBuffer[slabCount];
+		this.slabKeys = new ArrayList<>(slabCount);
+		for (int i = 0; i < slabCount; i++) {
+			this.slabs[i] = ByteBuffer.allocateDirect(slabSize);
+			this.slabKeys.add(new ArrayList<>());
+		}
+	}
+
+	/**
+	 * Return the read model of an owner.
+	 * @param ownerId the id of the owner
+	 * @return the read model, or {@code null} if it is not stored
+	 */
+	OwnerDetails get(int ownerId) {
+		byte[] encoding;
+		this.lock.readLock().lock();
+		try {
+			Long location = this.index.get(ownerId);
+			if (location == null) {
+				return null;
+			}
+			ByteBuffer slab = this.slabs[slab(location)];
+			int offset = offset(location);
+			encoding = new byte[slab.getInt(offset)];
+			slab.get(offset + Integer.BYTES, encoding);
+		}
+		finally {
+			this.lock.readLock().unlock();
+		}
+		return this.codec.decode(ByteBuffer.wrap(encoding));
+	}
+
+	/**
+	 * Store the read model of an owner, replacing any read model stored for it.
+	 * @param owner the read model
+	 * @return whether the read model was stored, which it is not when it is larger than a
+	 * slab
+	 */
+	boolean put(OwnerDetails owner) {
+		ByteBuffer encoding;
+		try {
+			encoding = this.codec.encode(owner);
+		}
+		catch (IllegalArgumentException ex) {
+			// too large for the encoding, and so for any slab
+			remove(owner.id());
+			return false;
+		}
+		int length = Integer.BYTES + encoding.remaining();
+		this.lock.writeLock().lock();
+		try {
+			unindex(owner.id());
+			if (length > this.slabs[0].capacity()) {
+				return false;
+			}
+			ByteBuffer slab = this.slabs[this.currentSlab];
+			if (slab.remaining() < length) {
+				slab = nextSlab();
+			}
+			int offset = slab.position();
+			slab.putInt(encoding.remaining()).put(encoding);
+			this.index.put(owner.id(), location(this.currentSlab, offset));
+			this.slabKeys.get(this.currentSlab).add(owner.id());
+			this.liveBytes += length;
+			return true;
+		}
+		finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove the read model of an owner.
+	 * @param ownerId the id of the owner
+	 */
+	void remove(int ownerId) {
+		this.lock.writeLock().lock();
+		try {
+			unindex(ownerId);
+		}
+		finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove all the read models.
+	 */
+	void clear() {
+		this.lock.writeLock().lock();
+		try {
+			this.index.clear();
+			for (int i = 0; i < this.slabs.length; i++) {
+				this.slabs[i].clear();
+				this.slabKeys.get(i).clear();
+			}
+			this.currentSlab = 0;
+			this.liveBytes = 0;
+		}
+		finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Return the number of read models stored.
+	 */
+	int size() {
+		this.lock.readLock().lock();
+		try {
+			return this.index.size();
+		}
+		finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Return the total size of the slabs, in bytes.
+	 */
+	long capacityBytes() {
+		return (long) this.slabs.length * this.slabs[0].capacity();
+	}
+
+	/**
+	 * Return the number of bytes written to the slabs since they were last reused,
+	 * including the dead bytes of replaced and removed entries.
+	 */
+	long usedBytes() {
+		this.lock.readLock().lock();
+		try {
+			long used = 0;
+			for (ByteBuffer slab : this.slabs) {
+				used += slab.position();
+			}
+			return used;
+		}
+		finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Return the number of bytes held by the stored read models.
+	 */
+	long liveBytes() {
+		this.lock.readLock().lock();
+		try {
+			return this.liveBytes;
+		}
+		finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Return the number of read models evicted to make room for new ones.
+	 */
+	long evictions() {
+		this.lock.readLock().lock();
+		try {
+			return this.evictions;
+		}
+		finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	private ByteBuffer nextSlab() {
+		this.currentSlab = (this.currentSlab + 1) % this.slabs.length;
+		List<Integer> keys = this.slabKeys.get(this.currentSlab);
+		for (Integer key : keys) {
+			Long location = this.index.get(key);
+			if (location != null && slab(location) == this.currentSlab) {
+				unindex(key);
+				this.evictions++;
+			}
+		}
+		keys.clear();
+		return this.slabs[this.currentSlab].clear();
+	}
+
+	private void unindex(int ownerId) {
+		Long location = this.index.remove(ownerId);
+		if (location != null) {
+			this.liveBytes -= Integer.BYTES + this.slabs[slab(location)].getInt(offset(location));
+		}
+	}
+
+	private static long location(int slab, int offset) {
+		return ((long) slab << Integer.SIZE) | offset;
+	}
+
+	private static int slab(long location) {
+		return (int) (location >>> Integer.SIZE);
+	}
+
+	private static int offset(long location) {
+		return (int) location;
+	}
+
+}
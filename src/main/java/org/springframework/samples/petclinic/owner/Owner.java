@@ -15,8 +15,12 @@
  */
 package org.springframework.samples.petclinic.owner;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 import org.springframework.core.style.ToStringCreator;
 import org.springframework.samples.petclinic.model.Person;
@@ -27,14 +31,30 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.JoinColumn;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.NamedSubgraph;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OrderBy;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.NotBlank;
 
 /**
  * Simple JavaBean domain object representing an owner.
+ * <p>
+ * The {@link #getPets() pets} are loaded lazily. Use cases that need them pick one of the
+ * named entity graphs declared here when loading the owner:
+ * <ul>
+ * <li>{@value #DETAILS_GRAPH}: pets with their type and visits, for the owner details
+ * page;</li>
+ * <li>{@value #PETS_GRAPH}: pets with their type but without visits, for adding and
+ * editing pets, and for visit booking, which reads the visits of the booked pet
+ * only.</li>
+ * </ul>
+ * Editing the owner itself needs neither and loads the owner row only.
  *
  * @author Ken Krebs
  * @author Juergen Hoeller
@@ -44,8 +64,23 @@ import jakarta.validation.constraints.NotBlank;
  */
 @Entity
 @Table(name = "owners")
+@NamedEntityGraph(name = Owner.DETAILS_GRAPH, attributeNodes = @NamedAttributeNode(value = "pets", subgraph = "pet"),
+		subgraphs = @NamedSubgraph(name = "pet",
+				attributeNodes = { @NamedAttributeNode("type"), @NamedAttributeNode("visits") }))
+@NamedEntityGraph(name = Owner.PETS_GRAPH, attributeNodes = @NamedAttributeNode(value = "pets", subgraph = "pet"),
+		subgraphs = @NamedSubgraph(name = "pet", attributeNodes = @NamedAttributeNode("type")))
 public class Owner extends Person {
 
+	/**
+	 * Entity graph fetching the whole aggregate: pets, their types and their visits.
+	 */
+	public static final String DETAILS_GRAPH = "Owner.details";
+
+	/**
+	 * Entity graph fetching the pets and their types, but not their visits.
+	 */
+	public static final String PETS_GRAPH = "Owner.pets";
+
 	@Column(name = "address")
 	@NotBlank
 	private String address;
@@ -59,10 +94,35 @@ public class Owner extends Person {
 	@Pattern(regexp = "\\d{10}", message = "Telephone must be a 10-digit number")
 	private String telephone;
 
-	@OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+	@OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
 	@JoinColumn(name = "owner_id")
 	@OrderBy("name")
-	private final List<Pet> pets = new ArrayList<>();
+	private final Set<Pet> pets = new LinkedHashSet<>();
+
+	/**
+	 * Version of the whole aggregate, incremented whenever the owner, its pets or their
+	 * visits change, and used to validate conditional requests for the owner.
+	 */
+	@Version
+	@Column(name = "version")
+	private Integer version;
+
+	/**
+	 * Lookup maps of the pets by id and by lower-case name, built on first lookup and
+	 * then maintained by {@link #addPet(Pet)}, so that finding a pet does not scan the
+	 * pets of owners with many pets.
+	 */
+	@Transient
+	private Map<Integer, Pet> petsById;
+
+	@Transient
+	private Map<String, Pet> petsByName;
+
+	@Transient
+	private int indexedPets;
+
+	@Transient
+	private boolean indexedNewPets;
 
 	public String getAddress() {
 		return this.address;
@@ -88,13 +148,20 @@ public class Owner extends Person {
 		this.telephone = telephone;
 	}
 
-	public List<Pet> getPets() {
+	public Collection<Pet> getPets() {
 		return this.pets;
 	}
 
+	public Integer getVersion() {
+		return this.version;
+	}
+
 	public void addPet(Pet pet) {
 		if (pet.isNew()) {
+			indexPets();
 			getPets().add(pet);
+			indexPet(pet);
+			this.indexedPets++;
 		}
 	}
 
@@ -113,15 +180,8 @@ public class Owner extends Person {
 	 * @return a pet if pet id is already in use
 	 */
 	public Pet getPet(Integer id) {
-		for (Pet pet : getPets()) {
-			if (!pet.isNew()) {
-				Integer compId = pet.getId();
-				if (compId.equals(id)) {
-					return pet;
-				}
-			}
-		}
-		return null;
+		indexPets();
+		return this.petsById.get(id);
 	}
 
 	/**
@@ -130,16 +190,45 @@ public class Owner extends Person {
 	 * @return a pet if pet name is already in use
 	 */
 	public Pet getPet(String name, boolean ignoreNew) {
-		name = name.toLowerCase();
-		for (Pet pet : getPets()) {
-			String compName = pet.getName();
-			if (compName != null && compName.equalsIgnoreCase(name)) {
-				if (!ignoreNew || !pet.isNew()) {
-					return pet;
-				}
-			}
+		indexPets();
+		Pet pet = this.petsByName.get(petNameKey(name));
+		if (pet != null && ignoreNew && pet.isNew()) {
+			return null;
+		}
+		return pet;
+	}
+
+	/**
+	 * Index the pets by id and by name, unless they are already indexed: on first use,
+	 * and again if the collection was loaded or changed other than by
+	 * {@link #addPet(Pet)}. New pets may still be named, given an id or replaced by a
+	 * merge, so the pets are indexed again for as long as any of them is new.
+	 */
+	private void indexPets() {
+		if (this.petsById != null && this.indexedPets == this.pets.size() && !this.indexedNewPets) {
+			return;
 		}
-		return null;
+		this.petsById = new HashMap<>();
+		this.petsByName = new HashMap<>();
+		this.indexedNewPets = false;
+		this.pets.forEach(this::indexPet);
+		this.indexedPets = this.pets.size();
+	}
+
+	private void indexPet(Pet pet) {
+		if (pet.isNew()) {
+			this.indexedNewPets = true;
+		}
+		else {
+			this.petsById.putIfAbsent(pet.getId(), pet);
+		}
+		if (pet.getName() != null) {
+			this.petsByName.putIfAbsent(petNameKey(pet.getName()), pet);
+		}
+	}
+
+	private static String petNameKey(String name) {
+		return name.toLowerCase(Locale.ROOT);
 	}
 
 	@Override
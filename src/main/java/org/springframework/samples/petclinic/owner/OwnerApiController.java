@@ -0,0 +1,57 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * The owner API, returning the {@link OwnerDetails} of up to {@value #MAX_IDS} owners per
+ * request, as JSON or, depending on the {@code Accept} header, in the compact CBOR or
+ * Smile binary encodings of the same document.
+ */
+@Controller
+class OwnerApiController {
+
+	static final int MAX_IDS = 100;
+
+	static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+	private final OwnerBatchLoader loader;
+
+	OwnerApiController(OwnerBatchLoader loader) {
+		this.loader = loader;
+	}
+
+	@GetMapping(value = "/api/owners",
+			produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE })
+	@ResponseBody
+	public List<OwnerDetails> findOwners(@RequestParam List<Integer> ids) {
+		if (ids.isEmpty() || ids.size() > MAX_IDS) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+					"Between 1 and " + MAX_IDS + " owner ids can be requested, not " + ids.size());
+		}
+		return this.loader.load(ids);
+	}
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.samples.petclinic.owner.OwnerBatchRepository.OwnerRow;
+import org.springframework.samples.petclinic.owner.OwnerBatchRepository.PetRow;
+import org.springframework.samples.petclinic.owner.OwnerBatchRepository.VisitRow;
+import org.springframework.samples.petclinic.owner.OwnerDetails.PetDetails;
+import org.springframework.samples.petclinic.owner.OwnerDetails.VisitDetails;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Loads the {@link OwnerDetails} read models of many owners at once, in at most three
+ * statements whatever the number of owners, pets and visits: one {@code IN} query per
+ * level of the aggregate, all in one read-only transaction so that the levels are
+ * consistent with each other. No entity is loaded.
+ *
+ * @see OwnerBatchRepository
+ */
+@Service
+public class OwnerBatchLoader {
+
+	private final OwnerBatchRepository repository;
+
+	OwnerBatchLoader(OwnerBatchRepository repository) {
+		this.repository = repository;
+	}
+
+	/**
+	 * Load the read models of the owners with the given ids.
+	 * @param ids the owner ids, where duplicates are ignored
+	 * @return the read models of the owners found, in the order of their first id,
+	 * skipping the ids of missing owners
+	 */
+	@Transactional(readOnly = true)
+	public List<OwnerDetails> load(Collection<Integer> ids) {
+		Set<Integer> ownerIds = new LinkedHashSet<>(ids);
+		if (ownerIds.isEmpty()) {
+			return List.of();
+		}
+		Map<Integer, OwnerRow> owners = new HashMap<>();
+		for (OwnerRow owner : this.repository.findOwners(ownerIds)) {
+			owners.put(owner.id(), owner);
+		}
+		Map<Integer, List<PetRow>> petsByOwner = new HashMap<>();
+		Map<Integer, List<VisitDetails>> visitsByPet = new HashMap<>();
+		if (!owners.isEmpty()) {
+			for (PetRow pet : this.repository.findPets(owners.keySet())) {
+				petsByOwner.computeIfAbsent(pet.ownerId(), (key) -> new ArrayList<>()).add(pet);
+				visitsByPet.put(pet.id(), new ArrayList<>());
+			}
+		}
+		if (!visitsByPet.isEmpty()) {
+			for (VisitRow visit : this.repository.findVisits(visitsByPet.keySet())) {
+				visitsByPet.get(visit.petId()).add(new VisitDetails(visit.date(), visit.description()));
+			}
+		}
+		List<OwnerDetails> result = new ArrayList<>(owners.size());
+		for (Integer id : ownerIds) {
+			OwnerRow owner = owners.get(id);
+			if (owner != null) {
+				List<PetDetails> pets = petsByOwner.getOrDefault(id, List.of())
+					.stream()
+					.map((pet) -> new PetDetails(pet.id(), pet.name(), pet.birthDate(), pet.type(),
+							List.copyOf(visitsByPet.get(pet.id()))))
+					.toList();
+				result.add(new OwnerDetails(owner.id(), owner.version(), owner.firstName(), owner.lastName(),
+						owner.address(), owner.city(), owner.telephone(), pets));
+			}
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.QueryHint;
+
+/**
+ * Repository reading many owners at once as flat projections, one statement per level of
+ * the aggregate, for the {@link OwnerBatchLoader}: the owners by id, then the pets of all
+ * these owners, then the visits of all these pets.
+ */
+interface OwnerBatchRepository extends Repository<Owner, Integer> {
+
+	/**
+	 * Retrieve the contact details of the owners with the given ids.
+	 * @param ids the owner ids
+	 * @return the owners found, in no particular order
+	 */
+	@Query("SELECT new org.springframework.samples.petclinic.owner.OwnerBatchRepository$OwnerRow(owner.id, "
+			+ "owner.version, owner.firstName, owner.lastName, owner.address, owner.city, owner.telephone) "
+			+ "FROM Owner owner WHERE owner.id IN :ids")
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+	@Transactional(readOnly = true)
+	List<OwnerRow> findOwners(Collection<Integer> ids);
+
+	/**
+	 * Retrieve the pets of the owners with the given ids.
+	 * @param ownerIds the owner ids
+	 * @return the pets, sorted by name
+	 */
+	@Query("SELECT new org.springframework.samples.petclinic.owner.OwnerBatchRepository$PetRow(owner.id, pet.id, "
+			+ "pet.name, pet.birthDate, type.name) "
+			+ "FROM Owner owner JOIN owner.pets pet LEFT JOIN pet.type type WHERE owner.id IN :ownerIds "
+			+ "ORDER BY pet.name, pet.id")
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+	@Transactional(readOnly = true)
+	List<PetRow> findPets(Collection<Integer> ownerIds);
+
+	/**
+	 * Retrieve the visits of the pets with the given ids.
+	 * @param petIds the pet ids
+	 * @return the visits, sorted by date
+	 */
+	@Query("SELECT new org.springframework.samples.petclinic.owner.OwnerBatchRepository$VisitRow(pet.id, "
+			+ "visit.date, visit.description) "
+			+ "FROM Pet pet JOIN pet.visits visit WHERE pet.id IN :petIds ORDER BY visit.date, visit.id")
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+	@Transactional(readOnly = true)
+	List<VisitRow> findVisits(Collection<Integer> petIds);
+
+	/**
+	 * The contact details of an owner.
+	 *
+	 * @param id the owner id
+	 * @param version the version of the owner aggregate
+	 * @param firstName the owner's first name
+	 * @param lastName the owner's last name
+	 * @param address the owner's address
+	 * @param city the owner's city
+	 * @param telephone the owner's telephone number
+	 */
+	record OwnerRow(Integer id, Integer version, String firstName, String lastName, String address, String city,
+			String telephone) {
+
+	}
+
+	/**
+	 * A pet of an owner.
+	 *
+	 * @param ownerId the owner id
+	 * @param id the pet id
+	 * @param name the pet's name
+	 * @param birthDate the pet's birth date
+	 * @param type the name of the pet's type
+	 */
+	record PetRow(Integer ownerId, Integer id, String name, LocalDate birthDate, String type) {
+
+	}
+
+	/**
+	 * A visit of a pet.
+	 *
+	 * @param petId the pet id
+	 * @param date the date of the visit
+	 * @param description the description of the visit
+	 */
+	record VisitRow(Integer petId, LocalDate date, String description) {
+
+	}
+
+}
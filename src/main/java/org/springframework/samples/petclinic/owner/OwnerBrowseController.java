@@ -0,0 +1,69 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.samples.petclinic.owner.OwnerFacetIndex.Facets;
+import org.springframework.samples.petclinic.owner.OwnerFacetIndex.Filter;
+import org.springframework.samples.petclinic.owner.OwnerFacetIndex.PetCount;
+import org.springframework.samples.petclinic.owner.OwnerFacetIndex.VisitRecency;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+/**
+ * Faceted browsing of the owners by city, pet type, number of pets and visit recency,
+ * answered by the {@link OwnerFacetIndex}.
+ */
+@Controller
+class OwnerBrowseController {
+
+	static final int PAGE_SIZE = 10;
+
+	private final OwnerRepository owners;
+
+	private final OwnerFacetIndex facetIndex;
+
+	OwnerBrowseController(OwnerRepository owners, OwnerFacetIndex facetIndex) {
+		this.owners = owners;
+		this.facetIndex = facetIndex;
+	}
+
+	@GetMapping("/owners/browse")
+	public String browse(@RequestParam(name = "city", defaultValue = "") Set<String> cities,
+			@RequestParam(name = "type", defaultValue = "") Set<String> petTypes,
+			@RequestParam(name = "pets", defaultValue = "") Set<PetCount> petCounts,
+			@RequestParam(name = "visited", defaultValue = "") Set<VisitRecency> visits,
+			@RequestParam(defaultValue = "1") int page, Model model) {
+		Filter filter = new Filter(cities, petTypes, petCounts, visits);
+		int currentPage = Math.max(page, 1);
+		Facets facets = this.facetIndex.browse(filter, LocalDate.now(), (currentPage - 1) * PAGE_SIZE, PAGE_SIZE);
+		List<OwnerSummary> listOwners = facets.ownerIds().isEmpty() ? List.of()
+				: this.owners.findSummariesByIdIn(facets.ownerIds());
+		model.addAttribute("filter", filter);
+		model.addAttribute("facets", facets);
+		model.addAttribute("currentPage", currentPage);
+		model.addAttribute("totalPages", (facets.total() + PAGE_SIZE - 1) / PAGE_SIZE);
+		model.addAttribute("totalItems", facets.total());
+		model.addAttribute("listOwners", listOwners);
+		return "owners/ownersBrowse";
+	}
+
+}
@@ -15,22 +15,31 @@
  */
 package org.springframework.samples.petclinic.owner;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.system.ConditionalRequests;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.InitBinder;
-import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.ModelAndView;
 
 import jakarta.validation.Valid;
@@ -47,10 +56,37 @@ class OwnerController {
 
 	private static final String VIEWS_OWNER_CREATE_OR_UPDATE_FORM = "owners/createOrUpdateOwnerForm";
 
+	private static final int PAGE_SIZE = 5;
+
+	private static final int MAX_SUGGESTIONS = 50;
+
+	static final int PET_PAGE_SIZE = 20;
+
 	private final OwnerRepository owners;
 
-	public OwnerController(OwnerRepository clinicService) {
+	private final OwnerIdentityMap identityMap;
+
+	private final OwnerService ownerService;
+
+	private final OwnerDetailsCache ownerDetails;
+
+	private final OwnerNameIndex nameIndex;
+
+	private final boolean keysetPagination;
+
+	private final int largeOwnerPets;
+
+	public OwnerController(OwnerRepository clinicService, OwnerIdentityMap identityMap, OwnerService ownerService,
+			OwnerDetailsCache ownerDetails, OwnerNameIndex nameIndex,
+			@Value("${petclinic.owners.keyset-pagination:false}") boolean keysetPagination,
+			@Value("${petclinic.owners.large-owner-pets:50}") int largeOwnerPets) {
 		this.owners = clinicService;
+		this.identityMap = identityMap;
+		this.ownerService = ownerService;
+		this.ownerDetails = ownerDetails;
+		this.nameIndex = nameIndex;
+		this.keysetPagination = keysetPagination;
+		this.largeOwnerPets = largeOwnerPets;
 	}
 
 	@InitBinder
@@ -58,11 +94,6 @@ class OwnerController {
 		dataBinder.setDisallowedFields("id");
 	}
 
-	@ModelAttribute("owner")
-	public Owner findOwner(@PathVariable(name = "ownerId", required = false) Integer ownerId) {
-		return ownerId == null ? new Owner() : this.owners.findById(ownerId);
-	}
-
 	@GetMapping("/owners/new")
 	public String initCreationForm(Map<String, Object> model) {
 		Owner owner = new Owner();
@@ -77,60 +108,153 @@ class OwnerController {
 			return VIEWS_OWNER_CREATE_OR_UPDATE_FORM;
 		}
 
-		this.owners.save(owner);
+		this.ownerService.createOwner(owner);
 		redirectAttributes.addFlashAttribute("message", "New Owner Created");
 		return "redirect:/owners/" + owner.getId();
 	}
 
 	@GetMapping("/owners/find")
-	public String initFindForm() {
+	public String initFindForm(Map<String, Object> model) {
+		model.put("owner", new Owner());
 		return "owners/findOwners";
 	}
 
+	@GetMapping(value = "/owners/suggest", produces = MediaType.APPLICATION_JSON_VALUE)
+	@ResponseBody
+	public List<OwnerNameIndex.Suggestion> suggestLastNames(@RequestParam(defaultValue = "") String prefix,
+			@RequestParam(defaultValue = "10") int limit) {
+		return this.nameIndex.suggest(prefix, Math.max(1, Math.min(limit, MAX_SUGGESTIONS)));
+	}
+
 	@GetMapping("/owners")
-	public String processFindForm(@RequestParam(defaultValue = "1") int page, Owner owner, BindingResult result,
-			Model model) {
+	public String processFindForm(@RequestParam(defaultValue = "1") int page,
+			@RequestParam(required = false) String cursor, Owner owner, BindingResult result, Model model) {
 		// allow parameterless GET request for /owners to return all records
 		if (owner.getLastName() == null) {
 			owner.setLastName(""); // empty string signifies broadest possible search
 		}
 
-		// find owners by last name
-		Page<Owner> ownersResults = findPaginatedForOwnersLastName(page, owner.getLastName());
+		if (!this.nameIndex.hasPrefix(owner.getLastName())) {
+			// no owners found, without asking the database
+			result.rejectValue("lastName", "notFound", "not found");
+			return "owners/findOwners";
+		}
+
+		if (this.keysetPagination) {
+			return processKeysetFind(cursor, owner, result, model);
+		}
+
+		// find owners by last name, reading one owner past the page rather than counting
+		// the whole match: the page bar is sized from the name index
+		Slice<OwnerSummary> ownersResults = findSliceForOwnersLastName(page, owner.getLastName());
 		if (ownersResults.isEmpty()) {
 			// no owners found
 			result.rejectValue("lastName", "notFound", "not found");
 			return "owners/findOwners";
 		}
 
-		if (ownersResults.getTotalElements() == 1) {
+		if (ownersResults.isFirst() && !ownersResults.hasNext() && ownersResults.getNumberOfElements() == 1) {
 			// 1 owner found
-			owner = ownersResults.iterator().next();
-			return "redirect:/owners/" + owner.getId();
+			return "redirect:/owners/" + ownersResults.iterator().next().id();
 		}
 
 		// multiple owners found
-		return addPaginationModel(page, model, ownersResults);
+		return addPaginationModel(page, model, ownersResults, owner.getLastName());
 	}
 
-	private String addPaginationModel(int page, Model model, Page<Owner> paginated) {
-		List<Owner> listOwners = paginated.getContent();
+	private String addPaginationModel(int page, Model model, Slice<OwnerSummary> paginated, String lastName) {
+		List<OwnerSummary> listOwners = paginated.getContent();
 		model.addAttribute("currentPage", page);
-		model.addAttribute("totalPages", paginated.getTotalPages());
-		model.addAttribute("totalItems", paginated.getTotalElements());
+		if (paginated.hasNext()) {
+			// estimate the totals from the name index rather than counting the matching
+			// owners: the index may lag behind the database, but never hides the next
+			// page
+			long totalItems = Math.max(this.nameIndex.count(lastName), (long) page * PAGE_SIZE + 1);
+			model.addAttribute("totalItems", totalItems);
+			model.addAttribute("totalPages", (int) ((totalItems + PAGE_SIZE - 1) / PAGE_SIZE));
+		}
+		else {
+			// on the last page the totals are known without counting
+			model.addAttribute("totalPages", page);
+			model.addAttribute("totalItems", (long) paginated.getNumber() * PAGE_SIZE + listOwners.size());
+		}
 		model.addAttribute("listOwners", listOwners);
 		return "owners/ownersList";
 	}
 
-	private Page<Owner> findPaginatedForOwnersLastName(int page, String lastname) {
-		int pageSize = 5;
-		Pageable pageable = PageRequest.of(page - 1, pageSize);
-		return owners.findByLastName(lastname, pageable);
+	private Slice<OwnerSummary> findSliceForOwnersLastName(int page, String lastname) {
+		Pageable pageable = PageRequest.of(page - 1, PAGE_SIZE);
+		return owners.findSliceByLastName(lastname, pageable);
+	}
+
+	/**
+	 * Keyset (seek) variant of the owner search: pages on {@code (last_name, id)} with an
+	 * opaque cursor instead of a page number, so deep pages cost the same as the first
+	 * one and no total count is needed.
+	 */
+	private String processKeysetFind(String cursor, Owner owner, BindingResult result, Model model) {
+		OwnerCursor position = (cursor != null) ? decodeCursor(cursor) : null;
+		// read one owner past the page to find out whether there is more in that
+		// direction
+		List<OwnerSummary> window = findWindowForOwnersLastName(position, owner.getLastName());
+		boolean more = window.size() > PAGE_SIZE;
+		List<OwnerSummary> listOwners = more ? window.subList(0, PAGE_SIZE) : window;
+
+		if (position == null) {
+			if (listOwners.isEmpty()) {
+				// no owners found
+				result.rejectValue("lastName", "notFound", "not found");
+				return "owners/findOwners";
+			}
+			if (listOwners.size() == 1) {
+				// 1 owner found
+				return "redirect:/owners/" + listOwners.get(0).id();
+			}
+		}
+
+		boolean backward = position != null && position.backward();
+		if (backward) {
+			// backward reads come back closest-first, restore the ascending order
+			listOwners = new ArrayList<>(listOwners);
+			Collections.reverse(listOwners);
+		}
+		boolean hasPrevious = backward ? more : position != null;
+		boolean hasNext = backward || more;
+
+		model.addAttribute("listOwners", listOwners);
+		model.addAttribute("lastName", owner.getLastName());
+		if (hasPrevious && !listOwners.isEmpty()) {
+			model.addAttribute("previousCursor", OwnerCursor.before(listOwners.get(0)).encode());
+		}
+		if (hasNext && !listOwners.isEmpty()) {
+			model.addAttribute("nextCursor", OwnerCursor.after(listOwners.get(listOwners.size() - 1)).encode());
+		}
+		return "owners/ownersList";
+	}
+
+	private static OwnerCursor decodeCursor(String cursor) {
+		try {
+			return OwnerCursor.decode(cursor);
+		}
+		catch (IllegalArgumentException ex) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
+		}
+	}
+
+	private List<OwnerSummary> findWindowForOwnersLastName(OwnerCursor position, String lastname) {
+		Limit limit = Limit.of(PAGE_SIZE + 1);
+		if (position == null) {
+			return owners.findByLastNameAfter(lastname, "", 0, limit);
+		}
+		if (position.backward()) {
+			return owners.findByLastNameBefore(lastname, position.lastName(), position.id(), limit);
+		}
+		return owners.findByLastNameAfter(lastname, position.lastName(), position.id(), limit);
 	}
 
 	@GetMapping("/owners/{ownerId}/edit")
 	public String initUpdateOwnerForm(@PathVariable("ownerId") int ownerId, Model model) {
-		Owner owner = this.owners.findById(ownerId);
+		Owner owner = this.identityMap.findWithoutPetsById(ownerId);
 		model.addAttribute(owner);
 		return VIEWS_OWNER_CREATE_OR_UPDATE_FORM;
 	}
@@ -138,27 +262,59 @@ class OwnerController {
 	@PostMapping("/owners/{ownerId}/edit")
 	public String processUpdateOwnerForm(@Valid Owner owner, BindingResult result, @PathVariable("ownerId") int ownerId,
 			RedirectAttributes redirectAttributes) {
+		owner.setId(ownerId);
 		if (result.hasErrors()) {
 			redirectAttributes.addFlashAttribute("error", "There was an error in updating the owner.");
 			return VIEWS_OWNER_CREATE_OR_UPDATE_FORM;
 		}
 
-		owner.setId(ownerId);
-		this.owners.save(owner);
+		this.ownerService.updateOwner(owner);
 		redirectAttributes.addFlashAttribute("message", "Owner Values Updated");
 		return "redirect:/owners/{ownerId}";
 	}
 
 	/**
-	 * Custom handler for displaying an owner.
+	 * Custom handler for displaying an owner. The pets of an owner with more than
+	 * {@code petclinic.owners.large-owner-pets} pets are paged instead, without their
+	 * visits, which the page loads on demand from the {@link VisitTimelineController}.
 	 * @param ownerId the ID of the owner to display
+	 * @param petPage the page of pets to display, for an owner with many pets
+	 * @param request the current request, answered with {@code 304 Not Modified} if the
+	 * client's copy of the owner is current
 	 * @return a ModelMap with the model attributes for the view
 	 */
 	@GetMapping("/owners/{ownerId}")
-	public ModelAndView showOwner(@PathVariable("ownerId") int ownerId) {
+	public ModelAndView showOwner(@PathVariable("ownerId") int ownerId, @RequestParam(defaultValue = "1") int petPage,
+			ServletWebRequest request) {
+		// validate the client's copy against the cached read model, or else against the
+		// version alone, before loading the aggregate
+		OwnerDetails owner = this.ownerDetails.getIfPresent(ownerId);
+		OwnerVersion version = (owner != null) ? new OwnerVersion(owner.version(), (long) owner.pets().size())
+				: this.owners.findVersionAndPetCountById(ownerId);
+		if (version != null
+				&& ConditionalRequests.checkPageNotModified(request, "owner-" + ownerId + "-" + version.version())) {
+			return null;
+		}
 		ModelAndView mav = new ModelAndView("owners/ownerDetails");
-		Owner owner = this.owners.findById(ownerId);
-		mav.addObject(owner);
+		if (version != null && version.petCount() > this.largeOwnerPets) {
+			return addPetPageModel(mav, ownerId, petPage, version.petCount());
+		}
+		mav.addObject("owner", (owner != null) ? owner : this.ownerDetails.get(ownerId));
+		return mav;
+	}
+
+	/**
+	 * Large-owner variant of the owner page: the owner's contact details and a page of
+	 * their pets, so that neither the pets nor the visits are loaded all at once.
+	 */
+	private ModelAndView addPetPageModel(ModelAndView mav, int ownerId, int petPage, long petCount) {
+		int totalPages = (int) ((petCount + PET_PAGE_SIZE - 1) / PET_PAGE_SIZE);
+		int page = Math.min(Math.max(petPage, 1), totalPages);
+		mav.addObject("owner", this.identityMap.findWithoutPetsById(ownerId));
+		mav.addObject("petPage", this.owners.findPetSummaries(ownerId, PageRequest.of(page - 1, PET_PAGE_SIZE)));
+		mav.addObject("currentPage", page);
+		mav.addObject("totalPages", totalPages);
+		mav.addObject("totalItems", petCount);
 		return mav;
 	}
 
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position within the owner search results, used for keyset (seek) pagination on
+ * {@code (last_name, id)}. A cursor is handed to the browser as an opaque URL-safe token
+ * so that links do not depend on its internal layout.
+ *
+ * @param lastName the last name of the owner the cursor points at
+ * @param id the id of the owner the cursor points at
+ * @param backward whether the cursor reads the owners <i>before</i> the position rather
+ * than after it
+ */
+record OwnerCursor(String lastName, int id, boolean backward) {
+
+	private static final char FORWARD = 'f';
+
+	private static final char BACKWARD = 'b';
+
+	/**
+	 * Create a cursor reading the owners that sort after the given owner.
+	 */
+	static OwnerCursor after(OwnerSummary owner) {
+		return new OwnerCursor(owner.lastName(), owner.id(), false);
+	}
+
+	/**
+	 * Create a cursor reading the owners that sort before the given owner.
+	 */
+	static OwnerCursor before(OwnerSummary owner) {
+		return new OwnerCursor(owner.lastName(), owner.id(), true);
+	}
+
+	/**
+	 * Decode a token previously produced by {@link #encode()}.
+	 * @param token the opaque cursor token
+	 * @return the decoded cursor
+	 * @throws IllegalArgumentException if the token is malformed
+	 */
+	static OwnerCursor decode(String token) {
+		String decoded;
+		try {
+			decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+		}
+		catch (IllegalArgumentException ex) {
+			throw new IllegalArgumentException("Invalid owner cursor: " + token, ex);
+		}
+		int separator = decoded.indexOf(':');
+		if (decoded.length() < 2 || separator < 2 || (decoded.charAt(0) != FORWARD && decoded.charAt(0) != BACKWARD)) {
+			throw new IllegalArgumentException("Invalid owner cursor: " + token);
+		}
+		try {
+			int id = Integer.parseInt(decoded.substring(1, separator));
+			return new OwnerCursor(decoded.substring(separator + 1), id, decoded.charAt(0) == BACKWARD);
+		}
+		catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("Invalid owner cursor: " + token, ex);
+		}
+	}
+
+	/**
+	 * Encode this cursor as an opaque, URL-safe token.
+	 */
+	String encode() {
+		String raw = (this.backward ? BACKWARD : FORWARD) + Integer.toString(this.id) + ':' + this.lastName;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
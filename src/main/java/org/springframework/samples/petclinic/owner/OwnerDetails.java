@@ -0,0 +1,80 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Immutable read model of the owner details page: the owner's contact details with their
+ * pets and visits, copied out of the {@link Owner} aggregate so that it can be cached and
+ * shared between requests.
+ *
+ * @param id the owner id
+ * @param version the {@link Owner#getVersion() version} of the aggregate this was read
+ * from
+ * @param firstName the owner's first name
+ * @param lastName the owner's last name
+ * @param address the owner's address
+ * @param city the owner's city
+ * @param telephone the owner's telephone number
+ * @param pets the owner's pets, sorted by name
+ */
+public record OwnerDetails(Integer id, Integer version, String firstName, String lastName, String address, String city,
+		String telephone, List<PetDetails> pets) {
+
+	/**
+	 * Copy the read model out of an owner loaded with its pets and visits.
+	 */
+	static OwnerDetails of(Owner owner) {
+		List<PetDetails> pets = owner.getPets().stream().map(PetDetails::of).toList();
+		return new OwnerDetails(owner.getId(), owner.getVersion(), owner.getFirstName(), owner.getLastName(),
+				owner.getAddress(), owner.getCity(), owner.getTelephone(), pets);
+	}
+
+	/**
+	 * A pet of the owner.
+	 *
+	 * @param id the pet id
+	 * @param name the pet's name
+	 * @param birthDate the pet's birth date
+	 * @param type the name of the pet's type
+	 * @param visits the pet's visits, sorted by date
+	 */
+	public record PetDetails(Integer id, String name, LocalDate birthDate, String type, List<VisitDetails> visits) {
+
+		static PetDetails of(Pet pet) {
+			List<VisitDetails> visits = pet.getVisits()
+				.stream()
+				.map((visit) -> new VisitDetails(visit.getDate(), visit.getDescription()))
+				.toList();
+			return new PetDetails(pet.getId(), pet.getName(), pet.getBirthDate(),
+					(pet.getType() != null) ? pet.getType().getName() : null, visits);
+		}
+
+	}
+
+	/**
+	 * A visit of a pet.
+	 *
+	 * @param date the date of the visit
+	 * @param description the description of the visit
+	 */
+	public record VisitDetails(LocalDate date, String description) {
+
+	}
+
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+
+import com.github.benmanes.caffeine.cache.Cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+
+/**
+ * Cache of the {@link OwnerDetails} read models, keyed by owner id, held in the
+ * {@value #CACHE_NAME} Caffeine cache. Caching is disabled when that cache is not
+ * configured.
+ * <p>
+ * Once a transaction that changed an owner has committed, its entry is evicted, or, in
+ * write-through mode, replaced with the aggregate read back from the database, so that
+ * the page shown after the redirect that follows a write is served from the cache. Loads
+ * and evictions are atomic per owner, and a write-through entry never replaces one read
+ * from a newer version of the aggregate, so that the cache does not keep stale entries.
+ * Owners with more than {@code petclinic.owners.large-owner-pets} pets are evicted even
+ * in write-through mode: their page is paged from the database rather than read from the
+ * cache, so reading back all their pets and visits would only fill the cache.
+ * <p>
+ * When {@code petclinic.owners.off-heap.slabs} is set, the Caffeine cache is backed by an
+ * {@link OffHeapOwnerDetailsStore} holding every read model loaded, so that an owner
+ * evicted from the Caffeine cache is decoded from off-heap memory rather than read from
+ * the database. Both tiers are evicted or written through together.
+ * <p>
+ * Besides the {@code cache.*} meters of the cache, the evictions and write-throughs are
+ * counted in the {@code petclinic.owners.details.writes} counter, tagged with the
+ * {@code mode}, and the off-heap tier publishes its size and evictions in the
+ * {@code petclinic.owners.details.off-heap.*} meters.
+ */
+@Component
+class OwnerDetailsCache {
+
+	static final String CACHE_NAME = "owner-details";
+
+	private final OwnerRepository owners;
+
+	private final Cache<Object, Object> cache;
+
+	private final boolean writeThrough;
+
+	private final int largeOwnerPets;
+
+	private final Counter evictions;
+
+	private final Counter writeThroughs;
+
+	private final OffHeapOwnerDetailsStore offHeap;
+
+	@Autowired
+	OwnerDetailsCache(OwnerRepository owners, ObjectProvider<CacheManager> cacheManager, MeterRegistry registry,
+			@Value("${petclinic.owners.details-write-through:false}") boolean writeThrough,
+			@Value("${petclinic.owners.large-owner-pets:50}") int largeOwnerPets,
+			@Value("${petclinic.owners.off-heap.slabs:0}") int offHeapSlabs,
+			@Value("${petclinic.owners.off-heap.slab-size:1MB}") DataSize offHeapSlabSize) {
+		this(owners, nativeCache(cacheManager.getIfAvailable()), registry, writeThrough, largeOwnerPets,
+				(offHeapSlabs > 0) ? new OffHeapOwnerDetailsStore(new OwnerDetailsCodec(), offHeapSlabs,
+						Math.toIntExact(offHeapSlabSize.toBytes())) : null);
+	}
+
+	OwnerDetailsCache(OwnerRepository owners, Cache<Object, Object> cache, MeterRegistry registry, boolean writeThrough,
+			int largeOwnerPets, OffHeapOwnerDetailsStore offHeap) {
+		this.owners = owners;
+		this.cache = cache;
+		this.writeThrough = writeThrough;
+		this.largeOwnerPets = largeOwnerPets;
+		this.evictions = registry.counter("petclinic.owners.details.writes", "mode", "evict");
+		this.writeThroughs = registry.counter("petclinic.owners.details.writes", "mode", "write-through");
+		this.offHeap = offHeap;
+		if (this.offHeap != null) {
+			bindOffHeapMetrics(registry, this.offHeap);
+		}
+	}
+
+	private static void bindOffHeapMetrics(MeterRegistry registry, OffHeapOwnerDetailsStore offHeap) {
+		Gauge.builder("petclinic.owners.details.off-heap.entries", offHeap, OffHeapOwnerDetailsStore::size)
+			.description("Number of owner details held off-heap")
+			.register(registry);
+		Gauge.builder("petclinic.owners.details.off-heap.capacity", offHeap, OffHeapOwnerDetailsStore::capacityBytes)
+			.description("Size of the off-heap slabs")
+			.baseUnit(BaseUnits.BYTES)
+			.register(registry);
+		Gauge.builder("petclinic.owners.details.off-heap.used", offHeap, OffHeapOwnerDetailsStore::usedBytes)
+			.description("Bytes written to the off-heap slabs, including replaced entries")
+			.baseUnit(BaseUnits.BYTES)
+			.register(registry);
+		Gauge.builder("petclinic.owners.details.off-heap.live", offHeap, OffHeapOwnerDetailsStore::liveBytes)
+			.description("Bytes held by the owner details stored off-heap")
+			.baseUnit(BaseUnits.BYTES)
+			.register(registry);
+		FunctionCounter
+			.builder("petclinic.owners.details.off-heap.evictions", offHeap, OffHeapOwnerDetailsStore::evictions)
+			.description("Number of owner details evicted from the off-heap slabs")
+			.register(registry);
+	}
+
+	private static Cache<Object, Object> nativeCache(CacheManager cacheManager) {
+		if (cacheManager != null && cacheManager.getCache(CACHE_NAME) instanceof CaffeineCache cache) {
+			return cache.getNativeCache();
+		}
+		return null;
+	}
+
+	/**
+	 * Return the cached read model of an owner, without loading it.
+	 * @param ownerId the id of the owner
+	 * @return the read model, or {@code null} if it is not cached
+	 */
+	OwnerDetails getIfPresent(int ownerId) {
+		if (this.cache == null) {
+			return null;
+		}
+		OwnerDetails owner = (OwnerDetails) this.cache.getIfPresent(ownerId);
+		if (owner == null && this.offHeap != null) {
+			owner = (OwnerDetails) this.cache.asMap().computeIfAbsent(ownerId, (id) -> this.offHeap.get((Integer) id));
+		}
+		return owner;
+	}
+
+	/**
+	 * Return the read model of an owner, loading and caching it if it is not cached.
+	 * @param ownerId the id of the owner
+	 * @return the read model, or {@code null} if there is no owner with that id
+	 */
+	OwnerDetails get(int ownerId) {
+		if (this.cache == null) {
+			return load(ownerId);
+		}
+		return (OwnerDetails) this.cache.get(ownerId, (id) -> loadThroughOffHeap((Integer) id));
+	}
+
+	/**
+	 * Evict the read models of all the owners from both tiers.
+	 */
+	void clear() {
+		if (this.cache != null) {
+			this.cache.invalidateAll();
+		}
+		if (this.offHeap != null) {
+			this.offHeap.clear();
+		}
+	}
+
+	/**
+	 * Evict, or write through, the read model of an owner that has changed. Large owners
+	 * are always evicted.
+	 */
+	@TransactionalEventListener
+	@Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+	public void ownerChanged(OwnerChangedEvent event) {
+		if (this.cache == null) {
+			return;
+		}
+		if (!this.writeThrough || isLarge(event.ownerId())) {
+			// the off-heap tier first, while computing the on-heap entry: this waits
+			// for a load in progress to finish and holds back new loads, which would
+			// otherwise read the stale off-heap copy back into the on-heap tier
+			this.cache.asMap().compute(event.ownerId(), (id, cached) -> {
+				if (this.offHeap != null) {
+					this.offHeap.remove((Integer) id);
+				}
+				return null;
+			});
+			this.evictions.increment();
+			return;
+		}
+		OwnerDetails loaded = load(event.ownerId());
+		if (loaded != null) {
+			this.cache.asMap().compute(event.ownerId(), (id, cached) -> {
+				OwnerDetails owner = (cached != null) ? newer((OwnerDetails) cached, loaded) : loaded;
+				if (this.offHeap != null) {
+					this.offHeap.put(owner);
+				}
+				return owner;
+			});
+			this.writeThroughs.increment();
+		}
+	}
+
+	private boolean isLarge(int ownerId) {
+		OwnerVersion version = this.owners.findVersionAndPetCountById(ownerId);
+		return version == null || version.petCount() > this.largeOwnerPets;
+	}
+
+	private static OwnerDetails newer(OwnerDetails cached, OwnerDetails loaded) {
+		return (loaded.version() >= cached.version()) ? loaded : cached;
+	}
+
+	private OwnerDetails loadThroughOffHeap(int ownerId) {
+		OwnerDetails owner = (this.offHeap != null) ? this.offHeap.get(ownerId) : null;
+		if (owner == null) {
+			owner = load(ownerId);
+			if (owner != null && this.offHeap != null) {
+				this.offHeap.put(owner);
+			}
+		}
+		return owner;
+	}
+
+	private OwnerDetails load(int ownerId) {
+		Owner owner = this.owners.findById(ownerId);
+		return (owner != null) ? OwnerDetails.of(owner) : null;
+	}
+
+}
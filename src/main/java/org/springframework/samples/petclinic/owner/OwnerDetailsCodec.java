@@ -0,0 +1,194 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.springframework.samples.petclinic.owner.OwnerDetails.PetDetails;
+import org.springframework.samples.petclinic.owner.OwnerDetails.VisitDetails;
+
+/**
+ * Compact binary encoding of the {@link OwnerDetails} read models.
+ * <p>
+ * Ids and versions are written as 4-byte ints, dates as their 4-byte epoch day, strings
+ * as UTF-8 prefixed with their 2-byte length, counts as 2 bytes, and the pet type names
+ * as a 2-byte code into a dictionary held by the codec. Codes are assigned on first use
+ * and never reused, so that an encoding stays readable for as long as its codec exists. A
+ * {@code 0xFFFF} length, a negative code and an {@link Integer#MIN_VALUE} int or date
+ * stand for {@code null}.
+ */
+final class OwnerDetailsCodec {
+
+	private static final int NULL_INT = Integer.MIN_VALUE;
+
+	private static final int MAX_UNSIGNED_SHORT = 0xFFFF;
+
+	private static final int NULL_STRING = MAX_UNSIGNED_SHORT;
+
+	private final Map<String, Short> typeCodes = new ConcurrentHashMap<>();
+
+	private final List<String> typeNames = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Encode a read model.
+	 * @param owner the read model to encode
+	 * @return a buffer holding the encoding, positioned at zero
+	 */
+	ByteBuffer encode(OwnerDetails owner) {
+		Writer writer = new Writer();
+		writer.putInt(owner.id());
+		writer.putInt(owner.version());
+		writer.putString(owner.firstName());
+		writer.putString(owner.lastName());
+		writer.putString(owner.address());
+		writer.putString(owner.city());
+		writer.putString(owner.telephone());
+		writer.putShort(owner.pets().size());
+		for (PetDetails pet : owner.pets()) {
+			writer.putInt(pet.id());
+			writer.putString(pet.name());
+			writer.putDate(pet.birthDate());
+			writer.putShort(typeCode(pet.type()));
+			writer.putShort(pet.visits().size());
+			for (VisitDetails visit : pet.visits()) {
+				writer.putDate(visit.date());
+				writer.putString(visit.description());
+			}
+		}
+		return writer.buffer.flip();
+	}
+
+	/**
+	 * Decode a read model.
+	 * @param buffer a buffer positioned at the start of an encoding made by this codec,
+	 * which is left positioned after it
+	 * @return the read model
+	 */
+	OwnerDetails decode(ByteBuffer buffer) {
+		Integer id = getInteger(buffer);
+		Integer version = getInteger(buffer);
+		String firstName = getString(buffer);
+		String lastName = getString(buffer);
+		String address = getString(buffer);
+		String city = getString(buffer);
+		String telephone = getString(buffer);
+		int petCount = Short.toUnsignedInt(buffer.getShort());
+		List<PetDetails> pets = new ArrayList<>(petCount);
+		for (int p = 0; p < petCount; p++) {
+			Integer petId = getInteger(buffer);
+			String name = getString(buffer);
+			LocalDate birthDate = getDate(buffer);
+			short typeCode = buffer.getShort();
+			String type = (typeCode >= 0) ? this.typeNames.get(typeCode) : null;
+			int visitCount = Short.toUnsignedInt(buffer.getShort());
+			List<VisitDetails> visits = new ArrayList<>(visitCount);
+			for (int v = 0; v < visitCount; v++) {
+				visits.add(new VisitDetails(getDate(buffer), getString(buffer)));
+			}
+			pets.add(new PetDetails(petId, name, birthDate, type, List.copyOf(visits)));
+		}
+		return new OwnerDetails(id, version, firstName, lastName, address, city, telephone, List.copyOf(pets));
+	}
+
+	private short typeCode(String type) {
+		if (type == null) {
+			return -1;
+		}
+		return this.typeCodes.computeIfAbsent(type, (name) -> {
+			synchronized (this.typeNames) {
+				if (this.typeNames.size() > Short.MAX_VALUE) {
+					throw new IllegalStateException("Too many pet types");
+				}
+				this.typeNames.add(name);
+				return (short) (this.typeNames.size() - 1);
+			}
+		});
+	}
+
+	private static Integer getInteger(ByteBuffer buffer) {
+		int value = buffer.getInt();
+		return (value != NULL_INT) ? value : null;
+	}
+
+	private static String getString(ByteBuffer buffer) {
+		int length = Short.toUnsignedInt(buffer.getShort());
+		if (length == NULL_STRING) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static LocalDate getDate(ByteBuffer buffer) {
+		int epochDay = buffer.getInt();
+		return (epochDay != NULL_INT) ? LocalDate.ofEpochDay(epochDay) : null;
+	}
+
+	/**
+	 * Growable heap buffer the encoding is written to.
+	 */
+	private static final class Writer {
+
+		private ByteBuffer buffer = ByteBuffer.allocate(256);
+
+		void putInt(Integer value) {
+			ensureRemaining(Integer.BYTES).putInt((value != null) ? value : NULL_INT);
+		}
+
+		void putShort(int value) {
+			if (value > MAX_UNSIGNED_SHORT) {
+				throw new IllegalArgumentException("Count too large to encode: " + value);
+			}
+			ensureRemaining(Short.BYTES).putShort((short) value);
+		}
+
+		void putDate(LocalDate date) {
+			putInt((date != null) ? Math.toIntExact(date.toEpochDay()) : NULL_INT);
+		}
+
+		void putString(String value) {
+			if (value == null) {
+				putShort(NULL_STRING);
+				return;
+			}
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			if (bytes.length >= NULL_STRING) {
+				throw new IllegalArgumentException("String too long to encode: " + bytes.length + " bytes");
+			}
+			putShort(bytes.length);
+			ensureRemaining(bytes.length).put(bytes);
+		}
+
+		private ByteBuffer ensureRemaining(int length) {
+			if (this.buffer.remaining() < length) {
+				ByteBuffer grown = ByteBuffer
+					.allocate(Math.max(this.buffer.capacity() * 2, this.buffer.position() + length));
+				this.buffer = grown.put(this.buffer.flip());
+			}
+			return this.buffer;
+		}
+
+	}
+
+}
@@ -0,0 +1,389 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * In-memory facet index of the owners, answering the faceted browsing of the owners and
+ * its facet counts without {@code GROUP BY} queries.
+ * <p>
+ * Each value of each facet maps to the compressed bitmap of the ids of the owners who
+ * have it: the owners of a city, the owners of at least one pet of a type, the owners of
+ * a given number of pets, and the owners whose last visit fell in a calendar month. Visit
+ * recency is worked out from the months when browsing, so that the index does not age.
+ * Values are OR-ed within a facet and AND-ed across facets, and the count of each value
+ * is the size of its intersection with the owners matching the other facets.
+ * <p>
+ * The index is read at startup and then updated, once their transaction has committed, by
+ * the commands that change an owner. Browsing runs concurrently; updates are serialized.
+ */
+@Component
+class OwnerFacetIndex {
+
+	private final OwnerRepository owners;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final RoaringBitmap all = new RoaringBitmap();
+
+	private final Map<String, RoaringBitmap> byCity = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+	private final Map<String, RoaringBitmap> byPetType = new TreeMap<>();
+
+	private final Map<PetCount, RoaringBitmap> byPetCount = new EnumMap<>(PetCount.class);
+
+	private final Map<YearMonth, RoaringBitmap> byLastVisit = new TreeMap<>();
+
+	private boolean loaded;
+
+	private final Object refreshLock = new Object();
+
+	private Map<Integer, List<OwnerFacetRow>> changedDuringRefresh;
+
+	OwnerFacetIndex(OwnerRepository owners) {
+		this.owners = owners;
+	}
+
+	/**
+	 * Browse the owners matching a filter, with the facet counts.
+	 * @param filter the facet values to filter by
+	 * @param today the date the visit recency is measured from
+	 * @param offset the index of the first owner id to return
+	 * @param limit the maximum number of owner ids to return
+	 * @return the matching owners and the facet counts
+	 */
+	Facets browse(Filter filter, LocalDate today, int offset, int limit) {
+		ensureLoaded();
+		this.lock.readLock().lock();
+		try {
+			Map<VisitRecency, RoaringBitmap> byRecency = byRecency(YearMonth.from(today));
+			RoaringBitmap city = union(this.byCity, filter.cities());
+			RoaringBitmap petType = union(this.byPetType, filter.petTypes());
+			RoaringBitmap petCount = union(this.byPetCount, filter.petCounts());
+			RoaringBitmap recency = union(byRecency, filter.visits());
+			RoaringBitmap matches = and(city, petType, petCount, recency);
+
+			List<Integer> ownerIds = new ArrayList<>();
+			for (long i = offset; i < Math.min(matches.getLongCardinality(), (long) offset + limit); i++) {
+				ownerIds.add(matches.select((int) i));
+			}
+			return new Facets(ownerIds, matches.getCardinality(), counts(this.byCity, and(petType, petCount, recency)),
+					counts(this.byPetType, and(city, petCount, recency)),
+					counts(this.byPetCount, and(city, petType, recency)),
+					counts(byRecency, and(city, petType, petCount)));
+		}
+		finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Reload the facets of all the owners from the data store. The owners changed while
+	 * the facets are read are indexed again over the reloaded facets, since the read may
+	 * have missed them.
+	 */
+	@EventListener({ ApplicationReadyEvent.class, OwnersImportedEvent.class })
+	public void refresh() {
+		synchronized (this.refreshLock) {
+			this.lock.writeLock().lock();
+			try {
+				this.changedDuringRefresh = new LinkedHashMap<>();
+			}
+			finally {
+				this.lock.writeLock().unlock();
+			}
+			List<OwnerFacetRow> rows = this.owners.findAllFacets();
+			this.lock.writeLock().lock();
+			try {
+				this.all.clear();
+				this.byCity.clear();
+				this.byPetType.clear();
+				this.byPetCount.clear();
+				this.byLastVisit.clear();
+				index(rows);
+				this.changedDuringRefresh.forEach(this::reindex);
+				this.changedDuringRefresh = null;
+				this.loaded = true;
+			}
+			finally {
+				this.lock.writeLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * Reindex the facets of an owner that was created or changed.
+	 */
+	@TransactionalEventListener
+	@Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+	public void ownerChanged(OwnerChangedEvent event) {
+		if (!isLoadedOrRefreshing() || event.ownerId() == null) {
+			// not loaded yet, the load reads the committed owner
+			return;
+		}
+		List<OwnerFacetRow> rows = this.owners.findFacetsById(event.ownerId());
+		this.lock.writeLock().lock();
+		try {
+			if (this.changedDuringRefresh != null) {
+				this.changedDuringRefresh.put(event.ownerId(), rows);
+			}
+			reindex(event.ownerId(), rows);
+		}
+		finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	private void reindex(int ownerId, List<OwnerFacetRow> rows) {
+		unindex(ownerId);
+		index(rows);
+	}
+
+	private boolean isLoadedOrRefreshing() {
+		this.lock.readLock().lock();
+		try {
+			return this.loaded || this.changedDuringRefresh != null;
+		}
+		finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	private boolean isLoaded() {
+		this.lock.readLock().lock();
+		try {
+			return this.loaded;
+		}
+		finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	private void ensureLoaded() {
+		if (!isLoaded()) {
+			synchronized (this.refreshLock) {
+				if (!isLoaded()) {
+					refresh();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Index facet rows, grouped by owner as the queries return them.
+	 */
+	private void index(List<OwnerFacetRow> rows) {
+		Map<Integer, List<OwnerFacetRow>> byOwner = new LinkedHashMap<>();
+		for (OwnerFacetRow row : rows) {
+			byOwner.computeIfAbsent(row.ownerId(), (id) -> new ArrayList<>()).add(row);
+		}
+		byOwner.forEach((ownerId, pets) -> {
+			this.all.add(ownerId);
+			add(this.byCity, pets.get(0).city(), ownerId);
+			Set<Integer> petIds = new HashSet<>();
+			LocalDate lastVisit = null;
+			for (OwnerFacetRow pet : pets) {
+				if (pet.petId() != null) {
+					petIds.add(pet.petId());
+					add(this.byPetType, pet.petType(), ownerId);
+				}
+				if (pet.lastVisit() != null && (lastVisit == null || pet.lastVisit().isAfter(lastVisit))) {
+					lastVisit = pet.lastVisit();
+				}
+			}
+			add(this.byPetCount, PetCount.of(petIds.size()), ownerId);
+			if (lastVisit != null) {
+				add(this.byLastVisit, YearMonth.from(lastVisit), ownerId);
+			}
+		});
+	}
+
+	private void unindex(int ownerId) {
+		this.all.remove(ownerId);
+		remove(this.byCity, ownerId);
+		remove(this.byPetType, ownerId);
+		remove(this.byPetCount, ownerId);
+		remove(this.byLastVisit, ownerId);
+	}
+
+	private static <K> void add(Map<K, RoaringBitmap> bitmaps, K key, int ownerId) {
+		if (key != null) {
+			bitmaps.computeIfAbsent(key, (k) -> new RoaringBitmap()).add(ownerId);
+		}
+	}
+
+	private static <K> void remove(Map<K, RoaringBitmap> bitmaps, int ownerId) {
+		bitmaps.values().removeIf((bitmap) -> bitmap.checkedRemove(ownerId) && bitmap.isEmpty());
+	}
+
+	private Map<VisitRecency, RoaringBitmap> byRecency(YearMonth now) {
+		Map<VisitRecency, List<RoaringBitmap>> months = new EnumMap<>(VisitRecency.class);
+		this.byLastVisit.forEach(
+				(month, ownerIds) -> months.computeIfAbsent(VisitRecency.of(month, now), (recency) -> new ArrayList<>())
+					.add(ownerIds));
+		Map<VisitRecency, RoaringBitmap> byRecency = new EnumMap<>(VisitRecency.class);
+		RoaringBitmap visited = new RoaringBitmap();
+		months.forEach((recency, ownerIds) -> {
+			RoaringBitmap union = FastAggregation.or(ownerIds.iterator());
+			byRecency.put(recency, union);
+			visited.or(union);
+		});
+		RoaringBitmap never = RoaringBitmap.andNot(this.all, visited);
+		if (!never.isEmpty()) {
+			byRecency.put(VisitRecency.NEVER, never);
+		}
+		return byRecency;
+	}
+
+	/**
+	 * Return the owners having any of the values of a facet, or {@code null} for all the
+	 * owners when no value is selected.
+	 */
+	private static <K> RoaringBitmap union(Map<K, RoaringBitmap> bitmaps, Collection<K> values) {
+		if (values.isEmpty()) {
+			return null;
+		}
+		RoaringBitmap union = new RoaringBitmap();
+		for (K value : values) {
+			RoaringBitmap ownerIds = bitmaps.get(value);
+			if (ownerIds != null) {
+				union.or(ownerIds);
+			}
+		}
+		return union;
+	}
+
+	/**
+	 * Intersect the owners of the selected facets, ignoring those with no selection.
+	 */
+	private RoaringBitmap and(RoaringBitmap... facets) {
+		RoaringBitmap result = this.all.clone();
+		for (RoaringBitmap facet : facets) {
+			if (facet != null) {
+				result.and(facet);
+			}
+		}
+		return result;
+	}
+
+	private static <K> Map<K, Integer> counts(Map<K, RoaringBitmap> bitmaps, RoaringBitmap matches) {
+		Map<K, Integer> counts = new LinkedHashMap<>();
+		bitmaps.forEach((value, ownerIds) -> counts.put(value, RoaringBitmap.andCardinality(ownerIds, matches)));
+		return counts;
+	}
+
+	/**
+	 * The facet values to filter the owners by, where an empty set does not filter.
+	 *
+	 * @param cities the cities, matched case-insensitively
+	 * @param petTypes the names of the pet types
+	 * @param petCounts the numbers of pets
+	 * @param visits the recencies of the last visit
+	 */
+	record Filter(Set<String> cities, Set<String> petTypes, Set<PetCount> petCounts, Set<VisitRecency> visits) {
+
+		static final Filter NONE = new Filter(Set.of(), Set.of(), Set.of(), Set.of());
+
+	}
+
+	/**
+	 * A page of the owners matching a filter, with the facet counts: for each value of a
+	 * facet, the number of owners having it among those matching the other facets.
+	 *
+	 * @param ownerIds the ids of the owners of the page, in increasing order
+	 * @param total the number of owners matching the filter
+	 * @param cities the counts by city
+	 * @param petTypes the counts by pet type name
+	 * @param petCounts the counts by number of pets
+	 * @param visits the counts by recency of the last visit
+	 */
+	record Facets(List<Integer> ownerIds, int total, Map<String, Integer> cities, Map<String, Integer> petTypes,
+			Map<PetCount, Integer> petCounts, Map<VisitRecency, Integer> visits) {
+
+	}
+
+	/**
+	 * The number of pets an owner has.
+	 */
+	enum PetCount {
+
+		NONE("no pets"), ONE("1 pet"), TWO("2 pets"), MANY("3 pets or more");
+
+		private final String label;
+
+		PetCount(String label) {
+			this.label = label;
+		}
+
+		public String getLabel() {
+			return this.label;
+		}
+
+		static PetCount of(int pets) {
+			return values()[Math.min(pets, MANY.ordinal())];
+		}
+
+	}
+
+	/**
+	 * How long ago an owner's last visit was, in calendar months.
+	 */
+	enum VisitRecency {
+
+		RECENT("in the last 3 months"), WITHIN_A_YEAR("3 to 12 months ago"), OLDER("over a year ago"), NEVER("never");
+
+		private final String label;
+
+		VisitRecency(String label) {
+			this.label = label;
+		}
+
+		public String getLabel() {
+			return this.label;
+		}
+
+		static VisitRecency of(YearMonth lastVisit, YearMonth now) {
+			if (!lastVisit.isBefore(now.minusMonths(2))) {
+				return RECENT;
+			}
+			return !lastVisit.isBefore(now.minusMonths(11)) ? WITHIN_A_YEAR : OLDER;
+		}
+
+	}
+
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDate;
+
+/**
+ * Projection of an owner's pet onto the facets of the {@link OwnerFacetIndex}.
+ *
+ * @param ownerId the owner id
+ * @param city the owner's city
+ * @param petId the pet id, or {@code null} if the owner has no pets
+ * @param petType the name of the pet's type, or {@code null} if the owner has no pets
+ * @param lastVisit the date of the pet's last visit, or {@code null} if it has none
+ */
+public record OwnerFacetRow(Integer ownerId, String city, Integer petId, String petType, LocalDate lastVisit) {
+
+}
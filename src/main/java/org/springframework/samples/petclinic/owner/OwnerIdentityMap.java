@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Request-scoped identity map in front of the {@link OwnerRepository} lookups by id, so
+ * that each {@link Owner} is loaded at most once per HTTP request however many
+ * {@code @ModelAttribute} methods and handlers ask for it.
+ * <p>
+ * An owner loaded with a richer fetch plan also answers lookups that need less of it:
+ * after {@link #findById(int)} has loaded the whole aggregate, {@link #findWithPetsById}
+ * and {@link #findWithoutPetsById} return the same instance. A lookup that needs more
+ * than what was loaded goes to the repository again and replaces the entry.
+ * <p>
+ * Lookups are counted in the {@code petclinic.owners.loads} counter, tagged with
+ * {@code result=hit} for the loads the map saved and {@code result=miss} for the ones
+ * that reached the database.
+ */
+@Component
+@RequestScope
+class OwnerIdentityMap {
+
+	private final OwnerRepository owners;
+
+	private final Map<Integer, Entry> entries = new HashMap<>();
+
+	private final Counter hits;
+
+	private final Counter misses;
+
+	OwnerIdentityMap(OwnerRepository owners, MeterRegistry registry) {
+		this.owners = owners;
+		this.hits = registry.counter("petclinic.owners.loads", "result", "hit");
+		this.misses = registry.counter("petclinic.owners.loads", "result", "miss");
+	}
+
+	/**
+	 * @see OwnerRepository#findById(Integer)
+	 */
+	Owner findById(int id) {
+		return find(id, FetchPlan.DETAILS, this.owners::findById);
+	}
+
+	/**
+	 * @see OwnerRepository#findWithPetsById(Integer)
+	 */
+	Owner findWithPetsById(int id) {
+		return find(id, FetchPlan.PETS, this.owners::findWithPetsById);
+	}
+
+	/**
+	 * @see OwnerRepository#findWithoutPetsById(Integer)
+	 */
+	Owner findWithoutPetsById(int id) {
+		return find(id, FetchPlan.OWNER, this.owners::findWithoutPetsById);
+	}
+
+	private Owner find(int id, FetchPlan plan, IntFunction<Owner> loader) {
+		Entry entry = this.entries.get(id);
+		if (entry != null && entry.plan().compareTo(plan) >= 0) {
+			this.hits.increment();
+			return entry.owner();
+		}
+		this.misses.increment();
+		Owner owner = loader.apply(id);
+		if (owner != null) {
+			this.entries.put(id, new Entry(owner, plan));
+		}
+		return owner;
+	}
+
+	/**
+	 * How much of the aggregate was loaded with an owner, from least to most.
+	 */
+	private enum FetchPlan {
+
+		OWNER, PETS, DETAILS
+
+	}
+
+	private record Entry(Owner owner, FetchPlan plan) {
+	}
+
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * In-memory index of the owners' last names, answering the last name typeahead without
+ * going to the database.
+ * <p>
+ * Each distinct last name, compared case-insensitively and spelled as first indexed, maps
+ * to the sorted array of the ids of the owners who bear it, in a sorted map that is
+ * searched by prefix. The index is read at startup and then updated incrementally, once
+ * their transaction has committed, by the commands that create or rename an owner.
+ */
+@Component
+class OwnerNameIndex {
+
+	private static final Comparator<Map.Entry<String, int[]>> BY_COUNT = Comparator.<Map.Entry<String, int[]>>comparingInt(
+			(entry) -> entry.getValue().length)
+		.reversed()
+		.thenComparing(Map.Entry::getKey, String.CASE_INSENSITIVE_ORDER);
+
+	private final OwnerRepository owners;
+
+	private final AtomicReference<Names> names = new AtomicReference<>();
+
+	private final Object refreshLock = new Object();
+
+	private List<OwnerNameChangedEvent> changedDuringRefresh;
+
+	OwnerNameIndex(OwnerRepository owners) {
+		this.owners = owners;
+	}
+
+	/**
+	 * Suggest the last names starting with a prefix, most common first.
+	 * @param prefix the prefix, matched case-insensitively; an empty prefix matches all
+	 * the last names
+	 * @param limit the maximum number of suggestions
+	 * @return the suggestions, sorted by decreasing number of owners and then by name
+	 */
+	List<Suggestion> suggest(String prefix, int limit) {
+		NavigableMap<String, int[]> byName = names().byName;
+		NavigableMap<String, int[]> matches = prefix.isEmpty() ? byName
+				: byName.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+		// keep the most common names in a heap whose head is the least common kept
+		PriorityQueue<Map.Entry<String, int[]>> top = new PriorityQueue<>(limit + 1, BY_COUNT.reversed());
+		for (Map.Entry<String, int[]> entry : matches.entrySet()) {
+			top.add(entry);
+			if (top.size() > limit) {
+				top.poll();
+			}
+		}
+		List<Map.Entry<String, int[]>> sorted = new ArrayList<>(top);
+		sorted.sort(BY_COUNT);
+		return sorted.stream().map((entry) -> Suggestion.of(entry.getKey(), entry.getValue(), limit)).toList();
+	}
+
+	/**
+	 * Return whether any last name starts with a prefix.
+	 * @param prefix the prefix, matched case-insensitively
+	 * @return {@code true} if an owner's last name starts with the prefix, or if the
+	 * prefix is empty and there are owners
+	 */
+	boolean hasPrefix(String prefix) {
+		NavigableMap<String, int[]> byName = names().byName;
+		String ceiling = byName.ceilingKey(prefix);
+		return ceiling != null && ceiling.regionMatches(true, 0, prefix, 0, prefix.length());
+	}
+
+	/**
+	 * Count the owners whose last name starts with a prefix.
+	 * @param prefix the prefix, matched case-insensitively; an empty prefix matches all
+	 * the owners
+	 * @return the number of owners indexed with a matching last name
+	 */
+	int count(String prefix) {
+		Names current = names();
+		if (prefix.isEmpty()) {
+			return current.byId.size();
+		}
+		int count = 0;
+		for (int[] ids : current.byName.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+			count += ids.length;
+		}
+		return count;
+	}
+
+	/**
+	 * Reload the last names from the data store and swap them in. The names changed while
+	 * they are read are indexed again into the new names before the swap, since the read
+	 * may have missed them.
+	 */
+	@EventListener({ ApplicationReadyEvent.class, OwnersImportedEvent.class })
+	public void refresh() {
+		synchronized (this.refreshLock) {
+			synchronized (this) {
+				this.changedDuringRefresh = new ArrayList<>();
+			}
+			Names loaded = load();
+			synchronized (this) {
+				this.changedDuringRefresh.forEach((event) -> index(loaded, event));
+				this.changedDuringRefresh = null;
+				this.names.set(loaded);
+			}
+		}
+	}
+
+	/**
+	 * Index the last name an owner was created or renamed with.
+	 */
+	@TransactionalEventListener
+	public synchronized void ownerNameChanged(OwnerNameChangedEvent event) {
+		if (event.ownerId() == null) {
+			return;
+		}
+		if (this.changedDuringRefresh != null) {
+			this.changedDuringRefresh.add(event);
+		}
+		Names current = this.names.get();
+		if (current != null) {
+			index(current, event);
+		}
+		// otherwise not loaded yet, the load reads the committed name
+	}
+
+	private static void index(Names names, OwnerNameChangedEvent event) {
+		String previous = names.byId.put(event.ownerId(), event.lastName());
+		if (event.lastName().equals(previous)) {
+			return;
+		}
+		if (previous != null) {
+			names.byName.computeIfPresent(previous, (name, ids) -> without(ids, event.ownerId()));
+		}
+		names.byName.merge(event.lastName(), new int[] { event.ownerId() }, (ids, id) -> with(ids, id[0]));
+	}
+
+	private Names names() {
+		Names current = this.names.get();
+		if (current == null) {
+			synchronized (this.refreshLock) {
+				if (this.names.get() == null) {
+					refresh();
+				}
+			}
+			current = this.names.get();
+		}
+		return current;
+	}
+
+	private Names load() {
+		Names loaded = new Names();
+		for (OwnerName owner : this.owners.findAllNames()) {
+			loaded.byId.put(owner.id(), owner.lastName());
+			loaded.byName.merge(owner.lastName(), new int[] { owner.id() }, (ids, id) -> with(ids, id[0]));
+		}
+		return loaded;
+	}
+
+	private static int[] with(int[] ids, int id) {
+		int index = Arrays.binarySearch(ids, id);
+		if (index >= 0) {
+			return ids;
+		}
+		int insertion = -index - 1;
+		int[] added = new int[ids.length + 1];
+		System.arraycopy(ids, 0, added, 0, insertion);
+		added[insertion] = id;
+		System.arraycopy(ids, insertion, added, insertion + 1, ids.length - insertion);
+		return added;
+	}
+
+	private static int[] without(int[] ids, int id) {
+		int index = Arrays.binarySearch(ids, id);
+		if (index < 0) {
+			return ids;
+		}
+		if (ids.length == 1) {
+			// drops the name from the index
+			return null;
+		}
+		int[] removed = new int[ids.length - 1];
+		System.arraycopy(ids, 0, removed, 0, index);
+		System.arraycopy(ids, index + 1, removed, index, ids.length - index - 1);
+		return removed;
+	}
+
+	/**
+	 * A suggested last name.
+	 *
+	 * @param lastName the last name
+	 * @param count the number of owners bearing it
+	 * @param ownerIds the ids of the first of these owners, at most as many as
+	 * suggestions were asked for
+	 */
+	record Suggestion(String lastName, int count, List<Integer> ownerIds) {
+
+		static Suggestion of(String lastName, int[] ids, int limit) {
+			return new Suggestion(lastName, ids.length,
+					Arrays.stream(ids, 0, Math.min(ids.length, limit)).boxed().toList());
+		}
+
+	}
+
+	/**
+	 * The indexed last names, by name and by owner id.
+	 */
+	private static final class Names {
+
+		private final ConcurrentSkipListMap<String, int[]> byName = new ConcurrentSkipListMap<>(
+				String.CASE_INSENSITIVE_ORDER);
+
+		private final Map<Integer, String> byId = new ConcurrentHashMap<>();
+
+	}
+
+}
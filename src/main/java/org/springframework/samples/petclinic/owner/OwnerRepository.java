@@ -15,15 +15,24 @@
  */
 package org.springframework.samples.petclinic.owner;
 
+import java.util.Collection;
 import java.util.List;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.Repository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.QueryHint;
+
 /**
  * Repository class for <code>Owner</code> domain objects All method names are compliant
  * with Spring Data naming conventions so this interface can easily be extended for Spring
@@ -38,10 +47,12 @@ import org.springframework.transaction.annotation.Transactional;
 public interface OwnerRepository extends Repository<Owner, Integer> {
 
 	/**
-	 * Retrieve all {@link PetType}s from the data store.
+	 * Retrieve all {@link PetType}s from the data store. The result is kept in the query
+	 * cache.
 	 * @return a Collection of {@link PetType}s.
 	 */
 	@Query("SELECT ptype FROM PetType ptype ORDER BY ptype.name")
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
 	@Transactional(readOnly = true)
 	List<PetType> findPetTypes();
 
@@ -58,14 +69,245 @@ public interface OwnerRepository extends Repository<Owner, Integer> {
 	Page<Owner> findByLastName(@Param("lastName") String lastName, Pageable pageable);
 
 	/**
-	 * Retrieve an {@link Owner} from the data store by id.
+	 * Retrieve a {@link Slice} of the {@link OwnerSummary owner summaries} whose last
+	 * name <i>starts</i> with the given name, ordered by last name and id. Each summary
+	 * carries the owner's pet names aggregated in the same statement, so the owners list
+	 * is read with a single query that does not load pets or visits.
+	 * <p>
+	 * Unlike {@link #findByLastName(String, Pageable)} this issues no count query: the
+	 * slice reads one owner past the requested page to find out whether there are more.
+	 * @param lastName Value to search for
+	 * @param pageable the page to read
+	 * @return a Slice of matching owners (empty if none found)
+	 * @see #countByLastName(String)
+	 */
+	@Query("SELECT new org.springframework.samples.petclinic.owner.OwnerSummary(owner.id, owner.firstName, "
+			+ "owner.lastName, owner.address, owner.city, owner.telephone, "
+			+ "LISTAGG(pet.name, ', ') WITHIN GROUP (ORDER BY pet.name)) "
+			+ "FROM Owner owner LEFT JOIN owner.pets pet WHERE owner.lastName LIKE :lastName% "
+			+ "GROUP BY owner.id, owner.firstName, owner.lastName, owner.address, owner.city, owner.telephone "
+			+ "ORDER BY owner.lastName, owner.id")
+	@Transactional(readOnly = true)
+	Slice<OwnerSummary> findSliceByLastName(@Param("lastName") String lastName, Pageable pageable);
+
+	/**
+	 * Count the {@link Owner}s whose last name <i>starts</i> with the given name.
+	 * @param lastName Value to search for
+	 * @return the number of matching {@link Owner}s
+	 */
+	@Query("SELECT COUNT(owner) FROM Owner owner WHERE owner.lastName LIKE :lastName%")
+	@Transactional(readOnly = true)
+	long countByLastName(@Param("lastName") String lastName);
+
+	/**
+	 * Retrieve the last names of all the {@link Owner}s, without loading the entities.
+	 * @return the id and last name of every owner
+	 * @see OwnerNameIndex
+	 */
+	@Query("SELECT new org.springframework.samples.petclinic.owner.OwnerName(owner.id, owner.lastName) "
+			+ "FROM Owner owner")
+	@Transactional(readOnly = true)
+	List<OwnerName> findAllNames();
+
+	/**
+	 * Retrieve the facets of all the {@link Owner}s: one row per pet, with the date of
+	 * its last visit, or a single row without a pet for an owner who has none.
+	 * @return the facet rows of every owner
+	 * @see OwnerFacetIndex
+	 */
+	@Query("SELECT new org.springframework.samples.petclinic.owner.OwnerFacetRow(owner.id, owner.city, pet.id, "
+			+ "type.name, MAX(visit.date)) FROM Owner owner LEFT JOIN owner.pets pet LEFT JOIN pet.type type "
+			+ "LEFT JOIN pet.visits visit GROUP BY owner.id, owner.city, pet.id, type.name")
+	@Transactional(readOnly = true)
+	List<OwnerFacetRow> findAllFacets();
+
+	/**
+	 * Retrieve the facets of an {@link Owner}, like {@link #findAllFacets()}.
+	 * @param id the id of the owner
+	 * @return the facet rows of the owner, empty if there is no owner with that id
+	 */
+	@Query("SELECT new org.springframework.samples.petclinic.owner.OwnerFacetRow(owner.id, owner.city, pet.id, "
+			+ "type.name, MAX(visit.date)) FROM Owner owner LEFT JOIN owner.pets pet LEFT JOIN pet.type type "
+			+ "LEFT JOIN pet.visits visit WHERE owner.id = :id GROUP BY owner.id, owner.city, pet.id, type.name")
+	@Transactional(readOnly = true)
+	List<OwnerFacetRow> findFacetsById(@Param("id") Integer id);
+
+	/**
+	 * Retrieve the {@link OwnerSummary owner summaries} of the given {@link Owner}s,
+	 * ordered by id.
+	 * @param ids the ids of the owners
+	 * @return the summaries of the owners that exist
+	 */
+	@Query("SELECT new org.springframework.samples.petclinic.owner.OwnerSummary(owner.id, owner.firstName, "
+			+ "owner.lastName, owner.address, owner.city, owner.telephone, "
+			+ "LISTAGG(pet.name, ', ') WITHIN GROUP (ORDER BY pet.name)) "
+			+ "FROM Owner owner LEFT JOIN owner.pets pet WHERE owner.id IN :ids "
+			+ "GROUP BY owner.id, owner.firstName, owner.lastName, owner.address, owner.city, owner.telephone "
+			+ "ORDER BY owner.id")
+	@Transactional(readOnly = true)
+	List<OwnerSummary> findSummariesByIdIn(@Param("ids") Collection<Integer> ids);
+
+	/**
+	 * Retrieve the {@link OwnerSummary owner summaries} whose last name <i>starts</i>
+	 * with the given name and that sort after the given {@code (lastName, id)} position,
+	 * ordered by last name and id.
+	 * <p>
+	 * This is a keyset (seek) query: it is answered by a range scan on the
+	 * {@code owners_last_name} index, so its cost does not depend on how deep into the
+	 * results the position is and no separate count is needed.
+	 * @param lastName Value to search for
+	 * @param afterLastName the last name of the position to read after
+	 * @param afterId the id of the position to read after
+	 * @param limit the maximum number of owners to return
+	 * @return the matching owners in ascending order
+	 */
+	@Query("SELECT new org.springframework.samples.petclinic.owner.OwnerSummary(owner.id, owner.firstName, "
+			+ "owner.lastName, owner.address, owner.city, owner.telephone, "
+			+ "LISTAGG(pet.name, ', ') WITHIN GROUP (ORDER BY pet.name)) "
+			+ "FROM Owner owner LEFT JOIN owner.pets pet WHERE owner.lastName LIKE :lastName% "
+			+ "AND (owner.lastName, owner.id) > (:afterLastName, :afterId) "
+			+ "GROUP BY owner.id, owner.firstName, owner.lastName, owner.address, owner.city, owner.telephone "
+			+ "ORDER BY owner.lastName, owner.id")
+	@Transactional(readOnly = true)
+	List<OwnerSummary> findByLastNameAfter(@Param("lastName") String lastName,
+			@Param("afterLastName") String afterLastName, @Param("afterId") int afterId, Limit limit);
+
+	/**
+	 * Retrieve the {@link OwnerSummary owner summaries} whose last name <i>starts</i>
+	 * with the given name and that sort before the given {@code (lastName, id)} position.
+	 * This is the backward counterpart of {@link #findByLastNameAfter}, so the owners are
+	 * returned in <i>descending</i> order starting closest to the position.
+	 * @param lastName Value to search for
+	 * @param beforeLastName the last name of the position to read before
+	 * @param beforeId the id of the position to read before
+	 * @param limit the maximum number of owners to return
+	 * @return the matching owners in descending order
+	 */
+	@Query("SELECT new org.springframework.samples.petclinic.owner.OwnerSummary(owner.id, owner.firstName, "
+			+ "owner.lastName, owner.address, owner.city, owner.telephone, "
+			+ "LISTAGG(pet.name, ', ') WITHIN GROUP (ORDER BY pet.name)) "
+			+ "FROM Owner owner LEFT JOIN owner.pets pet WHERE owner.lastName LIKE :lastName% "
+			+ "AND (owner.lastName, owner.id) < (:beforeLastName, :beforeId) "
+			+ "GROUP BY owner.id, owner.firstName, owner.lastName, owner.address, owner.city, owner.telephone "
+			+ "ORDER BY owner.lastName DESC, owner.id DESC")
+	@Transactional(readOnly = true)
+	List<OwnerSummary> findByLastNameBefore(@Param("lastName") String lastName,
+			@Param("beforeLastName") String beforeLastName, @Param("beforeId") int beforeId, Limit limit);
+
+	/**
+	 * Retrieve an {@link Owner} from the data store by id, together with its pets, their
+	 * types and their visits ({@link Owner#DETAILS_GRAPH}).
 	 * @param id the id to search for
 	 * @return the {@link Owner} if found
 	 */
-	@Query("SELECT owner FROM Owner owner left join fetch owner.pets WHERE owner.id =:id")
+	@EntityGraph(Owner.DETAILS_GRAPH)
+	@Query("SELECT owner FROM Owner owner WHERE owner.id =:id")
 	@Transactional(readOnly = true)
 	Owner findById(@Param("id") Integer id);
 
+	/**
+	 * Retrieve an {@link Owner} from the data store by id, together with its pets and
+	 * their types but without their visits ({@link Owner#PETS_GRAPH}).
+	 * @param id the id to search for
+	 * @return the {@link Owner} if found
+	 */
+	@EntityGraph(Owner.PETS_GRAPH)
+	@Query("SELECT owner FROM Owner owner WHERE owner.id =:id")
+	@Transactional(readOnly = true)
+	Owner findWithPetsById(@Param("id") Integer id);
+
+	/**
+	 * Retrieve an {@link Owner} from the data store by id without its pets, which stay
+	 * unloaded.
+	 * @param id the id to search for
+	 * @return the {@link Owner} if found
+	 */
+	@Query("SELECT owner FROM Owner owner WHERE owner.id =:id")
+	@Transactional(readOnly = true)
+	Owner findWithoutPetsById(@Param("id") Integer id);
+
+	/**
+	 * Retrieve the {@link Owner#getVersion() version} of an {@link Owner} without loading
+	 * the owner.
+	 * @param id the id to search for
+	 * @return the version of the owner, or {@code null} if there is no owner with that id
+	 */
+	@Query("SELECT owner.version FROM Owner owner WHERE owner.id =:id")
+	@Transactional(readOnly = true)
+	Integer findVersionById(@Param("id") Integer id);
+
+	/**
+	 * Retrieve the {@link Owner#getVersion() version} of an {@link Owner} and the number
+	 * of their pets without loading the owner.
+	 * @param id the id to search for
+	 * @return the version and pet count of the owner, or {@code null} if there is no
+	 * owner with that id
+	 */
+	@Query("SELECT new org.springframework.samples.petclinic.owner.OwnerVersion(owner.version, COUNT(pet)) "
+			+ "FROM Owner owner LEFT JOIN owner.pets pet WHERE owner.id = :id GROUP BY owner.id, owner.version")
+	@Transactional(readOnly = true)
+	OwnerVersion findVersionAndPetCountById(@Param("id") Integer id);
+
+	/**
+	 * Retrieve a page of the {@link PetSummary pet summaries} of an {@link Owner},
+	 * ordered by name, without loading the pets' visits.
+	 * @param ownerId the id of the owner
+	 * @param pageable the page to read; its sort is ignored
+	 * @return the pets of the page
+	 */
+	@Query("SELECT new org.springframework.samples.petclinic.owner.PetSummary(pet.id, pet.name, pet.birthDate, "
+			+ "type.name, COUNT(visit), MAX(visit.date)) FROM Owner owner JOIN owner.pets pet LEFT JOIN pet.type type "
+			+ "LEFT JOIN pet.visits visit WHERE owner.id = :ownerId "
+			+ "GROUP BY pet.id, pet.name, pet.birthDate, type.name ORDER BY pet.name, pet.id")
+	@Transactional(readOnly = true)
+	List<PetSummary> findPetSummaries(@Param("ownerId") Integer ownerId, Pageable pageable);
+
+	/**
+	 * Increment the {@link Owner#getVersion() version} of an {@link Owner} after a change
+	 * to its pets or visits that did not go through the owner entity. The persistence
+	 * context is cleared afterwards, so that an owner loaded by the same transaction is
+	 * not later written with its previous version.
+	 * @param id the id of the owner
+	 * @return the number of updated owners, {@code 0} if there is no owner with that id
+	 */
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("UPDATE Owner owner SET owner.version = owner.version + 1 WHERE owner.id = :id")
+	@Transactional
+	int incrementVersion(@Param("id") int id);
+
+	/**
+	 * Update the contact details (name, address, city and telephone) of an existing
+	 * {@link Owner} with a single-row UPDATE, incrementing its version. Unlike
+	 * {@link #save(Owner)} this neither reads the owner back nor cascades to its pets and
+	 * visits.
+	 * @param owner the owner holding the id to update and the new contact details
+	 * @return the number of updated owners, {@code 0} if there is no owner with that id
+	 */
+	@Modifying
+	@Query("UPDATE Owner owner SET owner.firstName = :#{#owner.firstName}, owner.lastName = :#{#owner.lastName}, "
+			+ "owner.address = :#{#owner.address}, owner.city = :#{#owner.city}, "
+			+ "owner.telephone = :#{#owner.telephone}, owner.version = owner.version + 1 "
+			+ "WHERE owner.id = :#{#owner.id}")
+	@Transactional
+	int updateContactDetails(@Param("owner") Owner owner);
+
+	/**
+	 * Update the name, birth date and type of an existing {@link Pet} with a single-row
+	 * UPDATE, provided the pet belongs to the given owner. A pet without a type keeps its
+	 * current one. The pet's visits are not touched, and only the cached data of the
+	 * {@code pets} table is invalidated.
+	 * @param ownerId the id of the owner the pet must belong to
+	 * @param pet the pet holding the id to update and its new details
+	 * @return the number of updated pets, {@code 0} if the owner has no pet with that id
+	 */
+	@Modifying
+	@Query(value = "UPDATE pets SET name = :#{#pet.name}, birth_date = :#{#pet.birthDate}, "
+			+ "type_id = COALESCE(:#{#pet.type?.id}, type_id) WHERE id = :#{#pet.id} AND owner_id = :ownerId",
+			nativeQuery = true)
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "pets"))
+	@Transactional
+	int updatePet(@Param("ownerId") int ownerId, @Param("pet") Pet pet);
+
 	/**
 	 * Save an {@link Owner} to the data store, either inserting or updating it.
 	 * @param owner the {@link Owner} to save
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.function.Supplier;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * The write side of the owner aggregate: each user command runs in a single transaction,
+ * so the repository calls it makes share one pooled connection instead of acquiring one
+ * each.
+ * <p>
+ * Every command that changes an existing owner, its pets or their visits increments the
+ * owner's {@link Owner#getVersion() version}, which validates conditional requests for
+ * the owner. Every command publishes an {@link OwnerChangedEvent} for the owner it
+ * created or changed, and the commands that create an owner or change their contact
+ * details also publish an {@link OwnerNameChangedEvent}.
+ * <p>
+ * Every command is timed in the {@code petclinic.owners.commands} timer, tagged with the
+ * name of the command.
+ *
+ * @see OwnerRepository
+ * @see VisitRepository
+ */
+@Service
+public class OwnerService {
+
+	private final OwnerRepository owners;
+
+	private final VisitRepository visits;
+
+	private final ApplicationEventPublisher events;
+
+	private final Timer createOwnerTimer;
+
+	private final Timer updateOwnerTimer;
+
+	private final Timer addPetTimer;
+
+	private final Timer updatePetTimer;
+
+	private final Timer bookVisitTimer;
+
+	public OwnerService(OwnerRepository owners, VisitRepository visits, MeterRegistry registry,
+			ApplicationEventPublisher events) {
+		this.owners = owners;
+		this.visits = visits;
+		this.events = events;
+		this.createOwnerTimer = timer(registry, "create-owner");
+		this.updateOwnerTimer = timer(registry, "update-owner");
+		this.addPetTimer = timer(registry, "add-pet");
+		this.updatePetTimer = timer(registry, "update-pet");
+		this.bookVisitTimer = timer(registry, "book-visit");
+	}
+
+	private static Timer timer(MeterRegistry registry, String command) {
+		return Timer.builder("petclinic.owners.commands")
+			.description("Time taken by the owner commands")
+			.tag("command", command)
+			.register(registry);
+	}
+
+	/**
+	 * Create a new {@link Owner}.
+	 * @param owner the owner to create, which receives its generated id
+	 */
+	@Transactional
+	public void createOwner(Owner owner) {
+		this.createOwnerTimer.record(() -> this.owners.save(owner));
+		ownerChanged(owner.getId());
+		this.events.publishEvent(new OwnerNameChangedEvent(owner.getId(), owner.getLastName()));
+	}
+
+	/**
+	 * Update the contact details of an existing {@link Owner}.
+	 * @param owner the owner holding the id to update and the new contact details
+	 * @throws IllegalArgumentException if there is no owner with that id
+	 * @see OwnerRepository#updateContactDetails(Owner)
+	 */
+	@Transactional
+	public void updateOwner(Owner owner) {
+		record(this.updateOwnerTimer, () -> this.owners.updateContactDetails(owner), "Owner ID not found: %s",
+				owner.getId());
+		ownerChanged(owner.getId());
+		this.events.publishEvent(new OwnerNameChangedEvent(owner.getId(), owner.getLastName()));
+	}
+
+	/**
+	 * Add a new {@link Pet} to an existing {@link Owner}, unless the owner already has a
+	 * pet with that name.
+	 * @param ownerId the id of the owner
+	 * @param pet the pet to add, which receives its generated id
+	 * @return whether the pet was added, which it is not when its name is already taken
+	 * @throws IllegalArgumentException if there is no owner with that id
+	 */
+	@Transactional
+	public boolean addPet(int ownerId, Pet pet) {
+		boolean added = this.addPetTimer.record(() -> {
+			Owner owner = this.owners.findWithPetsById(ownerId);
+			if (owner == null) {
+				throw new IllegalArgumentException("Owner ID not found: " + ownerId);
+			}
+			if (owner.getPet(pet.getName(), true) != null) {
+				return false;
+			}
+			owner.addPet(pet);
+			return true;
+		});
+		if (added) {
+			ownerChanged(ownerId);
+		}
+		return added;
+	}
+
+	/**
+	 * Update the name, birth date and type of an existing {@link Pet}, unless the owner
+	 * already has another pet with that name.
+	 * @param ownerId the id of the owner the pet must belong to
+	 * @param pet the pet holding the id to update and its new details
+	 * @return whether the pet was updated, which it is not when its name is already taken
+	 * @throws IllegalArgumentException if the owner has no pet with that id
+	 * @see OwnerRepository#updatePet(int, Pet)
+	 */
+	@Transactional
+	public boolean updatePet(int ownerId, Pet pet) {
+		Owner owner = this.owners.findWithPetsById(ownerId);
+		if (owner == null) {
+			throw new IllegalArgumentException("Owner ID not found: " + ownerId);
+		}
+		Pet existing = owner.getPet(pet.getName());
+		if (existing != null && !existing.getId().equals(pet.getId())) {
+			return false;
+		}
+		record(this.updatePetTimer, () -> this.owners.updatePet(ownerId, pet), "Pet ID %s not found for owner ID %s",
+				pet.getId(), ownerId);
+		this.owners.incrementVersion(ownerId);
+		ownerChanged(ownerId);
+		return true;
+	}
+
+	/**
+	 * Book a {@link Visit} for a pet.
+	 * @param ownerId the id of the owner the pet must belong to
+	 * @param petId the id of the pet
+	 * @param visit the visit to book
+	 * @throws IllegalArgumentException if the owner has no pet with that id
+	 * @see VisitRepository#addVisit
+	 */
+	@Transactional
+	public void bookVisit(int ownerId, int petId, Visit visit) {
+		record(this.bookVisitTimer, () -> this.visits.addVisit(ownerId, petId, visit.getDate(), visit.getDescription()),
+				"Pet ID %s not found for owner ID %s", petId, ownerId);
+		this.owners.incrementVersion(ownerId);
+		ownerChanged(ownerId);
+	}
+
+	/**
+	 * Tell the listeners that an owner has changed, which they see once the transaction
+	 * has committed.
+	 * @see OwnerDetailsCache
+	 */
+	private void ownerChanged(Integer ownerId) {
+		this.events.publishEvent(new OwnerChangedEvent(ownerId));
+	}
+
+	/**
+	 * Time an update command and fail if it did not update any row.
+	 */
+	private static void record(Timer timer, Supplier<Integer> command, String notFound, Object... args) {
+		int updated = timer.record(command);
+		if (updated == 0) {
+			throw new IllegalArgumentException(notFound.formatted(args));
+		}
+	}
+
+}
@@ -44,119 +44,123 @@ class PetController {
 
 	private static final String VIEWS_PETS_CREATE_OR_UPDATE_FORM = "pets/createOrUpdatePetForm";
 
-	private final OwnerRepository owners;
+	private final PetTypeRegistry petTypes;
 
-	public PetController(OwnerRepository owners) {
-		this.owners = owners;
+	private final OwnerIdentityMap identityMap;
+
+	private final OwnerService ownerService;
+
+	public PetController(PetTypeRegistry petTypes, OwnerIdentityMap identityMap, OwnerService ownerService) {
+		this.petTypes = petTypes;
+		this.identityMap = identityMap;
+		this.ownerService = ownerService;
 	}
 
 	@ModelAttribute("types")
 	public Collection<PetType> populatePetTypes() {
-		return this.owners.findPetTypes();
-	}
-
-	@ModelAttribute("owner")
-	public Owner findOwner(@PathVariable("ownerId") int ownerId) {
-
-		Owner owner = this.owners.findById(ownerId);
-		if (owner == null) {
-			throw new IllegalArgumentException("Owner ID not found: " + ownerId);
-		}
-		return owner;
+		return this.petTypes.getPetTypes();
 	}
 
+	/**
+	 * The pet the form binds to. An edited pet is not loaded: the form posts all of its
+	 * updatable fields and {@link OwnerRepository#updatePet} writes only those, so the
+	 * pet only needs its id.
+	 */
 	@ModelAttribute("pet")
-	public Pet findPet(@PathVariable("ownerId") int ownerId,
-			@PathVariable(name = "petId", required = false) Integer petId) {
-
-		if (petId == null) {
-			return new Pet();
-		}
-
-		Owner owner = this.owners.findById(ownerId);
-		if (owner == null) {
-			throw new IllegalArgumentException("Owner ID not found: " + ownerId);
-		}
-		return owner.getPet(petId);
-	}
-
-	@InitBinder("owner")
-	public void initOwnerBinder(WebDataBinder dataBinder) {
-		dataBinder.setDisallowedFields("id");
+	public Pet findPet(@PathVariable(name = "petId", required = false) Integer petId) {
+		Pet pet = new Pet();
+		pet.setId(petId);
+		return pet;
 	}
 
 	@InitBinder("pet")
 	public void initPetBinder(WebDataBinder dataBinder) {
+		dataBinder.setDisallowedFields("id");
 		dataBinder.setValidator(new PetValidator());
 	}
 
 	@GetMapping("/pets/new")
-	public String initCreationForm(Owner owner, ModelMap model) {
+	public String initCreationForm(@PathVariable("ownerId") int ownerId, ModelMap model) {
+		Owner owner = findOwner(ownerId);
 		Pet pet = new Pet();
 		owner.addPet(pet);
+		model.put("owner", owner);
 		model.put("pet", pet);
 		return VIEWS_PETS_CREATE_OR_UPDATE_FORM;
 	}
 
+	/**
+	 * Add the pet in a single transaction, which loads the owner to check the pet's name:
+	 * the owner is only loaded here to render the form again.
+	 */
 	@PostMapping("/pets/new")
-	public String processCreationForm(Owner owner, @Valid Pet pet, BindingResult result, ModelMap model,
-			RedirectAttributes redirectAttributes) {
-		if (StringUtils.hasText(pet.getName()) && pet.isNew() && owner.getPet(pet.getName(), true) != null) {
-			result.rejectValue("name", "duplicate", "already exists");
-		}
-
+	public String processCreationForm(@PathVariable("ownerId") int ownerId, @Valid Pet pet, BindingResult result,
+			ModelMap model, RedirectAttributes redirectAttributes) {
 		LocalDate currentDate = LocalDate.now();
 		if (pet.getBirthDate() != null && pet.getBirthDate().isAfter(currentDate)) {
 			result.rejectValue("birthDate", "typeMismatch.birthDate");
 		}
 
-		owner.addPet(pet);
-		if (result.hasErrors()) {
-			model.put("pet", pet);
-			return VIEWS_PETS_CREATE_OR_UPDATE_FORM;
+		if (!result.hasErrors() && this.ownerService.addPet(ownerId, pet)) {
+			redirectAttributes.addFlashAttribute("message", "New Pet has been Added");
+			return "redirect:/owners/{ownerId}";
 		}
 
-		this.owners.save(owner);
-		redirectAttributes.addFlashAttribute("message", "New Pet has been Added");
-		return "redirect:/owners/{ownerId}";
+		Owner owner = findOwner(ownerId);
+		if (StringUtils.hasText(pet.getName()) && owner.getPet(pet.getName(), true) != null) {
+			result.rejectValue("name", "duplicate", "already exists");
+		}
+		owner.addPet(pet);
+		model.put("owner", owner);
+		model.put("pet", pet);
+		return VIEWS_PETS_CREATE_OR_UPDATE_FORM;
 	}
 
 	@GetMapping("/pets/{petId}/edit")
-	public String initUpdateForm(Owner owner, @PathVariable("petId") int petId, ModelMap model,
-			RedirectAttributes redirectAttributes) {
-		Pet pet = owner.getPet(petId);
-		model.put("pet", pet);
+	public String initUpdateForm(@PathVariable("ownerId") int ownerId, @PathVariable("petId") int petId,
+			ModelMap model) {
+		Owner owner = findOwner(ownerId);
+		model.put("owner", owner);
+		model.put("pet", owner.getPet(petId));
 		return VIEWS_PETS_CREATE_OR_UPDATE_FORM;
 	}
 
+	/**
+	 * Update the pet in a single transaction, which loads the owner to check the pet's
+	 * name: the owner is only loaded here to render the form again.
+	 */
 	@PostMapping("/pets/{petId}/edit")
-	public String processUpdateForm(@Valid Pet pet, BindingResult result, Owner owner, ModelMap model,
-			RedirectAttributes redirectAttributes) {
+	public String processUpdateForm(@Valid Pet pet, BindingResult result, @PathVariable("ownerId") int ownerId,
+			ModelMap model, RedirectAttributes redirectAttributes) {
+		LocalDate currentDate = LocalDate.now();
+		if (pet.getBirthDate() != null && pet.getBirthDate().isAfter(currentDate)) {
+			result.rejectValue("birthDate", "typeMismatch.birthDate");
+		}
 
-		String petName = pet.getName();
+		if (!result.hasErrors() && this.ownerService.updatePet(ownerId, pet)) {
+			redirectAttributes.addFlashAttribute("message", "Pet details has been edited");
+			return "redirect:/owners/{ownerId}";
+		}
 
+		Owner owner = findOwner(ownerId);
 		// checking if the pet name already exist for the owner
-		if (StringUtils.hasText(petName)) {
-			Pet existingPet = owner.getPet(petName.toLowerCase(), false);
-			if (existingPet != null && existingPet.getId() != pet.getId()) {
+		if (StringUtils.hasText(pet.getName())) {
+			Pet existingPet = owner.getPet(pet.getName());
+			if (existingPet != null && !existingPet.getId().equals(pet.getId())) {
 				result.rejectValue("name", "duplicate", "already exists");
 			}
 		}
+		model.put("owner", owner);
+		model.put("pet", pet);
+		return VIEWS_PETS_CREATE_OR_UPDATE_FORM;
+	}
 
-		LocalDate currentDate = LocalDate.now();
-		if (pet.getBirthDate() != null && pet.getBirthDate().isAfter(currentDate)) {
-			result.rejectValue("birthDate", "typeMismatch.birthDate");
-		}
-
-		if (result.hasErrors()) {
-			model.put("pet", pet);
-			return VIEWS_PETS_CREATE_OR_UPDATE_FORM;
+	private Owner findOwner(int ownerId) {
+		Owner owner = this.identityMap.findWithPetsById(ownerId);
+		if (owner == null) {
+			throw new IllegalArgumentException("Owner ID not found: " + ownerId);
 		}
-
-		owner.addPet(pet);
-		this.owners.save(owner);
-		redirectAttributes.addFlashAttribute("message", "Pet details has been edited");
-		return "redirect:/owners/{ownerId}";
+		return owner;
 	}
 
 }
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDate;
+
+/**
+ * Read model for a pet on a page of an owner's pets: the pet with the number and last
+ * date of their visits, but not the visits themselves, which are read through the
+ * {@link VisitTimeline}.
+ *
+ * @param id the pet id
+ * @param name the pet's name
+ * @param birthDate the pet's birth date
+ * @param type the name of the pet's type
+ * @param visitCount the number of visits of the pet
+ * @param lastVisit the date of the pet's last visit, or {@code null} if it has none
+ */
+public record PetSummary(Integer id, String name, LocalDate birthDate, String type, Long visitCount,
+		LocalDate lastVisit) {
+
+}
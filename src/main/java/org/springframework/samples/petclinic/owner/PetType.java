@@ -15,16 +15,21 @@
  */
 package org.springframework.samples.petclinic.owner;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.samples.petclinic.model.NamedEntity;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.Table;
 
 /**
  * @author Juergen Hoeller Can be Cat, Dog, Hamster...
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "pet-types")
 @Table(name = "types")
+@EntityListeners(PetTypeRegistry.RefreshListener.class)
 public class PetType extends NamedEntity {
 
 }
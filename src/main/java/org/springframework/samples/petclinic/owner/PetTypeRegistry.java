@@ -0,0 +1,143 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * In-memory registry of the {@link PetType} reference data, indexed by id and by name.
+ * <p>
+ * The pet types are read once at startup into an immutable snapshot which is swapped
+ * atomically when they are {@link #refresh() refreshed}, so readers never see a
+ * half-built index and never hit the database. Changes made to pet types through JPA
+ * refresh the registry once their transaction commits.
+ */
+@Component
+public class PetTypeRegistry {
+
+	private final OwnerRepository owners;
+
+	private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+	public PetTypeRegistry(OwnerRepository owners) {
+		this.owners = owners;
+	}
+
+	/**
+	 * Return all the pet types, sorted by name.
+	 */
+	public List<PetType> getPetTypes() {
+		return snapshot().petTypes();
+	}
+
+	/**
+	 * Return the pet type with the given id, or {@code null} if there is none.
+	 */
+	public PetType findById(Integer id) {
+		return snapshot().byId().get(id);
+	}
+
+	/**
+	 * Return the pet type with the given name, or {@code null} if there is none.
+	 */
+	public PetType findByName(String name) {
+		return snapshot().byName().get(name);
+	}
+
+	/**
+	 * Reload the pet types from the data store and swap them in.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void refresh() {
+		this.snapshot.set(Snapshot.of(this.owners.findPetTypes()));
+	}
+
+	private Snapshot snapshot() {
+		Snapshot current = this.snapshot.get();
+		if (current == null) {
+			this.snapshot.compareAndSet(null, Snapshot.of(this.owners.findPetTypes()));
+			current = this.snapshot.get();
+		}
+		return current;
+	}
+
+	private record Snapshot(List<PetType> petTypes, Map<Integer, PetType> byId, Map<String, PetType> byName) {
+
+		static Snapshot of(List<PetType> petTypes) {
+			Map<Integer, PetType> byId = new HashMap<>();
+			Map<String, PetType> byName = new HashMap<>();
+			for (PetType petType : petTypes) {
+				byId.put(petType.getId(), petType);
+				byName.put(petType.getName(), petType);
+			}
+			// unmodifiable views rather than copies, which would reject null lookups
+			return new Snapshot(List.copyOf(petTypes), Collections.unmodifiableMap(byId),
+					Collections.unmodifiableMap(byName));
+		}
+
+	}
+
+	/**
+	 * JPA entity listener on {@link PetType} refreshing the registry after a transaction
+	 * that changed pet types has committed.
+	 */
+	static class RefreshListener {
+
+		private final ObjectProvider<PetTypeRegistry> registry;
+
+		RefreshListener(ObjectProvider<PetTypeRegistry> registry) {
+			this.registry = registry;
+		}
+
+		@PostPersist
+		@PostUpdate
+		@PostRemove
+		void petTypeChanged(PetType petType) {
+			PetTypeRegistry registry = this.registry.getIfAvailable();
+			if (registry == null) {
+				return;
+			}
+			if (TransactionSynchronizationManager.isSynchronizationActive()) {
+				TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+					@Override
+					public void afterCommit() {
+						registry.refresh();
+					}
+				});
+			}
+			else {
+				registry.refresh();
+			}
+		}
+
+	}
+
+}
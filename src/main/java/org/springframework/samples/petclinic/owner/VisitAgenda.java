@@ -0,0 +1,88 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The visit agenda: the visits between two dates, with their pet and owner, read from the
+ * {@code visits} table by date rather than by walking the owners.
+ * <p>
+ * Both views read the visits through the cursor of {@link VisitRepository#streamAgenda},
+ * inside a read-only transaction. The page stops reading once it has enough rows, and the
+ * JSON export writes each row as it is read.
+ */
+@Service
+public class VisitAgenda {
+
+	private final VisitRepository visits;
+
+	private final ObjectMapper objectMapper;
+
+	public VisitAgenda(VisitRepository visits, ObjectMapper objectMapper) {
+		this.visits = visits;
+		this.objectMapper = objectMapper;
+	}
+
+	/**
+	 * Return the first visits between two dates.
+	 * @param from the first date, inclusive
+	 * @param to the last date, inclusive
+	 * @param limit the maximum number of visits to return
+	 * @return the visits, ordered by date
+	 */
+	@Transactional(readOnly = true)
+	public List<AgendaVisit> list(LocalDate from, LocalDate to, int limit) {
+		try (Stream<AgendaVisit> agenda = this.visits.streamAgenda(from, to)) {
+			return agenda.limit(limit).toList();
+		}
+	}
+
+	/**
+	 * Write the visits between two dates as a JSON array.
+	 * @param from the first date, inclusive
+	 * @param to the last date, inclusive
+	 * @param out the stream to write to, which is left open
+	 * @return the number of visits written
+	 * @throws IOException if the visits could not be written
+	 */
+	@Transactional(readOnly = true)
+	public long writeJson(LocalDate from, LocalDate to, OutputStream out) throws IOException {
+		try (Stream<AgendaVisit> agenda = this.visits.streamAgenda(from, to);
+				JsonGenerator json = this.objectMapper.createGenerator(out)) {
+			json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			json.writeStartArray();
+			long written = 0;
+			for (Iterator<AgendaVisit> visits = agenda.iterator(); visits.hasNext(); written++) {
+				json.writeObject(visits.next());
+			}
+			json.writeEndArray();
+			return written;
+		}
+	}
+
+}
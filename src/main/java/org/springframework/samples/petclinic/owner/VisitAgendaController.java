@@ -0,0 +1,87 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.server.ResponseStatusException;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * The daily clinic agenda: the visits of a date range, this week by default, as a page
+ * and as a JSON array.
+ */
+@Controller
+class VisitAgendaController {
+
+	static final int MAX_PAGE_VISITS = 200;
+
+	static final int MAX_DAYS = 366;
+
+	private final VisitAgenda agenda;
+
+	VisitAgendaController(VisitAgenda agenda) {
+		this.agenda = agenda;
+	}
+
+	@GetMapping("/visits/agenda.html")
+	public String showAgenda(@RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+			@RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate to, Model model) {
+		LocalDate first = (from != null) ? from : LocalDate.now();
+		LocalDate last = checkRange(first, (to != null) ? to : first.plusDays(6));
+		long days = ChronoUnit.DAYS.between(first, last) + 1;
+		List<AgendaVisit> visits = this.agenda.list(first, last, MAX_PAGE_VISITS + 1);
+		model.addAttribute("from", first);
+		model.addAttribute("to", last);
+		model.addAttribute("previousFrom", first.minusDays(days));
+		model.addAttribute("previousTo", first.minusDays(1));
+		model.addAttribute("nextFrom", last.plusDays(1));
+		model.addAttribute("nextTo", last.plusDays(days));
+		model.addAttribute("truncated", visits.size() > MAX_PAGE_VISITS);
+		model.addAttribute("visits", visits.subList(0, Math.min(visits.size(), MAX_PAGE_VISITS)));
+		return "visits/agenda";
+	}
+
+	@GetMapping(value = "/visits/agenda", produces = MediaType.APPLICATION_JSON_VALUE)
+	public void showAgendaJson(@RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+			@RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate to, HttpServletResponse response)
+			throws IOException {
+		checkRange(from, to);
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		this.agenda.writeJson(from, to, response.getOutputStream());
+	}
+
+	private static LocalDate checkRange(LocalDate from, LocalDate to) {
+		if (to.isBefore(from) || ChronoUnit.DAYS.between(from, to) >= MAX_DAYS) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+					"The agenda covers 1 to " + MAX_DAYS + " days, not " + from + " to " + to);
+		}
+		return to;
+	}
+
+}
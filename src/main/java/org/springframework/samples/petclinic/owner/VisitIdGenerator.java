@@ -0,0 +1,32 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+/**
+ * Repository fragment handing out the ids of new {@link Visit visits}, for the visits
+ * inserted without going through the entity.
+ *
+ * @see VisitRepository#addVisit(int, int, java.time.LocalDate, String)
+ */
+public interface VisitIdGenerator {
+
+	/**
+	 * Return the next id of the {@code visits_seq} sequence, from the block of ids
+	 * Hibernate holds for new visits. Must be called within a transaction.
+	 */
+	int nextVisitId();
+
+}
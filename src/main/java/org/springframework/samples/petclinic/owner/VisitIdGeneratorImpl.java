@@ -0,0 +1,46 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Hands out visit ids from the generator Hibernate uses for {@link Visit} entities, so
+ * that they never collide with the ids of the visits inserted through the entity.
+ */
+class VisitIdGeneratorImpl implements VisitIdGenerator {
+
+	private final EntityManager entityManager;
+
+	VisitIdGeneratorImpl(EntityManager entityManager) {
+		this.entityManager = entityManager;
+	}
+
+	@Override
+	public int nextVisitId() {
+		SharedSessionContractImplementor session = this.entityManager.unwrap(SharedSessionContractImplementor.class);
+		BeforeExecutionGenerator generator = (BeforeExecutionGenerator) session.getFactory()
+			.getMappingMetamodel()
+			.getEntityDescriptor(Visit.class)
+			.getGenerator();
+		return ((Number) generator.generate(session, null, null, EventType.INSERT)).intValue();
+	}
+
+}
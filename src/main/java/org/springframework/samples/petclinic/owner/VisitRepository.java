@@ -0,0 +1,147 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.QueryHint;
+
+/**
+ * Append-only repository for {@link Visit} domain objects. Visits are written directly
+ * against the {@code visits} table so that booking one does not load or merge the owning
+ * {@link Owner} aggregate, and its cost does not grow with the pet's visit history. They
+ * are read by date as {@link AgendaVisit} projections, through the {@code visit_date}
+ * index.
+ *
+ * @see OwnerRepository
+ */
+public interface VisitRepository extends Repository<Visit, Integer>, VisitIdGenerator {
+
+	/**
+	 * The number of rows fetched at a time by {@link #streamAgenda}.
+	 */
+	int AGENDA_FETCH_SIZE = 100;
+
+	/**
+	 * Add a visit for the given pet, provided the pet belongs to the given owner. The
+	 * ownership check and the insert are a single statement: the pet row is looked up by
+	 * its primary key and nothing is inserted if it does not belong to the owner. Only
+	 * the cached data of the {@code visits} table is invalidated.
+	 * @param ownerId the id of the owner the pet must belong to
+	 * @param petId the id of the pet the visit is for
+	 * @param date the date of the visit
+	 * @param description the description of the visit
+	 * @return {@code 1} if the visit was added, {@code 0} if the owner has no such pet
+	 */
+	@Transactional
+	default int addVisit(int ownerId, int petId, LocalDate date, String description) {
+		return addVisit(nextVisitId(), ownerId, petId, date, description);
+	}
+
+	/**
+	 * Add a visit with the given id for the given pet, provided the pet belongs to the
+	 * given owner.
+	 * @param id the id of the visit, from {@link #nextVisitId()}
+	 * @param ownerId the id of the owner the pet must belong to
+	 * @param petId the id of the pet the visit is for
+	 * @param date the date of the visit
+	 * @param description the description of the visit
+	 * @return {@code 1} if the visit was added, {@code 0} if the owner has no such pet
+	 * @see #addVisit(int, int, LocalDate, String)
+	 */
+	@Modifying
+	@Query(value = "INSERT INTO visits (id, pet_id, visit_date, description) "
+			+ "SELECT :id, id, :date, :description FROM pets WHERE id = :petId AND owner_id = :ownerId",
+			nativeQuery = true)
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "visits"))
+	@Transactional
+	int addVisit(@Param("id") int id, @Param("ownerId") int ownerId, @Param("petId") int petId,
+			@Param("date") LocalDate date, @Param("description") String description);
+
+	/**
+	 * Stream the visits between two dates, with their pet and owner, ordered by date. The
+	 * rows are read through a cursor, {@value #AGENDA_FETCH_SIZE} at a time, so the range
+	 * is never materialized: the stream must be consumed, and closed, within the
+	 * transaction.
+	 * @param from the first date, inclusive
+	 * @param to the last date, inclusive
+	 * @return the visits of the range, ordered by date and then by id
+	 */
+	@Query("SELECT new org.springframework.samples.petclinic.owner.AgendaVisit(visit.id, visit.date, visit.description, "
+			+ "pet.id, pet.name, type.name, owner.id, owner.firstName, owner.lastName) "
+			+ "FROM Owner owner JOIN owner.pets pet JOIN pet.type type JOIN pet.visits visit "
+			+ "WHERE visit.date BETWEEN :from AND :to ORDER BY visit.date, visit.id")
+	@QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + AGENDA_FETCH_SIZE),
+			@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+	@Transactional(readOnly = true)
+	Stream<AgendaVisit> streamAgenda(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+	/**
+	 * Retrieve the visits of a pet, provided the pet belongs to the given owner.
+	 * @param ownerId the id of the owner the pet must belong to
+	 * @param petId the id of the pet
+	 * @return the visits, ordered by date and id
+	 */
+	@Query("SELECT visit FROM Owner owner JOIN owner.pets pet JOIN pet.visits visit "
+			+ "WHERE owner.id = :ownerId AND pet.id = :petId ORDER BY visit.date, visit.id")
+	@Transactional(readOnly = true)
+	List<Visit> findPetVisits(@Param("ownerId") int ownerId, @Param("petId") int petId);
+
+	/**
+	 * Retrieve the most recent visits of a pet, provided the pet belongs to the given
+	 * owner.
+	 * @param ownerId the id of the owner the pet must belong to
+	 * @param petId the id of the pet
+	 * @param limit the maximum number of visits to return
+	 * @return the visits, ordered by decreasing date and id
+	 * @see VisitTimeline
+	 */
+	@Query("SELECT new org.springframework.samples.petclinic.owner.VisitTimeline$Entry(visit.id, visit.date, "
+			+ "visit.description) FROM Owner owner JOIN owner.pets pet JOIN pet.visits visit "
+			+ "WHERE owner.id = :ownerId AND pet.id = :petId ORDER BY visit.date DESC, visit.id DESC")
+	@Transactional(readOnly = true)
+	List<VisitTimeline.Entry> findTimeline(@Param("ownerId") int ownerId, @Param("petId") int petId, Limit limit);
+
+	/**
+	 * Retrieve the visits of a pet that sort before the given {@code (date, id)}
+	 * position, continuing {@link #findTimeline}.
+	 * @param ownerId the id of the owner the pet must belong to
+	 * @param petId the id of the pet
+	 * @param beforeDate the date of the position to read before
+	 * @param beforeId the id of the position to read before
+	 * @param limit the maximum number of visits to return
+	 * @return the visits, ordered by decreasing date and id
+	 */
+	@Query("SELECT new org.springframework.samples.petclinic.owner.VisitTimeline$Entry(visit.id, visit.date, "
+			+ "visit.description) FROM Owner owner JOIN owner.pets pet JOIN pet.visits visit "
+			+ "WHERE owner.id = :ownerId AND pet.id = :petId AND (visit.date, visit.id) < (:beforeDate, :beforeId) "
+			+ "ORDER BY visit.date DESC, visit.id DESC")
+	@Transactional(readOnly = true)
+	List<VisitTimeline.Entry> findTimelineBefore(@Param("ownerId") int ownerId, @Param("petId") int petId,
+			@Param("beforeDate") LocalDate beforeDate, @Param("beforeId") int beforeId, Limit limit);
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * A page of a pet's visit history, most recent first, with the cursor reading the next
+ * page, for pets whose visits are too many to render at once.
+ *
+ * @param visits the visits of the page, ordered by decreasing date and id
+ * @param next the cursor of the next page, or {@code null} if this is the last page
+ */
+public record VisitTimeline(List<Entry> visits, String next) {
+
+	/**
+	 * A visit of the timeline.
+	 *
+	 * @param id the visit id
+	 * @param date the date of the visit
+	 * @param description the description of the visit
+	 */
+	public record Entry(Integer id, LocalDate date, String description) {
+
+	}
+
+	/**
+	 * Position within a visit timeline: the timeline continues with the visits that sort
+	 * before {@code (date, id)}. A cursor is handed to the browser as an opaque URL-safe
+	 * token so that links do not depend on its internal layout.
+	 *
+	 * @param date the date of the last visit read
+	 * @param id the id of the last visit read
+	 */
+	record Cursor(LocalDate date, int id) {
+
+		/**
+		 * Create a cursor reading the visits that sort after the given visit.
+		 */
+		static Cursor after(Entry visit) {
+			return new Cursor(visit.date(), visit.id());
+		}
+
+		/**
+		 * Decode a token previously produced by {@link #encode()}.
+		 * @param token the opaque cursor token
+		 * @return the decoded cursor
+		 * @throws IllegalArgumentException if the token is malformed
+		 */
+		static Cursor decode(String token) {
+			try {
+				String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+				int separator = decoded.indexOf(':');
+				return new Cursor(LocalDate.parse(decoded.substring(0, separator)),
+						Integer.parseInt(decoded.substring(separator + 1)));
+			}
+			catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException ex) {
+				throw new IllegalArgumentException("Invalid visit cursor: " + token, ex);
+			}
+		}
+
+		/**
+		 * Encode this cursor as an opaque, URL-safe token.
+		 */
+		String encode() {
+			String raw = this.date + ":" + this.id;
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+		}
+
+	}
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.owner.VisitTimeline.Cursor;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * The visit history of a pet as a {@link VisitTimeline}, paged with cursors on
+ * {@code (visit_date, id)}, loaded on demand by the owner page of the owners with many
+ * pets.
+ */
+@Controller
+class VisitTimelineController {
+
+	static final int DEFAULT_LIMIT = 20;
+
+	static final int MAX_LIMIT = 100;
+
+	private final VisitRepository visits;
+
+	VisitTimelineController(VisitRepository visits) {
+		this.visits = visits;
+	}
+
+	@GetMapping(value = "/owners/{ownerId}/pets/{petId}/visits", produces = MediaType.APPLICATION_JSON_VALUE)
+	@ResponseBody
+	public VisitTimeline showTimeline(@PathVariable("ownerId") int ownerId, @PathVariable("petId") int petId,
+			@RequestParam(required = false) String cursor, @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit) {
+		int pageSize = Math.max(1, Math.min(limit, MAX_LIMIT));
+		// read one visit past the page to find out whether there is more
+		Limit window = Limit.of(pageSize + 1);
+		List<VisitTimeline.Entry> entries;
+		if (cursor == null) {
+			entries = this.visits.findTimeline(ownerId, petId, window);
+		}
+		else {
+			Cursor position = decodeCursor(cursor);
+			entries = this.visits.findTimelineBefore(ownerId, petId, position.date(), position.id(), window);
+		}
+		if (entries.size() <= pageSize) {
+			return new VisitTimeline(entries, null);
+		}
+		List<VisitTimeline.Entry> page = entries.subList(0, pageSize);
+		return new VisitTimeline(List.copyOf(page), Cursor.after(page.get(pageSize - 1)).encode());
+	}
+
+	private static Cursor decodeCursor(String cursor) {
+		try {
+			return Cursor.decode(cursor);
+		}
+		catch (IllegalArgumentException ex) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
+		}
+	}
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * In-memory inverted index of {@link SearchDocument search documents}: for each term, the
+ * documents containing it with the weighted frequency of the term in each.
+ * <p>
+ * A search matches the documents containing every term of the query, ranked with BM25
+ * term saturation and inverse document frequency, so that rare terms and terms repeated
+ * in the heavier fields of a document count for more. Writes are serialized; searches run
+ * concurrently with them and may see a document being replaced either before or after the
+ * change.
+ */
+final class InvertedIndex {
+
+	private static final double K1 = 1.2;
+
+	private static final Comparator<SearchHit> BY_RELEVANCE = Comparator.comparingDouble(SearchHit::score)
+		.reversed()
+		.thenComparing((hit) -> hit.document().kind())
+		.thenComparingInt((hit) -> hit.document().id());
+
+	private final Map<String, Map<Long, Integer>> postings = new ConcurrentHashMap<>();
+
+	private final Map<Long, Indexed> documents = new ConcurrentHashMap<>();
+
+	private final Map<Integer, long[]> ownerDocuments = new ConcurrentHashMap<>();
+
+	private final Map<SearchDocument.Kind, String> versions = new ConcurrentHashMap<>();
+
+	/**
+	 * Replace the documents of an owner: the owner, their pets and their visits.
+	 * @param ownerId the id of the owner
+	 * @param documents the new documents, empty if the owner no longer exists
+	 */
+	synchronized void replaceOwner(int ownerId, List<Indexed> documents) {
+		long[] previous = this.ownerDocuments.remove(ownerId);
+		if (previous != null) {
+			for (long key : previous) {
+				remove(key);
+			}
+		}
+		if (documents.isEmpty()) {
+			return;
+		}
+		long[] keys = new long[documents.size()];
+		for (int i = 0; i < keys.length; i++) {
+			put(documents.get(i));
+			keys[i] = documents.get(i).document().key();
+		}
+		this.ownerDocuments.put(ownerId, keys);
+	}
+
+	/**
+	 * Replace all the documents of a kind.
+	 * @param kind the kind of the documents
+	 * @param documents the new documents
+	 * @param version the version of the data the documents were read from
+	 */
+	synchronized void replaceAll(SearchDocument.Kind kind, List<Indexed> documents, String version) {
+		for (Long key : List.copyOf(this.documents.keySet())) {
+			if (this.documents.get(key).document().kind() == kind) {
+				remove(key);
+			}
+		}
+		documents.forEach(this::put);
+		this.versions.put(kind, version);
+	}
+
+	/**
+	 * Return the version of the data the documents of a kind were last read from.
+	 * @param kind the kind of the documents
+	 * @return the version given when they were last replaced, or {@code null} if they
+	 * never were
+	 */
+	String version(SearchDocument.Kind kind) {
+		return this.versions.get(kind);
+	}
+
+	private void put(Indexed indexed) {
+		long key = indexed.document().key();
+		remove(key);
+		this.documents.put(key, indexed);
+		indexed.frequencies()
+			.forEach((term, frequency) -> this.postings.computeIfAbsent(term, (t) -> new ConcurrentHashMap<>())
+				.put(key, frequency));
+	}
+
+	private void remove(long key) {
+		Indexed removed = this.documents.remove(key);
+		if (removed == null) {
+			return;
+		}
+		for (String term : removed.frequencies().keySet()) {
+			Map<Long, Integer> documents = this.postings.get(term);
+			documents.remove(key);
+			if (documents.isEmpty()) {
+				this.postings.remove(term);
+			}
+		}
+	}
+
+	/**
+	 * Return the number of documents indexed.
+	 */
+	int size() {
+		return this.documents.size();
+	}
+
+	/**
+	 * Return a page of the documents matching every term of a query, most relevant first.
+	 * @param query the query, tokenized like the documents
+	 * @param pageable the page to return
+	 * @return the page of hits, empty if the query has no terms
+	 */
+	Page<SearchHit> search(String query, Pageable pageable) {
+		List<Map<Long, Integer>> matches = new ArrayList<>();
+		for (String term : new LinkedHashSet<>(Tokenizer.tokenize(query))) {
+			Map<Long, Integer> documents = this.postings.get(term);
+			if (documents == null) {
+				return Page.empty(pageable);
+			}
+			matches.add(documents);
+		}
+		if (matches.isEmpty()) {
+			return Page.empty(pageable);
+		}
+		// walk the rarest term's documents, looking the others up
+		matches.sort(Comparator.comparingInt(Map::size));
+		int total = this.documents.size();
+		double[] idf = matches.stream()
+			.mapToDouble((documents) -> Math.log(1 + (total - documents.size() + 0.5) / (documents.size() + 0.5)))
+			.toArray();
+		List<SearchHit> hits = new ArrayList<>();
+		candidates: for (Long key : matches.get(0).keySet()) {
+			double score = 0;
+			for (int i = 0; i < matches.size(); i++) {
+				Integer frequency = matches.get(i).get(key);
+				if (frequency == null) {
+					continue candidates;
+				}
+				score += idf[i] * frequency * (K1 + 1) / (frequency + K1);
+			}
+			Indexed indexed = this.documents.get(key);
+			if (indexed != null) {
+				hits.add(new SearchHit(indexed.document(), score));
+			}
+		}
+		hits.sort(BY_RELEVANCE);
+		int from = (int) Math.min(pageable.getOffset(), hits.size());
+		int to = Math.min(from + pageable.getPageSize(), hits.size());
+		return new PageImpl<>(List.copyOf(hits.subList(from, to)), pageable, hits.size());
+	}
+
+	/**
+	 * A document with the weighted frequencies of its terms, computed before it is
+	 * indexed.
+	 *
+	 * @param document the document
+	 * @param frequencies the weighted frequency of each of its terms
+	 */
+	record Indexed(SearchDocument document, Map<String, Integer> frequencies) {
+
+		/**
+		 * Tokenize the fields of a document.
+		 * @param document the document
+		 * @param fields the texts to index
+		 */
+		static Indexed of(SearchDocument document, Field... fields) {
+			Map<String, Integer> frequencies = new HashMap<>();
+			for (Field field : fields) {
+				for (String term : Tokenizer.tokenize(field.text())) {
+					frequencies.merge(term, field.weight(), Integer::sum);
+				}
+			}
+			return new Indexed(document, Map.copyOf(frequencies));
+		}
+
+	}
+
+	/**
+	 * A text to index.
+	 *
+	 * @param text the text, may be {@code null}
+	 * @param weight how much each occurrence of a term in this text counts
+	 */
+	record Field(String text, int weight) {
+
+	}
+
+}
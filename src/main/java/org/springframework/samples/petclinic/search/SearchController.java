@@ -0,0 +1,51 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.search;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+/**
+ * Search page across owners, pets, vets and visits.
+ */
+@Controller
+class SearchController {
+
+	static final int PAGE_SIZE = 10;
+
+	private final SearchIndex searchIndex;
+
+	SearchController(SearchIndex searchIndex) {
+		this.searchIndex = searchIndex;
+	}
+
+	@GetMapping("/search")
+	public String search(@RequestParam(defaultValue = "") String q, @RequestParam(defaultValue = "1") int page,
+			Model model) {
+		Page<SearchHit> hits = this.searchIndex.search(q, PageRequest.of(Math.max(page, 1) - 1, PAGE_SIZE));
+		model.addAttribute("q", q);
+		model.addAttribute("currentPage", hits.getNumber() + 1);
+		model.addAttribute("totalPages", hits.getTotalPages());
+		model.addAttribute("totalItems", hits.getTotalElements());
+		model.addAttribute("hits", hits.getContent());
+		return "search/searchResults";
+	}
+
+}
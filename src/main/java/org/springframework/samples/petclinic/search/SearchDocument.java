@@ -0,0 +1,49 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.search;
+
+/**
+ * A searchable owner, pet, vet or visit, as shown in the search results.
+ *
+ * @param kind what the document describes
+ * @param id the id of the owner, pet, vet or visit
+ * @param title the name of the owner, pet or vet, or the date of the visit
+ * @param description what else the document says about it
+ * @param link the path of the page showing it
+ */
+public record SearchDocument(Kind kind, int id, String title, String description, String link) {
+
+	/**
+	 * The key of this document in the index, unique across kinds.
+	 */
+	long key() {
+		return key(this.kind, this.id);
+	}
+
+	static long key(Kind kind, int id) {
+		return ((long) kind.ordinal() << Integer.SIZE) | Integer.toUnsignedLong(id);
+	}
+
+	/**
+	 * What a document describes.
+	 */
+	public enum Kind {
+
+		OWNER, PET, VET, VISIT
+
+	}
+
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.samples.petclinic.owner.OwnerChangedEvent;
+import org.springframework.samples.petclinic.owner.OwnersImportedEvent;
+import org.springframework.samples.petclinic.search.InvertedIndex.Field;
+import org.springframework.samples.petclinic.search.InvertedIndex.Indexed;
+import org.springframework.samples.petclinic.search.SearchDocument.Kind;
+import org.springframework.samples.petclinic.search.SearchRepository.OwnerRow;
+import org.springframework.samples.petclinic.search.SearchRepository.PetRow;
+import org.springframework.samples.petclinic.search.SearchRepository.VisitRow;
+import org.springframework.samples.petclinic.vet.Specialty;
+import org.springframework.samples.petclinic.vet.VetDirectory;
+import org.springframework.samples.petclinic.vet.VetDirectoryChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Full-text search across owners (name, address, city and telephone), pets (name and
+ * type), vets (name and specialties) and visit descriptions, answered from an
+ * {@link InvertedIndex}.
+ * <p>
+ * The index is built at startup, and rebuilt after a bulk import of owners, by a full
+ * {@link #reindex() reindex}, which reads the owners in ranges of ids indexed in parallel
+ * on a fork-join pool, and is swapped in once complete. It is otherwise maintained
+ * incrementally: the documents of an owner are replaced once a transaction that changed
+ * the owner has committed, and the vets are reindexed whenever the {@link VetDirectory}
+ * has changed. The owners changed while a full reindex is running are recorded, and
+ * indexed again into the new index once it is swapped in.
+ */
+@Component
+public class SearchIndex {
+
+	private static final int NAME_WEIGHT = 3;
+
+	private static final int SPECIALTY_WEIGHT = 2;
+
+	private static final int TEXT_WEIGHT = 1;
+
+	private final SearchRepository repository;
+
+	private final VetDirectory vetDirectory;
+
+	private final int rangeSize;
+
+	private final int parallelism;
+
+	private final AtomicReference<InvertedIndex> index = new AtomicReference<>();
+
+	private final Object vetsLock = new Object();
+
+	private volatile Set<Integer> changedDuringReindex;
+
+	public SearchIndex(SearchRepository repository, VetDirectory vetDirectory,
+			@Value("${petclinic.search.reindex-range-size:1000}") int rangeSize,
+			@Value("${petclinic.search.reindex-parallelism:0}") int parallelism) {
+		this.repository = repository;
+		this.vetDirectory = vetDirectory;
+		this.rangeSize = rangeSize;
+		this.parallelism = (parallelism > 0) ? parallelism : Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Search the documents matching every term of a query.
+	 * @param query the query
+	 * @param pageable the page of hits to return
+	 * @return the page of hits, most relevant first
+	 */
+	public Page<SearchHit> search(String query, Pageable pageable) {
+		return index().search(query, pageable);
+	}
+
+	/**
+	 * Rebuild the index from the data store and swap it in.
+	 */
+	@EventListener({ ApplicationReadyEvent.class, OwnersImportedEvent.class })
+	public synchronized void reindex() {
+		Set<Integer> changed = ConcurrentHashMap.newKeySet();
+		this.changedDuringReindex = changed;
+		InvertedIndex built = build();
+		// the build may have read these owners before they changed
+		replay(changed, built);
+		this.index.set(built);
+		this.changedDuringReindex = null;
+		// owners changed while replaying were only indexed into the previous index, while
+		// those changed from now on are indexed into the new one directly
+		replay(changed, built);
+		indexVets(built);
+	}
+
+	private void replay(Set<Integer> changed, InvertedIndex index) {
+		for (Iterator<Integer> ownerIds = changed.iterator(); ownerIds.hasNext();) {
+			int ownerId = ownerIds.next();
+			ownerIds.remove();
+			indexOwners(index, ownerId, ownerId);
+		}
+	}
+
+	/**
+	 * Replace the documents of an owner that has been created or changed.
+	 */
+	@TransactionalEventListener
+	@Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+	public void ownerChanged(OwnerChangedEvent event) {
+		if (event.ownerId() == null) {
+			return;
+		}
+		Set<Integer> changed = this.changedDuringReindex;
+		if (changed != null) {
+			// the reindex may have read the owner before the change
+			changed.add(event.ownerId());
+		}
+		InvertedIndex current = this.index.get();
+		if (current != null) {
+			indexOwners(current, event.ownerId(), event.ownerId());
+		}
+	}
+
+	/**
+	 * Replace the documents of the vets once the directory has changed.
+	 */
+	@EventListener
+	public void vetsChanged(VetDirectoryChangedEvent event) {
+		InvertedIndex current = this.index.get();
+		if (current != null) {
+			indexVets(current);
+		}
+	}
+
+	private InvertedIndex index() {
+		InvertedIndex current = this.index.get();
+		if (current == null) {
+			synchronized (this) {
+				if (this.index.get() == null) {
+					reindex();
+				}
+			}
+			current = this.index.get();
+		}
+		return current;
+	}
+
+	private InvertedIndex build() {
+		InvertedIndex built = new InvertedIndex();
+		Integer min = this.repository.findMinOwnerId();
+		Integer max = this.repository.findMaxOwnerId();
+		if (min != null && max != null) {
+			ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+			try {
+				pool.invoke(new ReindexTask(built, min, max));
+			}
+			finally {
+				pool.shutdown();
+			}
+		}
+		indexVets(built);
+		return built;
+	}
+
+	/**
+	 * Index the vets of the current directory snapshot, unless the index already holds
+	 * them. Serialized, so that an index never ends up with the vets of an older
+	 * snapshot.
+	 */
+	private void indexVets(InvertedIndex index) {
+		synchronized (this.vetsLock) {
+			VetDirectory.Snapshot vets = this.vetDirectory.getSnapshot();
+			if (vets.version().equals(index.version(Kind.VET))) {
+				return;
+			}
+			List<Indexed> documents = new ArrayList<>();
+			for (VetDirectory.Entry vet : vets.vets()) {
+				String specialties = vet.specialties()
+					.stream()
+					.map(Specialty::getName)
+					.collect(Collectors.joining(", "));
+				String name = vet.firstName() + " " + vet.lastName();
+				SearchDocument document = new SearchDocument(Kind.VET, vet.id(), name,
+						specialties.isEmpty() ? "none" : specialties, "/vets.html");
+				documents
+					.add(Indexed.of(document, new Field(name, NAME_WEIGHT), new Field(specialties, SPECIALTY_WEIGHT)));
+			}
+			index.replaceAll(Kind.VET, documents, vets.version());
+		}
+	}
+
+	private void indexOwners(InvertedIndex index, int min, int max) {
+		Map<Integer, List<Indexed>> documents = new HashMap<>();
+		Map<Integer, String> ownerNames = new HashMap<>();
+		for (OwnerRow owner : this.repository.findOwners(min, max)) {
+			String name = owner.firstName() + " " + owner.lastName();
+			ownerNames.put(owner.id(), name);
+			SearchDocument document = new SearchDocument(Kind.OWNER, owner.id(), name,
+					owner.address() + ", " + owner.city() + ", " + owner.telephone(), "/owners/" + owner.id());
+			documents.computeIfAbsent(owner.id(), (id) -> new ArrayList<>())
+				.add(Indexed.of(document, new Field(owner.firstName(), NAME_WEIGHT),
+						new Field(owner.lastName(), NAME_WEIGHT), new Field(owner.address(), TEXT_WEIGHT),
+						new Field(owner.city(), TEXT_WEIGHT), new Field(owner.telephone(), TEXT_WEIGHT)));
+		}
+		for (PetRow pet : this.repository.findPets(min, max)) {
+			SearchDocument document = new SearchDocument(Kind.PET, pet.id(), pet.name(),
+					pet.type() + " of " + ownerNames.get(pet.ownerId()), "/owners/" + pet.ownerId());
+			documents.computeIfAbsent(pet.ownerId(), (id) -> new ArrayList<>())
+				.add(Indexed.of(document, new Field(pet.name(), NAME_WEIGHT), new Field(pet.type(), TEXT_WEIGHT)));
+		}
+		for (VisitRow visit : this.repository.findVisits(min, max)) {
+			SearchDocument document = new SearchDocument(Kind.VISIT, visit.id(), String.valueOf(visit.date()),
+					visit.description() + " (" + visit.petName() + ")", "/owners/" + visit.ownerId());
+			documents.computeIfAbsent(visit.ownerId(), (id) -> new ArrayList<>())
+				.add(Indexed.of(document, new Field(visit.description(), TEXT_WEIGHT)));
+		}
+		for (int ownerId = min; ownerId <= max; ownerId++) {
+			index.replaceOwner(ownerId, documents.getOrDefault(ownerId, List.of()));
+		}
+	}
+
+	/**
+	 * Indexes a range of owner ids, split in halves until it holds at most
+	 * {@code rangeSize} ids.
+	 */
+	private final class ReindexTask extends RecursiveAction {
+
+		private final InvertedIndex index;
+
+		private final int min;
+
+		private final int max;
+
+		ReindexTask(InvertedIndex index, int min, int max) {
+			this.index = index;
+			this.min = min;
+			this.max = max;
+		}
+
+		@Override
+		protected void compute() {
+			if ((long) this.max - this.min < SearchIndex.this.rangeSize) {
+				indexOwners(this.index, this.min, this.max);
+				return;
+			}
+			int middle = (int) (((long) this.min + this.max) / 2);
+			invokeAll(new ReindexTask(this.index, this.min, middle), new ReindexTask(this.index, middle + 1, this.max));
+		}
+
+	}
+
+}
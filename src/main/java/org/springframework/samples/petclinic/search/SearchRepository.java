@@ -0,0 +1,124 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.search;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Repository reading the owners, pets and visits to index as flat projections, by range
+ * of owner ids, so that the {@link SearchIndex} never loads the owner aggregates.
+ */
+public interface SearchRepository extends Repository<Owner, Integer> {
+
+	/**
+	 * Retrieve the lowest owner id.
+	 * @return the lowest owner id, or {@code null} if there are no owners
+	 */
+	@Query("SELECT MIN(owner.id) FROM Owner owner")
+	@Transactional(readOnly = true)
+	Integer findMinOwnerId();
+
+	/**
+	 * Retrieve the highest owner id.
+	 * @return the highest owner id, or {@code null} if there are no owners
+	 */
+	@Query("SELECT MAX(owner.id) FROM Owner owner")
+	@Transactional(readOnly = true)
+	Integer findMaxOwnerId();
+
+	/**
+	 * Retrieve the owners whose id is within a range.
+	 * @param min the lowest owner id, inclusive
+	 * @param max the highest owner id, inclusive
+	 * @return the owners in the range
+	 */
+	@Query("SELECT new org.springframework.samples.petclinic.search.SearchRepository$OwnerRow(owner.id, "
+			+ "owner.firstName, owner.lastName, owner.address, owner.city, owner.telephone) "
+			+ "FROM Owner owner WHERE owner.id BETWEEN :min AND :max")
+	@Transactional(readOnly = true)
+	List<OwnerRow> findOwners(@Param("min") int min, @Param("max") int max);
+
+	/**
+	 * Retrieve the pets of the owners whose id is within a range.
+	 * @param min the lowest owner id, inclusive
+	 * @param max the highest owner id, inclusive
+	 * @return the pets of the owners in the range
+	 */
+	@Query("SELECT new org.springframework.samples.petclinic.search.SearchRepository$PetRow(pet.id, owner.id, "
+			+ "pet.name, type.name) "
+			+ "FROM Owner owner JOIN owner.pets pet LEFT JOIN pet.type type WHERE owner.id BETWEEN :min AND :max")
+	@Transactional(readOnly = true)
+	List<PetRow> findPets(@Param("min") int min, @Param("max") int max);
+
+	/**
+	 * Retrieve the visits of the pets of the owners whose id is within a range.
+	 * @param min the lowest owner id, inclusive
+	 * @param max the highest owner id, inclusive
+	 * @return the visits of the pets of the owners in the range
+	 */
+	@Query("SELECT new org.springframework.samples.petclinic.search.SearchRepository$VisitRow(visit.id, "
+			+ "owner.id, visit.date, visit.description, pet.name) "
+			+ "FROM Owner owner JOIN owner.pets pet JOIN pet.visits visit WHERE owner.id BETWEEN :min AND :max")
+	@Transactional(readOnly = true)
+	List<VisitRow> findVisits(@Param("min") int min, @Param("max") int max);
+
+	/**
+	 * An owner to index.
+	 *
+	 * @param id the owner id
+	 * @param firstName the owner's first name
+	 * @param lastName the owner's last name
+	 * @param address the owner's address
+	 * @param city the owner's city
+	 * @param telephone the owner's telephone number
+	 */
+	record OwnerRow(Integer id, String firstName, String lastName, String address, String city, String telephone) {
+
+	}
+
+	/**
+	 * A pet to index.
+	 *
+	 * @param id the pet id
+	 * @param ownerId the id of the pet's owner
+	 * @param name the pet's name
+	 * @param type the name of the pet's type
+	 */
+	record PetRow(Integer id, Integer ownerId, String name, String type) {
+
+	}
+
+	/**
+	 * A visit to index.
+	 *
+	 * @param id the visit id
+	 * @param ownerId the id of the owner of the visited pet
+	 * @param date the date of the visit
+	 * @param description the description of the visit
+	 * @param petName the name of the visited pet
+	 */
+	record VisitRow(Integer id, Integer ownerId, LocalDate date, String description, String petName) {
+
+	}
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Splits text into the terms of the {@link InvertedIndex}: runs of letters and digits,
+ * lower-cased and stripped of their accents, so that {@code "Escobito"} and
+ * {@code "escobito"}, or {@code "Müller"} and {@code "muller"}, are the same term.
+ */
+final class Tokenizer {
+
+	private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+	private Tokenizer() {
+	}
+
+	/**
+	 * Return the terms of a text, in order and with repetitions.
+	 * @param text the text, may be {@code null}
+	 * @return the terms, empty if the text has none
+	 */
+	static List<String> tokenize(String text) {
+		if (text == null || text.isEmpty()) {
+			return List.of();
+		}
+		String normalized = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+		List<String> terms = new ArrayList<>();
+		for (String term : SEPARATORS.split(normalized.toLowerCase(Locale.ROOT))) {
+			if (!term.isEmpty()) {
+				terms.add(term);
+			}
+		}
+		return terms;
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * Actuator endpoint listing the application caches with their statistics, warming the
+ * caches that have a {@link CacheReloader} and evicting caches.
+ * <ul>
+ * <li>{@code GET /actuator/cacheadmin} lists the caches;</li>
+ * <li>{@code POST /actuator/cacheadmin/{cache}} loads the warm-up keys of a cache;</li>
+ * <li>{@code DELETE /actuator/cacheadmin/{cache}} evicts all the entries of a cache.</li>
+ * </ul>
+ */
+@Component
+@Endpoint(id = "cacheadmin")
+class CacheAdminEndpoint {
+
+	private final CaffeineCacheManager cacheManager;
+
+	private final Map<String, CacheReloader> reloaders;
+
+	CacheAdminEndpoint(CaffeineCacheManager cacheManager, ObjectProvider<CacheReloader> reloaders) {
+		this.cacheManager = cacheManager;
+		this.reloaders = reloaders.orderedStream()
+			.collect(Collectors.toMap(CacheReloader::getCacheName, Function.identity()));
+	}
+
+	@ReadOperation
+	public Map<String, CacheDescriptor> caches() {
+		Map<String, CacheDescriptor> caches = new TreeMap<>();
+		for (String name : this.cacheManager.getCacheNames()) {
+			caches.put(name, describe(name));
+		}
+		return caches;
+	}
+
+	@ReadOperation
+	public CacheDescriptor cache(@Selector String cache) {
+		return (this.cacheManager.getCacheNames().contains(cache)) ? describe(cache) : null;
+	}
+
+	@WriteOperation
+	public CacheDescriptor warm(@Selector String cache) throws Exception {
+		CacheReloader reloader = this.reloaders.get(cache);
+		if (reloader == null || !this.cacheManager.getCacheNames().contains(cache)) {
+			return null;
+		}
+		Cache<Object, Object> nativeCache = nativeCache(cache);
+		for (Object key : reloader.getWarmUpKeys()) {
+			nativeCache.put(key, reloader.load(key));
+		}
+		return describe(cache);
+	}
+
+	@DeleteOperation
+	public CacheDescriptor evict(@Selector String cache) {
+		if (!this.cacheManager.getCacheNames().contains(cache)) {
+			return null;
+		}
+		nativeCache(cache).invalidateAll();
+		return describe(cache);
+	}
+
+	private Cache<Object, Object> nativeCache(String name) {
+		return ((CaffeineCache) this.cacheManager.getCache(name)).getNativeCache();
+	}
+
+	private CacheDescriptor describe(String name) {
+		Cache<Object, Object> nativeCache = nativeCache(name);
+		CacheStats stats = nativeCache.stats();
+		return new CacheDescriptor(nativeCache.estimatedSize(), stats.hitCount(), stats.missCount(),
+				stats.evictionCount(), stats.averageLoadPenalty() / 1_000_000, this.reloaders.containsKey(name));
+	}
+
+	/**
+	 * Description of a cache.
+	 *
+	 * @param size the approximate number of entries
+	 * @param hits the number of lookups that found an entry
+	 * @param misses the number of lookups that did not find an entry
+	 * @param evictions the number of entries evicted by the size bound
+	 * @param averageLoadMillis the average time spent loading a value
+	 * @param warmable whether the cache can be warmed
+	 */
+	record CacheDescriptor(long size, long hits, long misses, long evictions, double averageLoadMillis,
+			boolean warmable) {
+
+	}
+
+}
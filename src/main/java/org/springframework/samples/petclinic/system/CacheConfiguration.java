@@ -13,41 +13,86 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package org.springframework.samples.petclinic.system;
 
-import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Slice;
+import org.springframework.samples.petclinic.system.CacheSpecProperties.Spec;
 
-import javax.cache.configuration.MutableConfiguration;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 
 /**
- * Cache configuration intended for caches providing the JCache API. This configuration
- * creates the used cache for the application and enables statistics that become
- * accessible via JMX.
+ * Cache configuration backed by native Caffeine caches. Each cache is created from its
+ * {@link CacheSpecProperties.Spec} with statistics recording enabled, which Spring Boot
+ * publishes to the Micrometer registry as the {@code cache.*} meters.
+ * <p>
+ * The cache manager is declared explicitly, rather than left to auto-configuration, so
+ * that it does not change when another caching provider (like a JCache implementation) is
+ * added to the classpath.
  */
 @Configuration(proxyBeanMethods = false)
 @EnableCaching
+@EnableConfigurationProperties(CacheSpecProperties.class)
 class CacheConfiguration {
 
+	private static final Log logger = LogFactory.getLog(CacheConfiguration.class);
+
 	@Bean
-	public JCacheManagerCustomizer petclinicCacheConfigurationCustomizer() {
-		return cm -> cm.createCache("vets", cacheConfiguration());
+	public CaffeineCacheManager cacheManager(CacheSpecProperties properties, ObjectProvider<CacheReloader> reloaders) {
+		Map<String, CacheReloader> reloadersByName = reloaders.orderedStream()
+			.collect(Collectors.toMap(CacheReloader::getCacheName, Function.identity()));
+		CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+		cacheManager.setCacheNames(properties.specs().keySet());
+		properties.specs()
+			.forEach((name, spec) -> cacheManager.registerCustomCache(name,
+					createCache(name, spec, reloadersByName.get(name))));
+		return cacheManager;
+	}
+
+	private static Cache<Object, Object> createCache(String name, Spec spec, CacheReloader reloader) {
+		Caffeine<Object, Object> builder = Caffeine.newBuilder().recordStats();
+		if (spec.maximumWeight() != null) {
+			builder.maximumWeight(spec.maximumWeight()).weigher(CacheConfiguration::weigh);
+		}
+		if (spec.expireAfterWrite() != null) {
+			builder.expireAfterWrite(spec.expireAfterWrite());
+		}
+		if (spec.refreshAfterWrite() != null) {
+			if (reloader != null) {
+				builder.refreshAfterWrite(spec.refreshAfterWrite());
+			}
+			else {
+				logger.warn("Ignoring refresh-after-write of cache '" + name + "' as it has no CacheReloader");
+			}
+		}
+		return (reloader != null) ? builder.build(reloader) : builder.build();
 	}
 
 	/**
-	 * Create a simple configuration that enable statistics via the JCache programmatic
-	 * configuration API.
-	 * <p>
-	 * Within the configuration object that is provided by the JCache API standard, there
-	 * is only a very limited set of configuration options. The really relevant
-	 * configuration options (like the size limit) must be set via a configuration
-	 * mechanism that is provided by the selected JCache implementation.
+	 * Weigh a cached value by the number of entities it holds, so that a cache of pages
+	 * is bounded by how much it holds rather than by how many pages were requested.
 	 */
-	private javax.cache.configuration.Configuration<Object, Object> cacheConfiguration() {
-		return new MutableConfiguration<>().setStatisticsEnabled(true);
+	static int weigh(Object key, Object value) {
+		if (value instanceof Slice<?> slice) {
+			return Math.max(1, slice.getNumberOfElements());
+		}
+		if (value instanceof Collection<?> collection) {
+			return Math.max(1, collection.size());
+		}
+		return 1;
 	}
 
 }
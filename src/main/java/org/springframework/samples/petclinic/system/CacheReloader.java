@@ -0,0 +1,42 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+
+/**
+ * Loads the values of one cache from the data store, bypassing the cache. A cache with a
+ * reloader can be configured with a {@code refresh-after-write} and can be warmed through
+ * the {@link CacheAdminEndpoint}.
+ */
+public interface CacheReloader extends CacheLoader<Object, Object> {
+
+	/**
+	 * Return the name of the cache this reloader loads values for.
+	 */
+	String getCacheName();
+
+	/**
+	 * Return the keys to load when the cache is warmed.
+	 */
+	default Collection<?> getWarmUpKeys() {
+		return List.of();
+	}
+
+}
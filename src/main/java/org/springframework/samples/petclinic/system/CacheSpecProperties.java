@@ -0,0 +1,55 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Per-cache Caffeine settings, bound from {@code petclinic.cache.specs.<cache-name>.*}
+ * for the Spring caches and from {@code petclinic.cache.regions.<region-name>.*} for the
+ * Hibernate second-level cache regions. Only the caches and regions listed here exist:
+ * caching into any other cache name fails.
+ *
+ * @param specs the settings of each Spring cache, keyed by cache name
+ * @param regions the settings of each Hibernate cache region, keyed by region name
+ */
+@ConfigurationProperties("petclinic.cache")
+public record CacheSpecProperties(Map<String, Spec> specs, Map<String, Spec> regions) {
+
+	public CacheSpecProperties {
+		specs = (specs != null) ? specs : Map.of();
+		regions = (regions != null) ? regions : Map.of();
+	}
+
+	/**
+	 * Caffeine settings of a single cache. Unset values leave the cache unbounded in that
+	 * dimension.
+	 *
+	 * @param maximumWeight the maximum total weight of the entries, where a collection or
+	 * page of entities weighs as many units as it has elements and any other value weighs
+	 * one unit
+	 * @param expireAfterWrite how long an entry is kept after it was written
+	 * @param refreshAfterWrite how long after it was written an entry is reloaded in the
+	 * background on its next read; ignored unless the cache has a {@link CacheReloader}
+	 */
+	public record Spec(Long maximumWeight, Duration expireAfterWrite, Duration refreshAfterWrite) {
+
+	}
+
+}
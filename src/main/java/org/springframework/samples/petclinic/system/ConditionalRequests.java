@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.util.CollectionUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.support.RequestContextUtils;
+
+/**
+ * Helpers answering conditional GET requests with {@code 304 Not Modified} from a cheap
+ * validator, before the controller loads or renders anything.
+ * <p>
+ * Handlers call one of the {@code checkNotModified} methods first and return {@code null}
+ * straight away when it returns {@code true}.
+ */
+public final class ConditionalRequests {
+
+	private ConditionalRequests() {
+	}
+
+	/**
+	 * Set a strong ETag for a resource representation and check it against the request.
+	 * @param request the current request
+	 * @param etag the validator of the representation, without quotes
+	 * @return whether the client's copy is current and the response has been marked
+	 * {@code 304 Not Modified}
+	 */
+	public static boolean checkNotModified(ServletWebRequest request, String etag) {
+		return request.checkNotModified('"' + etag + '"');
+	}
+
+	/**
+	 * Set a weak ETag for a rendered page and check it against the request. The ETag also
+	 * covers the locale the page is rendered in. Pages showing flash attributes left by a
+	 * redirect are never answered with {@code 304}, since the message they display is not
+	 * part of the validator.
+	 * @param request the current request
+	 * @param etag the validator of the data shown by the page, without quotes
+	 * @return whether the client's copy is current and the response has been marked
+	 * {@code 304 Not Modified}
+	 */
+	public static boolean checkPageNotModified(ServletWebRequest request, String etag) {
+		if (!CollectionUtils.isEmpty(RequestContextUtils.getInputFlashMap(request.getRequest()))) {
+			return false;
+		}
+		return request.checkNotModified("W/\"" + etag + '-' + LocaleContextHolder.getLocale().toLanguageTag() + '"');
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.samples.petclinic.system.CacheSpecProperties.Spec;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+
+/**
+ * Hibernate second-level cache configuration, backed by Caffeine through JCache.
+ * <p>
+ * Every region is created up front from its {@link CacheSpecProperties.Spec}, where the
+ * maximum weight bounds the number of entries since each entry holds a single entity,
+ * collection or query result. Hibernate fails to start when an entity is mapped to a
+ * region that is not configured. Each region records its own statistics, published to the
+ * Micrometer registry as the {@code cache.*} meters.
+ * <p>
+ * The reference data ({@code PetType}, {@code Specialty} and {@code Vet} with its
+ * specialties) is always cached. Owners, their pets and visits are only cached when an
+ * {@value #OWNERS_REGION} region is configured.
+ */
+@Configuration(proxyBeanMethods = false)
+class HibernateCacheConfiguration {
+
+	static final String OWNERS_REGION = "owners";
+
+	private static final Log logger = LogFactory.getLog(HibernateCacheConfiguration.class);
+
+	private static final String OWNER_PACKAGE = "org.springframework.samples.petclinic.owner.";
+
+	@Bean(destroyMethod = "close")
+	CacheManager hibernateRegions(CacheSpecProperties properties) {
+		// a manager of its own, so that several application contexts can share a JVM
+		CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+			.getCacheManager(URI.create("petclinic:hibernate:" + UUID.randomUUID()), getClass().getClassLoader());
+		properties.regions().forEach((name, spec) -> cacheManager.createCache(name, createRegion(name, spec)));
+		return cacheManager;
+	}
+
+	private static CaffeineConfiguration<Object, Object> createRegion(String name, Spec spec) {
+		CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+		// Hibernate already stores disassembled, immutable state
+		configuration.setStoreByValue(false);
+		configuration.setStatisticsEnabled(true);
+		if (spec.maximumWeight() != null) {
+			configuration.setMaximumSize(OptionalLong.of(spec.maximumWeight()));
+		}
+		if (spec.expireAfterWrite() != null) {
+			configuration.setExpireAfterWrite(OptionalLong.of(spec.expireAfterWrite().toNanos()));
+		}
+		if (spec.refreshAfterWrite() != null) {
+			logger.warn("Ignoring refresh-after-write of cache region '" + name + "'");
+		}
+		return configuration;
+	}
+
+	@Bean
+	HibernatePropertiesCustomizer hibernateRegionsCustomizer(CacheManager hibernateRegions,
+			CacheSpecProperties properties) {
+		return (hibernateProperties) -> {
+			hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+			hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+			hibernateProperties.put(AvailableSettings.USE_QUERY_CACHE, true);
+			hibernateProperties.put(ConfigSettings.CACHE_MANAGER, hibernateRegions);
+			hibernateProperties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+			if (properties.regions().containsKey(OWNERS_REGION)) {
+				for (String entity : new String[] { "Owner", "Pet", "Visit" }) {
+					hibernateProperties.put("hibernate.classcache." + OWNER_PACKAGE + entity,
+							"read-write," + OWNERS_REGION);
+				}
+				for (String collection : new String[] { "Owner.pets", "Pet.visits" }) {
+					hibernateProperties.put("hibernate.collectioncache." + OWNER_PACKAGE + collection,
+							"read-write," + OWNERS_REGION);
+				}
+			}
+		};
+	}
+
+	@Bean
+	MeterBinder hibernateRegionsMetrics(CacheManager hibernateRegions) {
+		return (registry) -> {
+			for (String name : hibernateRegions.getCacheNames()) {
+				JCacheMetrics.monitor(registry, hibernateRegions.getCache(name));
+			}
+		};
+	}
+
+}
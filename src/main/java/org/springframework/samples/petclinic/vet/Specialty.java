@@ -15,9 +15,12 @@
  */
 package org.springframework.samples.petclinic.vet;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.samples.petclinic.model.NamedEntity;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.Table;
 
 /**
@@ -26,7 +29,9 @@ import jakarta.persistence.Table;
  * @author Juergen Hoeller
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "specialties")
 @Table(name = "specialties")
+@EntityListeners(VetDirectory.RefreshListener.class)
 public class Specialty extends NamedEntity {
 
 }
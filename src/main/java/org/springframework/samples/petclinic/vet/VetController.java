@@ -18,13 +18,18 @@ package org.springframework.samples.petclinic.vet;
 import java.util.List;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.system.ConditionalRequests;
+import org.springframework.samples.petclinic.vet.VetSpecialtyIndex.Match;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.ServletWebRequest;
 
 /**
  * @author Juergen Hoeller
@@ -35,19 +40,31 @@ import org.springframework.web.bind.annotation.ResponseBody;
 @Controller
 class VetController {
 
-	private final VetRepository vetRepository;
+	private static final int PAGE_SIZE = 5;
 
-	public VetController(VetRepository clinicService) {
-		this.vetRepository = clinicService;
+	private final VetDirectory vetDirectory;
+
+	public VetController(VetDirectory vetDirectory) {
+		this.vetDirectory = vetDirectory;
 	}
 
 	@GetMapping("/vets.html")
-	public String showVetList(@RequestParam(defaultValue = "1") int page, Model model) {
+	public String showVetList(@RequestParam(defaultValue = "1") int page,
+			@RequestParam(name = "specialty", defaultValue = "") List<String> specialties,
+			@RequestParam(defaultValue = "ALL") Match match, Model model, ServletWebRequest request) {
+		VetDirectory.Snapshot snapshot = this.vetDirectory.getSnapshot();
+		if (ConditionalRequests.checkPageNotModified(request, "vets-" + snapshot.version())) {
+			return null;
+		}
 		// Here we are returning an object of type 'Vets' rather than a collection of Vet
 		// objects so it is simpler for Object-Xml mapping
 		Vets vets = new Vets();
-		Page<Vet> paginated = findPaginated(page);
+		// the page is built from the snapshot the ETag was computed from
+		Page<Vet> paginated = findPaginated(page, snapshot.specialties().find(specialties, match));
 		vets.getVetList().addAll(paginated.toList());
+		model.addAttribute("specialtyNames", snapshot.specialties().getSpecialtyNames());
+		model.addAttribute("specialties", specialties);
+		model.addAttribute("match", match);
 		return addPaginationModel(page, paginated, model);
 	}
 
@@ -60,18 +77,39 @@ class VetController {
 		return "vets/vetList";
 	}
 
-	private Page<Vet> findPaginated(int page) {
-		int pageSize = 5;
-		Pageable pageable = PageRequest.of(page - 1, pageSize);
-		return vetRepository.findAll(pageable);
+	private Page<Vet> findPaginated(int page, List<Vet> matches) {
+		Pageable pageable = PageRequest.of(page - 1, PAGE_SIZE);
+		int from = (int) Math.min(pageable.getOffset(), matches.size());
+		return new PageImpl<>(matches.subList(from, Math.min(from + PAGE_SIZE, matches.size())), pageable,
+				matches.size());
 	}
 
-	@GetMapping({ "/vets" })
-	public @ResponseBody Vets showResourcesVetList() {
-		// Here we are returning an object of type 'Vets' rather than a collection of Vet
-		// objects so it is simpler for JSon/Object mapping
+	@GetMapping(value = "/vets", produces = MediaType.APPLICATION_JSON_VALUE)
+	public @ResponseBody byte[] showResourcesVetList(
+			@RequestParam(name = "specialty", defaultValue = "") List<String> specialties,
+			@RequestParam(defaultValue = "ALL") Match match, ServletWebRequest request) {
+		// The directory is serialized once per change of the vets rather than per request
+		VetDirectory.Snapshot snapshot = this.vetDirectory.getSnapshot();
+		if (ConditionalRequests.checkNotModified(request, snapshot.version() + "-json")) {
+			return null;
+		}
+		return specialties.isEmpty() ? snapshot.json() : this.vetDirectory.toJson(filter(snapshot, specialties, match));
+	}
+
+	@GetMapping(value = "/vets", produces = { MediaType.APPLICATION_XML_VALUE, MediaType.TEXT_XML_VALUE })
+	public @ResponseBody byte[] showResourcesVetListXml(
+			@RequestParam(name = "specialty", defaultValue = "") List<String> specialties,
+			@RequestParam(defaultValue = "ALL") Match match, ServletWebRequest request) {
+		VetDirectory.Snapshot snapshot = this.vetDirectory.getSnapshot();
+		if (ConditionalRequests.checkNotModified(request, snapshot.version() + "-xml")) {
+			return null;
+		}
+		return specialties.isEmpty() ? snapshot.xml() : this.vetDirectory.toXml(filter(snapshot, specialties, match));
+	}
+
+	private static Vets filter(VetDirectory.Snapshot snapshot, List<String> specialties, Match match) {
 		Vets vets = new Vets();
-		vets.getVetList().addAll(this.vetRepository.findAll());
+		vets.getVetList().addAll(snapshot.specialties().find(specialties, match));
 		return vets;
 	}
 
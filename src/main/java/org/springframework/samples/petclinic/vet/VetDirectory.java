@@ -0,0 +1,203 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
+
+/**
+ * Immutable snapshot of the vet directory served by {@code /vets}.
+ * <p>
+ * The vets and their specialties are read with a single joined query into a
+ * {@link Snapshot} holding the vets with their specialties already sorted, together with
+ * the JSON and XML representations of the directory serialized once as UTF-8 bytes. The
+ * snapshot is swapped atomically when it is {@link #refresh() refreshed}, so serving the
+ * directory is a memory copy that neither hits the database nor serializes anything. The
+ * snapshot also holds the {@link VetSpecialtyIndex} filtering the vets by specialty.
+ * Changes made to vets or specialties through JPA refresh the directory once their
+ * transaction commits, and each snapshot with new contents is announced by a
+ * {@link VetDirectoryChangedEvent}.
+ */
+@Component
+public class VetDirectory {
+
+	private final VetRepository vets;
+
+	private final ObjectMapper objectMapper;
+
+	private final JAXBContext jaxbContext;
+
+	private final ApplicationEventPublisher events;
+
+	private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+	public VetDirectory(VetRepository vets, ObjectMapper objectMapper, ApplicationEventPublisher events)
+			throws JAXBException {
+		this.vets = vets;
+		this.objectMapper = objectMapper;
+		this.events = events;
+		this.jaxbContext = JAXBContext.newInstance(Vets.class);
+	}
+
+	/**
+	 * Return the current snapshot of the directory.
+	 */
+	public Snapshot getSnapshot() {
+		Snapshot current = this.snapshot.get();
+		if (current == null) {
+			this.snapshot.compareAndSet(null, load());
+			current = this.snapshot.get();
+		}
+		return current;
+	}
+
+	/**
+	 * Reload the vets from the data store and swap in a new snapshot, publishing a
+	 * {@link VetDirectoryChangedEvent} if its contents differ from the previous one.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void refresh() {
+		Snapshot loaded = load();
+		Snapshot previous = this.snapshot.getAndSet(loaded);
+		if (previous == null || !previous.version().equals(loaded.version())) {
+			this.events.publishEvent(new VetDirectoryChangedEvent(loaded));
+		}
+	}
+
+	private Snapshot load() {
+		Vets directory = new Vets();
+		directory.getVetList().addAll(this.vets.findAllWithSpecialties());
+		List<Entry> entries = new ArrayList<>();
+		for (Vet vet : directory.getVetList()) {
+			entries.add(new Entry(vet.getId(), vet.getFirstName(), vet.getLastName(), vet.getSpecialties()));
+		}
+		byte[] json = toJson(directory);
+		return new Snapshot(List.copyOf(entries), new VetSpecialtyIndex(directory.getVetList()), json, toXml(directory),
+				DigestUtils.md5DigestAsHex(json));
+	}
+
+	/**
+	 * Serialize vets as UTF-8 JSON, like the directory.
+	 */
+	byte[] toJson(Vets directory) {
+		try {
+			return this.objectMapper.writeValueAsBytes(directory);
+		}
+		catch (JsonProcessingException ex) {
+			throw new IllegalStateException("Could not serialize the vet directory to JSON", ex);
+		}
+	}
+
+	/**
+	 * Serialize vets as UTF-8 XML, like the directory.
+	 */
+	byte[] toXml(Vets directory) {
+		try {
+			Marshaller marshaller = this.jaxbContext.createMarshaller();
+			marshaller.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
+			ByteArrayOutputStream xml = new ByteArrayOutputStream();
+			marshaller.marshal(directory, xml);
+			return xml.toByteArray();
+		}
+		catch (JAXBException ex) {
+			throw new IllegalStateException("Could not serialize the vet directory to XML", ex);
+		}
+	}
+
+	/**
+	 * Snapshot of the vet directory. The payload arrays are shared and must not be
+	 * modified.
+	 *
+	 * @param vets the vets, ordered by id
+	 * @param specialties the index of the vets by specialty
+	 * @param json the directory serialized as UTF-8 JSON
+	 * @param xml the directory serialized as UTF-8 XML
+	 * @param version a digest of the directory contents, which validates conditional
+	 * requests for the directory
+	 */
+	public record Snapshot(List<Entry> vets, VetSpecialtyIndex specialties, byte[] json, byte[] xml, String version) {
+
+	}
+
+	/**
+	 * A vet of the directory.
+	 *
+	 * @param id the vet id
+	 * @param firstName the vet's first name
+	 * @param lastName the vet's last name
+	 * @param specialties the vet's specialties, sorted by name
+	 */
+	public record Entry(Integer id, String firstName, String lastName, List<Specialty> specialties) {
+
+	}
+
+	/**
+	 * JPA entity listener on {@link Vet} and {@link Specialty} refreshing the directory
+	 * after a transaction that changed them has committed.
+	 */
+	static class RefreshListener {
+
+		private final ObjectProvider<VetDirectory> directory;
+
+		RefreshListener(ObjectProvider<VetDirectory> directory) {
+			this.directory = directory;
+		}
+
+		@PostPersist
+		@PostUpdate
+		@PostRemove
+		void vetsChanged(Object entity) {
+			VetDirectory directory = this.directory.getIfAvailable();
+			if (directory == null) {
+				return;
+			}
+			if (TransactionSynchronizationManager.isSynchronizationActive()) {
+				TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+					@Override
+					public void afterCommit() {
+						directory.refresh();
+					}
+				});
+			}
+			else {
+				directory.refresh();
+			}
+		}
+
+	}
+
+}
@@ -15,14 +15,19 @@
  */
 package org.springframework.samples.petclinic.vet;
 
-import org.springframework.cache.annotation.Cacheable;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.QueryHint;
+
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Repository class for <code>Vet</code> domain objects All method names are compliant
@@ -42,7 +47,6 @@ public interface VetRepository extends Repository<Vet, Integer> {
 	 * @return a <code>Collection</code> of <code>Vet</code>s
 	 */
 	@Transactional(readOnly = true)
-	@Cacheable("vets")
 	Collection<Vet> findAll() throws DataAccessException;
 
 	/**
@@ -52,7 +56,17 @@ public interface VetRepository extends Repository<Vet, Integer> {
 	 * @throws DataAccessException
 	 */
 	@Transactional(readOnly = true)
-	@Cacheable("vets")
 	Page<Vet> findAll(Pageable pageable) throws DataAccessException;
 
+	/**
+	 * Retrieve all <code>Vet</code>s together with their specialties from the data store
+	 * with a single joined query, ordered by id. The result is kept in the query cache.
+	 * @return a <code>List</code> of <code>Vet</code>s
+	 * @see VetDirectory
+	 */
+	@Query("SELECT DISTINCT vet FROM Vet vet LEFT JOIN FETCH vet.specialties ORDER BY vet.id")
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+	@Transactional(readOnly = true)
+	List<Vet> findAllWithSpecialties() throws DataAccessException;
+
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable inverted index of the vets by specialty, answering the specialty filters of
+ * the vet directory without going to the database.
+ * <p>
+ * Each specialty name, compared case-insensitively, maps to the bit set of the positions
+ * of the vets who have it in the directory, so that matching several specialties is an
+ * AND or an OR of bit sets. The index is built with each {@link VetDirectory.Snapshot},
+ * and so rebuilt whenever the vets or their specialties change.
+ */
+public final class VetSpecialtyIndex {
+
+	private final List<Vet> vets;
+
+	private final Map<String, BitSet> bySpecialty = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+	/**
+	 * Index vets by specialty.
+	 * @param vets the vets, which must not be modified afterwards
+	 */
+	VetSpecialtyIndex(List<Vet> vets) {
+		this.vets = List.copyOf(vets);
+		for (int i = 0; i < this.vets.size(); i++) {
+			for (Specialty specialty : this.vets.get(i).getSpecialties()) {
+				this.bySpecialty.computeIfAbsent(specialty.getName(), (name) -> new BitSet()).set(i);
+			}
+		}
+	}
+
+	/**
+	 * Return the names of the specialties that at least one vet has, sorted
+	 * case-insensitively.
+	 */
+	public Set<String> getSpecialtyNames() {
+		return Collections.unmodifiableSet(this.bySpecialty.keySet());
+	}
+
+	/**
+	 * Find the vets having some specialties.
+	 * @param specialties the names of the specialties, matched case-insensitively
+	 * @param match whether the vets must have all or any of the specialties
+	 * @return the matching vets, in directory order, or all the vets if no specialty is
+	 * given
+	 */
+	public List<Vet> find(Collection<String> specialties, Match match) {
+		if (specialties.isEmpty()) {
+			return this.vets;
+		}
+		BitSet matches = null;
+		for (String specialty : specialties) {
+			BitSet vetPositions = this.bySpecialty.getOrDefault(specialty, new BitSet());
+			if (matches == null) {
+				matches = (BitSet) vetPositions.clone();
+			}
+			else if (match == Match.ALL) {
+				matches.and(vetPositions);
+			}
+			else {
+				matches.or(vetPositions);
+			}
+		}
+		return matches.stream().mapToObj(this.vets::get).toList();
+	}
+
+	/**
+	 * How several specialties are combined.
+	 */
+	public enum Match {
+
+		/**
+		 * The vets must have all the specialties.
+		 */
+		ALL,
+
+		/**
+		 * The vets must have at least one of the specialties.
+		 */
+		ANY
+
+	}
+
+}
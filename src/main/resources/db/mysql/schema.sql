@@ -32,7 +32,8 @@ CREATE TABLE IF NOT EXISTS owners (
   address VARCHAR(255),
   city VARCHAR(80),
   telephone VARCHAR(20),
-  INDEX(last_name)
+  version INT(4) UNSIGNED NOT NULL DEFAULT 0,
+  INDEX(last_name, id)
 ) engine=InnoDB;
 
 CREATE TABLE IF NOT EXISTS pets (
@@ -51,5 +52,21 @@ CREATE TABLE IF NOT EXISTS visits (
   pet_id INT(4) UNSIGNED,
   visit_date DATE,
   description VARCHAR(255),
+  INDEX(visit_date),
   FOREIGN KEY (pet_id) REFERENCES pets(id)
 ) engine=InnoDB;
+
+-- MySQL has no sequences, so the ids Hibernate reads in blocks of 50 come from one-row
+-- tables, starting above the ids of the sample data
+CREATE TABLE IF NOT EXISTS owners_seq (next_val BIGINT) engine=InnoDB;
+INSERT INTO owners_seq SELECT 100 FROM DUAL WHERE NOT EXISTS (SELECT * FROM owners_seq);
+CREATE TABLE IF NOT EXISTS pets_seq (next_val BIGINT) engine=InnoDB;
+INSERT INTO pets_seq SELECT 100 FROM DUAL WHERE NOT EXISTS (SELECT * FROM pets_seq);
+CREATE TABLE IF NOT EXISTS visits_seq (next_val BIGINT) engine=InnoDB;
+INSERT INTO visits_seq SELECT 100 FROM DUAL WHERE NOT EXISTS (SELECT * FROM visits_seq);
+CREATE TABLE IF NOT EXISTS types_seq (next_val BIGINT) engine=InnoDB;
+INSERT INTO types_seq SELECT 100 FROM DUAL WHERE NOT EXISTS (SELECT * FROM types_seq);
+CREATE TABLE IF NOT EXISTS vets_seq (next_val BIGINT) engine=InnoDB;
+INSERT INTO vets_seq SELECT 100 FROM DUAL WHERE NOT EXISTS (SELECT * FROM vets_seq);
+CREATE TABLE IF NOT EXISTS specialties_seq (next_val BIGINT) engine=InnoDB;
+INSERT INTO specialties_seq SELECT 100 FROM DUAL WHERE NOT EXISTS (SELECT * FROM specialties_seq);
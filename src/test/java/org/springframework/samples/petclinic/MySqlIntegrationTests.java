@@ -60,7 +60,6 @@ class MySqlIntegrationTests {
 	@Test
 	void testFindAll() {
 		vets.findAll();
-		vets.findAll(); // served from cache
 	}
 
 	@Test
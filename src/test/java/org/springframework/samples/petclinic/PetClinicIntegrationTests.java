@@ -46,7 +46,6 @@ public class PetClinicIntegrationTests {
 	@Test
 	void testFindAll() {
 		vets.findAll();
-		vets.findAll(); // served from cache
 	}
 
 	@Test
@@ -81,7 +81,6 @@ public class PostgresIntegrationTests {
 	@Test
 	void testFindAll() throws Exception {
 		vets.findAll();
-		vets.findAll(); // served from cache
 	}
 
 	@Test
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.export;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.PetClinicApplication;
+import org.springframework.samples.petclinic.importer.OwnerRecord;
+import org.springframework.samples.petclinic.importer.OwnerRecord.PetRecord;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Checks the NDJSON export against the sample data, including that it reads no entities
+ * and that its lines can be imported back.
+ */
+@SpringBootTest(classes = PetClinicApplication.class,
+		properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+class OwnerExportIntegrationTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void shouldExportEveryOwnerWithTheirPetsAndVisitsInOneStatement() throws Exception {
+		Statistics statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		List<JsonNode> owners = export();
+
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(statistics.getEntityLoadCount()).isZero();
+		assertThat(owners).extracting((owner) -> owner.get("id").asInt()).isSorted().contains(1, 6, 10);
+		JsonNode jean = owners.stream().filter((owner) -> owner.get("id").asInt() == 6).findFirst().orElseThrow();
+		assertThat(jean.get("lastName").asText()).isEqualTo("Coleman");
+		assertThat(jean.get("pets").findValuesAsText("name")).containsExactly("Samantha", "Max");
+		assertThat(jean.get("pets").get(0).get("visits").findValuesAsText("date")).containsExactly("2013-01-01",
+				"2013-01-04");
+		JsonNode eduardo = owners.stream().filter((owner) -> owner.get("id").asInt() == 3).findFirst().orElseThrow();
+		assertThat(eduardo.get("pets").findValuesAsText("name")).containsExactly("Rosy", "Jewel");
+		assertThat(eduardo.get("pets").get(0).get("visits")).isEmpty();
+	}
+
+	@Test
+	void shouldExportOwnersInTheImportFormat() throws Exception {
+		JsonNode george = export().get(0);
+
+		OwnerRecord owner = this.objectMapper.treeToValue(george, OwnerRecord.class);
+
+		assertThat(owner.lastName()).isEqualTo("Franklin");
+		assertThat(owner.pets()).extracting(PetRecord::name, PetRecord::type).containsExactly(tuple("Leo", "cat"));
+		assertThat(owner.pets().get(0).visits()).isEmpty();
+	}
+
+	private List<JsonNode> export() throws Exception {
+		String body = this.mockMvc.perform(get("/api/export/owners.ndjson"))
+			.andExpect(status().isOk())
+			.andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+			.andReturn()
+			.getResponse()
+			.getContentAsString();
+		assertThat(body).endsWith("\n");
+		List<JsonNode> owners = new ArrayList<>();
+		for (String line : body.split("\n")) {
+			assertThat(line).startsWith("{");
+			owners.add(this.objectMapper.readTree(line));
+		}
+		return owners;
+	}
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.samples.petclinic.importer.OwnerRecord.PetRecord;
+import org.springframework.samples.petclinic.importer.OwnerRecord.VisitRecord;
+import org.springframework.samples.petclinic.importer.OwnerRecordReader.Entry;
+
+/**
+ * Tests for {@link CsvOwnerRecordReader}.
+ */
+class CsvOwnerRecordReaderTests {
+
+	private static final String HEADER = "owner_ref,first_name,last_name,address,city,telephone,"
+			+ "pet_name,pet_birth_date,pet_type,visit_date,visit_description\n";
+
+	@Test
+	void groupsTheRowsOfAnOwnerAndOfTheirPets() throws IOException {
+		List<Entry> entries = read(HEADER //
+				+ "a1,George,Franklin,110 W. Liberty St.,Madison,6085551023,Leo,2010-09-07,cat,2013-01-01,rabies shot\n"
+				+ "a1,,,,,,leo,,,2013-01-02,neutered\n" //
+				+ "a1,,,,,,Basil,2012-08-06,hamster,,\n" //
+				+ "b2,Betty,Davis,638 Cardinal Ave.,Sun Prairie,6085551749,,,,,\n");
+
+		assertThat(entries).extracting(Entry::line).containsExactly(2L, 5L);
+		OwnerRecord george = entries.get(0).owner();
+		assertThat(george.lastName()).isEqualTo("Franklin");
+		assertThat(george.pets()).extracting(PetRecord::name).containsExactly("Leo", "Basil");
+		assertThat(george.pets().get(0).birthDate()).isEqualTo(LocalDate.of(2010, 9, 7));
+		assertThat(george.pets().get(0).visits()).extracting(VisitRecord::description)
+			.containsExactly("rabies shot", "neutered");
+		assertThat(george.pets().get(1).visits()).isEmpty();
+		assertThat(entries.get(1).owner().pets()).isEmpty();
+	}
+
+	@Test
+	void readsQuotedValues() throws IOException {
+		List<Entry> entries = read("first_name,last_name,address,city,telephone,owner_ref,visit_description,pet_name\n"
+				+ "Jean,Coleman,\"105 N. Lake St., Apt \"\"B\"\"\",Monona,6085552654,c3,\"two\r\nlines\",Max\r\n" + "\n" //
+				+ "Jeff,Black,1450 Oak Blvd.,Monona,6085555387,d4,,\n");
+
+		assertThat(entries).extracting(Entry::line).containsExactly(2L, 5L);
+		assertThat(entries.get(0).owner().address()).isEqualTo("105 N. Lake St., Apt \"B\"");
+		assertThat(entries.get(0).owner().pets().get(0).visits()).extracting(VisitRecord::description)
+			.containsExactly("two\r\nlines");
+	}
+
+	@Test
+	void reportsTheRowsThatCannotBeRead() throws IOException {
+		List<Entry> entries = read(HEADER //
+				+ "a1,George,Franklin,110 W. Liberty St.,Madison,6085551023,Leo,2010-09-07,cat,,\n"
+				+ "a1,,,,,,Leo,,,2013-13-01,rabies shot\n" //
+				+ ",Betty,Davis,638 Cardinal Ave.,Sun Prairie,6085551749,,,,,\n"
+				+ "c3,Eduardo,Rodriquez,2693 Commerce St.,McFarland,6085558763,,,,2013-01-01,checkup\n");
+
+		assertThat(entries).extracting(Entry::owner).containsOnlyNulls();
+		assertThat(entries).extracting(Entry::error)
+			.containsExactly("invalid date '2013-13-01' (line 3)", "owner_ref: required",
+					"pet_name: required (line 5)");
+	}
+
+	@Test
+	void rejectsAHeaderWithoutTheOwnerColumns() {
+		assertThatIllegalArgumentException().isThrownBy(() -> read("owner_ref,first_name,pet_name\n"))
+			.withMessage("Missing CSV columns: last_name, address, city, telephone");
+	}
+
+	private static List<Entry> read(String csv) throws IOException {
+		List<Entry> entries = new ArrayList<>();
+		try (CsvOwnerRecordReader reader = new CsvOwnerRecordReader(new StringReader(csv))) {
+			for (Entry entry = reader.next(); entry != null; entry = reader.next()) {
+				entries.add(entry);
+			}
+		}
+		return entries;
+	}
+
+}
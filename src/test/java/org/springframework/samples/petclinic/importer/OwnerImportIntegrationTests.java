@@ -0,0 +1,173 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.samples.petclinic.PetClinicApplication;
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.owner.Pet;
+import org.springframework.samples.petclinic.owner.Visit;
+import org.springframework.samples.petclinic.search.SearchIndex;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Checks the bulk import against the database, with chunks small enough to be written in
+ * parallel, including the owners rejected by the validation and by the database.
+ */
+@SpringBootTest(classes = PetClinicApplication.class,
+		properties = { "petclinic.import.chunk-size=2", "petclinic.import.parallelism=2" })
+@AutoConfigureMockMvc
+class OwnerImportIntegrationTests {
+
+	private static final String HEADER = "owner_ref,first_name,last_name,address,city,telephone,"
+			+ "pet_name,pet_birth_date,pet_type,visit_date,visit_description\n";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private OwnerImporter importer;
+
+	@Autowired
+	private OwnerRepository owners;
+
+	@Autowired
+	private SearchIndex searchIndex;
+
+	@Test
+	void shouldImportCsvOwnersWithTheirPetsAndVisits() throws Exception {
+		mockMvc.perform(post("/api/import/owners").contentType("text/csv")
+			.content(HEADER //
+					+ "1,Ann,Csvimport,1 Main St.,Importville,6085550001,Rex,2019-05-01,dog,2024-01-02,checkup\n"
+					+ "1,,,,,,Rex,,,2024-02-03,vaccination\n" //
+					+ "1,,,,,,Tom,2020-06-01,cat,,\n" //
+					+ "2,Bob,Csvimport,2 Main St.,Importville,6085550002,,,,,\n" //
+					+ "3,Carl,Csvimport,3 Main St.,Importville,not a phone,,,,,\n" //
+					+ "4,Dora,Csvimport,4 Main St.,Importville,6085550004,,,,,\n"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.read").value(4))
+			.andExpect(jsonPath("$.imported").value(3))
+			.andExpect(jsonPath("$.rejected").value(1))
+			.andExpect(jsonPath("$.rejections", hasSize(1)))
+			.andExpect(jsonPath("$.rejections[0].line").value(6))
+			.andExpect(jsonPath("$.rejections[0].owner").value("Carl Csvimport"))
+			.andExpect(jsonPath("$.rejections[0].errors[0]").value(containsString("telephone")));
+
+		assertThat(this.owners.findByLastName("Csvimport", PageRequest.of(0, 10))).extracting(Owner::getFirstName)
+			.containsExactlyInAnyOrder("Ann", "Bob", "Dora");
+		Owner ann = this.owners.findById(ownerId("Csvimport", "Ann"));
+		assertThat(ann.getPets()).extracting(Pet::getName).containsExactly("Rex", "Tom");
+		assertThat(ann.getPet("Rex").getVisits()).extracting(Visit::getDescription)
+			.containsExactly("checkup", "vaccination");
+		assertThat(this.searchIndex.search("csvimport", PageRequest.of(0, 10))).hasSize(3);
+	}
+
+	@Test
+	void shouldImportNdjsonOwnersAndRejectInvalidPets() throws Exception {
+		mockMvc
+			.perform(post("/api/import/owners").contentType("application/x-ndjson")
+				.content(
+						"""
+								{"firstName":"Eve","lastName":"Jsonimport","address":"5 Main St.","city":"Importville","telephone":"6085550005","pets":[{"name":"Kiwi","birthDate":"2021-03-04","type":"bird","visits":[{"date":"2024-03-05","description":"wing clipped"}]}]}
+
+								{"firstName":"Fay","lastName":"Jsonimport","address":"6 Main St.","city":"Importville","telephone":"6085550006","pets":[{"name":"Rex","birthDate":"2019-05-01","type":"dinosaur"},{"name":"Max","type":"dog","visits":[{"description":""}]},{"name":"max","birthDate":"2019-05-01","type":"dog"}]}
+								{"firstName":"Gus",
+								"""))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.read").value(3))
+			.andExpect(jsonPath("$.imported").value(1))
+			.andExpect(jsonPath("$.rejections[0].line").value(3))
+			.andExpect(jsonPath("$.rejections[0].errors[0]").value("pets[0].type: unknown pet type 'dinosaur'"))
+			.andExpect(jsonPath("$.rejections[0].errors[1]").value("pets[1].birthDate: required"))
+			.andExpect(jsonPath("$.rejections[0].errors[2]").value("pets[1].visits[0].date: required"))
+			.andExpect(jsonPath("$.rejections[0].errors[3]").value(containsString("pets[1].visits[0].description")))
+			.andExpect(jsonPath("$.rejections[0].errors[4]").value("pets[2].name: already exists"))
+			.andExpect(jsonPath("$.rejections[1].line").value(4))
+			.andExpect(jsonPath("$.rejections[1].errors[0]").value(containsString("invalid JSON")));
+
+		Owner eve = this.owners.findById(ownerId("Jsonimport", "Eve"));
+		assertThat(eve.getPet("Kiwi").getType().getName()).isEqualTo("bird");
+		assertThat(eve.getPet("Kiwi").getVisits()).extracting(Visit::getDescription).containsExactly("wing clipped");
+	}
+
+	@Test
+	void shouldRejectNdjsonLinesThatAreNotOwnerObjects() throws Exception {
+		mockMvc
+			.perform(post("/api/import/owners").contentType("application/x-ndjson")
+				.content(
+						"""
+								null
+								[{"firstName":"Hal"}]
+								{"firstName":"Ida","lastName":"Nullimport","address":"9 Main St.","city":"Importville","telephone":"6085550009"}
+								"""))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.read").value(3))
+			.andExpect(jsonPath("$.imported").value(1))
+			.andExpect(jsonPath("$.rejections[0].line").value(1))
+			.andExpect(jsonPath("$.rejections[0].errors[0]").value("not an owner object"))
+			.andExpect(jsonPath("$.rejections[1].line").value(2))
+			.andExpect(jsonPath("$.rejections[1].errors[0]").value("not an owner object"));
+
+		assertThat(this.owners.findById(ownerId("Nullimport", "Ida")).getCity()).isEqualTo("Importville");
+	}
+
+	@Test
+	void shouldRejectOnlyTheOwnersTheDatabaseRejects() throws IOException {
+		String tooLong = "X".repeat(31);
+		ImportReport report = this.importer.importOwners(new StringReader(HEADER //
+				+ "1,Hal,Dbimport,8 Main St.,Importville,6085550008,,,,,\n" //
+				+ "2," + tooLong + ",Dbimport,9 Main St.,Importville,6085550009,,,,,\n"
+				+ "3,Ida,Dbimport,10 Main St.,Importville,6085550010,,,,,\n"), ImportFormat.CSV);
+
+		assertThat(report.imported()).isEqualTo(2);
+		assertThat(report.rejections()).singleElement().satisfies((rejection) -> {
+			assertThat(rejection.line()).isEqualTo(3);
+			assertThat(rejection.errors()).singleElement().asString().startsWith("not written: ");
+		});
+		assertThat(this.owners.findByLastName("Dbimport", PageRequest.of(0, 10))).extracting(Owner::getFirstName)
+			.containsExactlyInAnyOrder("Hal", "Ida");
+	}
+
+	@Test
+	void shouldRejectCsvWithoutTheOwnerColumns() throws Exception {
+		mockMvc.perform(post("/api/import/owners").contentType("text/csv").content("owner_ref,first_name\n1,Jo\n"))
+			.andExpect(status().isBadRequest());
+	}
+
+	private int ownerId(String lastName, String firstName) {
+		return this.owners.findByLastName(lastName, PageRequest.of(0, 10))
+			.filter((owner) -> owner.getFirstName().equals(firstName))
+			.toList()
+			.get(0)
+			.getId();
+	}
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.jayway.jsonpath.JsonPath;
+
+/**
+ * Checks the large-owner mode of the owner page and the visit timeline against the sample
+ * data, treating every owner with more than one pet as a large owner.
+ */
+@SpringBootTest(properties = "petclinic.owners.large-owner-pets=1")
+@AutoConfigureMockMvc
+class LargeOwnerIntegrationTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void shouldPageThePetsOfLargeOwners() throws Exception {
+		mockMvc.perform(get("/owners/{ownerId}", 6))
+			.andExpect(status().isOk())
+			.andExpect(model().attribute("petPage", hasSize(2)))
+			.andExpect(model().attribute("totalItems", 2L))
+			.andExpect(content().string(containsString("Samantha")))
+			.andExpect(content().string(containsString("/owners/6/pets/7/visits")))
+			.andExpect(content().string(containsString("Show visits (2, last on 2013-01-04)")));
+		mockMvc.perform(get("/owners/{ownerId}", 1))
+			.andExpect(status().isOk())
+			.andExpect(model().attribute("petPage", nullValue()));
+	}
+
+	@Test
+	void shouldReadTheVisitTimelineWithCursors() throws Exception {
+		String first = mockMvc.perform(get("/owners/{ownerId}/pets/{petId}/visits", 6, 7).param("limit", "1"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.visits", hasSize(1)))
+			.andExpect(jsonPath("$.visits[0].date").value("2013-01-04"))
+			.andExpect(jsonPath("$.visits[0].description").value("spayed"))
+			.andReturn()
+			.getResponse()
+			.getContentAsString();
+
+		mockMvc
+			.perform(get("/owners/{ownerId}/pets/{petId}/visits", 6, 7).param("limit", "1")
+				.param("cursor", JsonPath.<String>read(first, "$.next")))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.visits[0].date").value("2013-01-01"))
+			.andExpect(jsonPath("$.next").value(nullValue()));
+	}
+
+	@Test
+	void shouldRejectAMalformedTimelineCursor() throws Exception {
+		mockMvc.perform(get("/owners/{ownerId}/pets/{petId}/visits", 6, 7).param("cursor", "not a cursor"))
+			.andExpect(status().isBadRequest());
+		mockMvc
+			.perform(get("/owners/{ownerId}/pets/{petId}/visits", 6, 7).param("cursor",
+					Base64.getUrlEncoder().encodeToString("2013-13-01:8".getBytes(StandardCharsets.UTF_8))))
+			.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void shouldNotReadTheVisitsOfAnotherOwnersPet() throws Exception {
+		mockMvc.perform(get("/owners/{ownerId}/pets/{petId}/visits", 1, 7))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.visits", hasSize(0)));
+	}
+
+}
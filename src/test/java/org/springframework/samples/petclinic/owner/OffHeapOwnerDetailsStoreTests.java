@@ -0,0 +1,119 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.samples.petclinic.owner.OwnerDetails.PetDetails;
+import org.springframework.samples.petclinic.owner.OwnerDetails.VisitDetails;
+
+/**
+ * Test class for {@link OffHeapOwnerDetailsStore}
+ */
+class OffHeapOwnerDetailsStoreTests {
+
+	private final OwnerDetailsCodec codec = new OwnerDetailsCodec();
+
+	@Test
+	void shouldStoreAndRemoveOwners() {
+		OffHeapOwnerDetailsStore store = new OffHeapOwnerDetailsStore(this.codec, 2, 1024);
+		OwnerDetails franklin = owner(1, "Franklin");
+
+		assertThat(store.put(franklin)).isTrue();
+		assertThat(store.put(owner(2, "Davis"))).isTrue();
+
+		assertThat(store.get(1)).isEqualTo(franklin);
+		assertThat(store.size()).isEqualTo(2);
+		store.remove(1);
+		assertThat(store.get(1)).isNull();
+		assertThat(store.get(2)).isNotNull();
+		assertThat(store.size()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldAccountForLiveAndDeadBytes() {
+		OffHeapOwnerDetailsStore store = new OffHeapOwnerDetailsStore(this.codec, 2, 1024);
+		int length = Integer.BYTES + this.codec.encode(owner(1, "Franklin")).remaining();
+
+		store.put(owner(1, "Franklin"));
+		store.put(owner(1, "Franklin"));
+
+		assertThat(store.capacityBytes()).isEqualTo(2048);
+		assertThat(store.liveBytes()).isEqualTo(length);
+		assertThat(store.usedBytes()).isEqualTo(2L * length);
+		store.clear();
+		assertThat(store.liveBytes()).isZero();
+		assertThat(store.usedBytes()).isZero();
+		assertThat(store.size()).isZero();
+	}
+
+	@Test
+	void shouldEvictTheOldestSlabWhenFull() {
+		int length = Integer.BYTES + this.codec.encode(owner(1, "Franklin")).remaining();
+		// two entries per slab
+		OffHeapOwnerDetailsStore store = new OffHeapOwnerDetailsStore(this.codec, 2, 2 * length + 1);
+
+		for (int id = 1; id <= 5; id++) {
+			store.put(owner(id, "Franklin"));
+		}
+
+		assertThat(store.get(1)).isNull();
+		assertThat(store.get(2)).isNull();
+		assertThat(store.get(3)).isNotNull();
+		assertThat(store.get(5)).isNotNull();
+		assertThat(store.evictions()).isEqualTo(2);
+		assertThat(store.size()).isEqualTo(3);
+		assertThat(store.liveBytes()).isEqualTo(3L * length);
+	}
+
+	@Test
+	void shouldNotEvictEntriesRewrittenToANewerSlab() {
+		int length = Integer.BYTES + this.codec.encode(owner(1, "Franklin")).remaining();
+		OffHeapOwnerDetailsStore store = new OffHeapOwnerDetailsStore(this.codec, 2, 2 * length + 1);
+
+		store.put(owner(1, "Franklin"));
+		store.put(owner(2, "Franklin"));
+		store.put(owner(1, "Franklin"));
+		store.put(owner(3, "Franklin"));
+		store.put(owner(4, "Franklin"));
+
+		assertThat(store.get(1)).isNotNull();
+		assertThat(store.get(2)).isNull();
+		assertThat(store.evictions()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldNotStoreOwnersLargerThanASlab() {
+		int length = Integer.BYTES + this.codec.encode(owner(1, "F")).remaining();
+		OffHeapOwnerDetailsStore store = new OffHeapOwnerDetailsStore(this.codec, 2, length + 8);
+		assertThat(store.put(owner(1, "F"))).isTrue();
+
+		assertThat(store.put(owner(1, "Franklin".repeat(10)))).isFalse();
+		assertThat(store.get(1)).isNull();
+		assertThat(store.size()).isZero();
+	}
+
+	private static OwnerDetails owner(int id, String lastName) {
+		PetDetails pet = new PetDetails(id * 10, "Leo", LocalDate.of(2010, 9, 7), "cat",
+				List.of(new VisitDetails(LocalDate.of(2013, 1, 1), "rabies shot")));
+		return new OwnerDetails(id, 0, "George", lastName, "110 W. Liberty St.", "Madison", "6085551023", List.of(pet));
+	}
+
+}
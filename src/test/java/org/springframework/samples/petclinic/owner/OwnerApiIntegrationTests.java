@@ -0,0 +1,132 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.owner.OwnerDetails.PetDetails;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Checks the owner multi-get API against the sample data, in each of its encodings, and
+ * that it reads each level of the aggregate in a single statement.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+class OwnerApiIntegrationTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setup() {
+		this.statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		this.statistics.clear();
+	}
+
+	@Test
+	void shouldLoadOwnersInTheRequestedOrderWithOneStatementPerLevel() throws Exception {
+		List<OwnerDetails> owners = read(this.objectMapper, MediaType.APPLICATION_JSON, "6,3,999,6");
+
+		// the owners, then their pets, then the visits of these pets
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+		assertThat(statistics.getEntityLoadCount()).isZero();
+		assertThat(owners).extracting(OwnerDetails::id).containsExactly(6, 3);
+		OwnerDetails jean = owners.get(0);
+		assertThat(jean.lastName()).isEqualTo("Coleman");
+		assertThat(jean.pets()).extracting(PetDetails::name).containsExactly("Max", "Samantha");
+		PetDetails samantha = jean.pets().get(1);
+		assertThat(samantha.type()).isEqualTo("cat");
+		assertThat(samantha.visits()).extracting(OwnerDetails.VisitDetails::date)
+			.containsExactly(LocalDate.of(2013, 1, 1), LocalDate.of(2013, 1, 4));
+		assertThat(owners.get(1).pets()).extracting(PetDetails::name).containsExactly("Jewel", "Rosy");
+		assertThat(owners.get(1).pets().get(0).visits()).isEmpty();
+	}
+
+	@Test
+	void shouldEncodeTheSameOwnersAsCborAndSmile() throws Exception {
+		List<OwnerDetails> json = read(this.objectMapper, MediaType.APPLICATION_JSON, "1,6,10");
+		ObjectMapper cbor = new ObjectMapper(new CBORFactory()).registerModule(new JavaTimeModule());
+		ObjectMapper smile = new ObjectMapper(new SmileFactory()).registerModule(new JavaTimeModule());
+
+		assertThat(read(cbor, MediaType.APPLICATION_CBOR, "1,6,10")).isEqualTo(json);
+		assertThat(read(smile, MediaType.valueOf(OwnerApiController.APPLICATION_SMILE_VALUE), "1,6,10"))
+			.isEqualTo(json);
+	}
+
+	@Test
+	void shouldDefaultToJson() throws Exception {
+		mockMvc.perform(get("/api/owners").param("ids", "1"))
+			.andExpect(status().isOk())
+			.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+			.andExpect(content().string(containsString("\"birthDate\":\"2010-09-07\"")));
+	}
+
+	@Test
+	void shouldRejectTooManyIds() throws Exception {
+		String ids = IntStream.rangeClosed(1, OwnerApiController.MAX_IDS + 1)
+			.mapToObj(Integer::toString)
+			.collect(Collectors.joining(","));
+		mockMvc.perform(get("/api/owners").param("ids", ids)).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/api/owners").param("ids", "one")).andExpect(status().isBadRequest());
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+	}
+
+	private List<OwnerDetails> read(ObjectMapper mapper, MediaType mediaType, String ids) throws Exception {
+		byte[] body = mockMvc.perform(get("/api/owners").param("ids", ids).accept(mediaType))
+			.andExpect(status().isOk())
+			.andExpect(content().contentTypeCompatibleWith(mediaType))
+			.andReturn()
+			.getResponse()
+			.getContentAsByteArray();
+		return Arrays.asList(mapper.readValue(body, OwnerDetails[].class));
+	}
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
+
+import java.util.List;
+
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.samples.petclinic.owner.OwnerFacetIndex.Facets;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+/**
+ * Checks the faceted browsing of the owners against the sample data, including the owners
+ * changed after the index was loaded.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class OwnerBrowseIntegrationTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void shouldFilterByCityAndPetType() throws Exception {
+		MvcResult result = mockMvc.perform(get("/owners/browse").param("city", "Madison").param("type", "dog"))
+			.andExpect(status().isOk())
+			.andExpect(view().name("owners/ownersBrowse"))
+			.andExpect(content().string(Matchers.containsString("Maria Escobito")))
+			.andReturn();
+
+		Facets facets = (Facets) result.getModelAndView().getModel().get("facets");
+		List<?> owners = (List<?>) result.getModelAndView().getModel().get("listOwners");
+		assertThat(owners).extracting("city").containsOnly("Madison");
+		assertThat(facets.total()).isEqualTo(owners.size());
+		assertThat(facets.cities()).containsKey("Sun Prairie");
+	}
+
+	@Test
+	void shouldFilterByPetCountAndVisitRecency() throws Exception {
+		MvcResult result = mockMvc.perform(get("/owners/browse").param("pets", "TWO").param("visited", "NEVER"))
+			.andExpect(status().isOk())
+			.andReturn();
+
+		List<?> owners = (List<?>) result.getModelAndView().getModel().get("listOwners");
+		assertThat(owners).extracting("petNames").allSatisfy((names) -> assertThat((String) names).contains(", "));
+	}
+
+	@Test
+	void shouldIndexCreatedOwners() throws Exception {
+		mockMvc
+			.perform(post("/owners/new").param("firstName", "Rosa")
+				.param("lastName", "Facetta")
+				.param("address", "1 Bitmap Row")
+				.param("city", "Fitchburg")
+				.param("telephone", "6085550199"))
+			.andExpect(status().is3xxRedirection());
+
+		mockMvc.perform(get("/owners/browse").param("city", "Fitchburg").param("pets", "NONE"))
+			.andExpect(status().isOk())
+			.andExpect(content().string(Matchers.containsString("Rosa Facetta")))
+			.andExpect(content().string(Matchers.containsString("Fitchburg (1)")));
+	}
+
+}
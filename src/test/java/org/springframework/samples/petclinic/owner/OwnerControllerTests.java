@@ -18,33 +18,52 @@ package org.springframework.samples.petclinic.owner;
 
 import org.assertj.core.util.Lists;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.DisabledInNativeImage;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
-import org.springframework.data.domain.Page;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.aot.DisabledInAotMode;
 import org.springframework.test.web.servlet.MockMvc;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
 
-import static org.hamcrest.Matchers.empty;
-import static org.hamcrest.Matchers.greaterThan;
-import static org.hamcrest.Matchers.hasItem;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasProperty;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
-import static org.hamcrest.Matchers.not;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
@@ -54,7 +73,11 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  *
  * @author Colin But
  */
-@WebMvcTest(OwnerController.class)
+@Import(SimpleMeterRegistry.class)
+@WebMvcTest(value = OwnerController.class,
+		includeFilters = @ComponentScan.Filter(
+				value = { OwnerIdentityMap.class, OwnerService.class, OwnerDetailsCache.class },
+				type = FilterType.ASSIGNABLE_TYPE))
 @DisabledInNativeImage
 @DisabledInAotMode
 class OwnerControllerTests {
@@ -67,6 +90,15 @@ class OwnerControllerTests {
 	@MockBean
 	private OwnerRepository owners;
 
+	@MockBean
+	private VisitRepository visits;
+
+	@MockBean
+	private OwnerNameIndex nameIndex;
+
+	@Autowired
+	private OwnerDetailsCache ownerDetails;
+
 	private Owner george() {
 		Owner george = new Owner();
 		george.setId(TEST_OWNER_ID);
@@ -86,16 +118,29 @@ class OwnerControllerTests {
 		return george;
 	}
 
+	private OwnerSummary georgeSummary() {
+		return new OwnerSummary(TEST_OWNER_ID, "George", "Franklin", "110 W. Liberty St.", "Madison", "6085551023",
+				"Max");
+	}
+
+	private OwnerSummary bettySummary() {
+		return new OwnerSummary(2, "Betty", "Davis", "638 Cardinal Ave.", "Sun Prairie", "6085551749", null);
+	}
+
 	@BeforeEach
 	void setup() {
 
 		Owner george = george();
-		given(this.owners.findByLastName(eq("Franklin"), any(Pageable.class)))
-			.willReturn(new PageImpl<>(Lists.newArrayList(george)));
+		given(this.nameIndex.hasPrefix(anyString())).willReturn(true);
+		given(this.owners.findSliceByLastName(eq("Franklin"), any(Pageable.class)))
+			.willReturn(new SliceImpl<>(Lists.newArrayList(georgeSummary())));
 
 		given(this.owners.findAll(any(Pageable.class))).willReturn(new PageImpl<>(Lists.newArrayList(george)));
 
 		given(this.owners.findById(TEST_OWNER_ID)).willReturn(george);
+		given(this.owners.findWithoutPetsById(TEST_OWNER_ID)).willReturn(george);
+		given(this.owners.findVersionAndPetCountById(TEST_OWNER_ID)).willReturn(new OwnerVersion(3, 1L));
+		given(this.owners.updateContactDetails(any(Owner.class))).willReturn(1);
 		Visit visit = new Visit();
 		visit.setDate(LocalDate.now());
 		george.getPet("Max").getVisits().add(visit);
@@ -142,15 +187,47 @@ class OwnerControllerTests {
 
 	@Test
 	void testProcessFindFormSuccess() throws Exception {
-		Page<Owner> tasks = new PageImpl<>(Lists.newArrayList(george(), new Owner()));
-		Mockito.when(this.owners.findByLastName(anyString(), any(Pageable.class))).thenReturn(tasks);
-		mockMvc.perform(get("/owners?page=1")).andExpect(status().isOk()).andExpect(view().name("owners/ownersList"));
+		Slice<OwnerSummary> tasks = new SliceImpl<>(Lists.newArrayList(georgeSummary(), bettySummary()));
+		Mockito.when(this.owners.findSliceByLastName(anyString(), any(Pageable.class))).thenReturn(tasks);
+		mockMvc.perform(get("/owners?page=1"))
+			.andExpect(status().isOk())
+			.andExpect(view().name("owners/ownersList"))
+			.andExpect(content().string(containsString("Max")));
+		// a single page of results needs no count
+		verify(this.owners, never()).countByLastName(anyString());
+	}
+
+	@Test
+	void testProcessFindFormSizesThePageBarFromTheNameIndex() throws Exception {
+		Slice<OwnerSummary> tasks = new SliceImpl<>(Lists.newArrayList(georgeSummary(), bettySummary()),
+				PageRequest.of(0, 2), true);
+		Mockito.when(this.owners.findSliceByLastName(eq(""), any(Pageable.class))).thenReturn(tasks);
+		given(this.nameIndex.count("")).willReturn(12);
+		mockMvc.perform(get("/owners"))
+			.andExpect(status().isOk())
+			.andExpect(view().name("owners/ownersList"))
+			.andExpect(model().attribute("totalPages", 3))
+			.andExpect(content().string(containsString("/owners?page=3")));
+		verify(this.owners, never()).countByLastName(anyString());
+	}
+
+	@Test
+	void testProcessFindFormNeverHidesTheNextPage() throws Exception {
+		Slice<OwnerSummary> tasks = new SliceImpl<>(Lists.newArrayList(georgeSummary(), bettySummary()),
+				PageRequest.of(0, 2), true);
+		Mockito.when(this.owners.findSliceByLastName(eq(""), any(Pageable.class))).thenReturn(tasks);
+		// an index lagging behind the database
+		given(this.nameIndex.count("")).willReturn(2);
+		mockMvc.perform(get("/owners"))
+			.andExpect(status().isOk())
+			.andExpect(model().attribute("totalPages", 2))
+			.andExpect(content().string(containsString("/owners?page=2")));
 	}
 
 	@Test
 	void testProcessFindFormByLastName() throws Exception {
-		Page<Owner> tasks = new PageImpl<>(Lists.newArrayList(george()));
-		Mockito.when(this.owners.findByLastName(eq("Franklin"), any(Pageable.class))).thenReturn(tasks);
+		Slice<OwnerSummary> tasks = new SliceImpl<>(Lists.newArrayList(georgeSummary()));
+		Mockito.when(this.owners.findSliceByLastName(eq("Franklin"), any(Pageable.class))).thenReturn(tasks);
 		mockMvc.perform(get("/owners?page=1").param("lastName", "Franklin"))
 			.andExpect(status().is3xxRedirection())
 			.andExpect(view().name("redirect:/owners/" + TEST_OWNER_ID));
@@ -158,8 +235,8 @@ class OwnerControllerTests {
 
 	@Test
 	void testProcessFindFormNoOwnersFound() throws Exception {
-		Page<Owner> tasks = new PageImpl<>(Lists.newArrayList());
-		Mockito.when(this.owners.findByLastName(eq("Unknown Surname"), any(Pageable.class))).thenReturn(tasks);
+		Slice<OwnerSummary> tasks = new SliceImpl<>(Lists.newArrayList());
+		Mockito.when(this.owners.findSliceByLastName(eq("Unknown Surname"), any(Pageable.class))).thenReturn(tasks);
 		mockMvc.perform(get("/owners?page=1").param("lastName", "Unknown Surname"))
 			.andExpect(status().isOk())
 			.andExpect(model().attributeHasFieldErrors("owner", "lastName"))
@@ -168,6 +245,118 @@ class OwnerControllerTests {
 
 	}
 
+	@Test
+	void testProcessFindFormNoOwnersFoundInTheNameIndex() throws Exception {
+		given(this.nameIndex.hasPrefix("Unknown Surname")).willReturn(false);
+		mockMvc.perform(get("/owners?page=1").param("lastName", "Unknown Surname"))
+			.andExpect(status().isOk())
+			.andExpect(model().attributeHasFieldErrorCode("owner", "lastName", "notFound"))
+			.andExpect(view().name("owners/findOwners"));
+		verify(this.owners, never()).findSliceByLastName(anyString(), any(Pageable.class));
+	}
+
+	@Test
+	void testSuggestLastNames() throws Exception {
+		given(this.nameIndex.suggest("da", 10))
+			.willReturn(List.of(new OwnerNameIndex.Suggestion("Davis", 2, List.of(2, 4))));
+		mockMvc.perform(get("/owners/suggest").param("prefix", "da"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$[0].lastName").value("Davis"))
+			.andExpect(jsonPath("$[0].count").value(2))
+			.andExpect(jsonPath("$[0].ownerIds[1]").value(4));
+	}
+
+	@Test
+	void testSuggestLastNamesCapsTheLimit() throws Exception {
+		mockMvc.perform(get("/owners/suggest").param("prefix", "").param("limit", "1000")).andExpect(status().isOk());
+		verify(this.nameIndex).suggest("", 50);
+	}
+
+	@Nested
+	@TestPropertySource(properties = "petclinic.owners.keyset-pagination=true")
+	class KeysetPaginationTests {
+
+		// injected from this class' own context, the mocked repository is inherited
+		@Autowired
+		private MockMvc mockMvc;
+
+		@Autowired
+		private OwnerRepository owners;
+
+		@Autowired
+		private OwnerNameIndex nameIndex;
+
+		@BeforeEach
+		void setup() {
+			given(nameIndex.hasPrefix(anyString())).willReturn(true);
+		}
+
+		@Test
+		void testProcessFindFormFirstWindow() throws Exception {
+			given(owners.findByLastNameAfter(eq(""), eq(""), eq(0), any(Limit.class)))
+				.willReturn(davises(1, 2, 3, 4, 5, 6));
+			mockMvc.perform(get("/owners"))
+				.andExpect(status().isOk())
+				.andExpect(view().name("owners/ownersList"))
+				.andExpect(model().attribute("listOwners", hasSize(5)))
+				.andExpect(model().attribute("nextCursor", new OwnerCursor("Davis", 5, false).encode()))
+				.andExpect(model().attributeDoesNotExist("previousCursor", "totalPages"));
+		}
+
+		@Test
+		void testProcessFindFormSingleOwner() throws Exception {
+			given(owners.findByLastNameAfter(eq("Franklin"), eq(""), eq(0), any(Limit.class)))
+				.willReturn(Lists.newArrayList(georgeSummary()));
+			mockMvc.perform(get("/owners").param("lastName", "Franklin"))
+				.andExpect(status().is3xxRedirection())
+				.andExpect(view().name("redirect:/owners/" + TEST_OWNER_ID));
+		}
+
+		@Test
+		void testProcessFindFormNoOwnersFound() throws Exception {
+			given(owners.findByLastNameAfter(eq("Unknown Surname"), eq(""), eq(0), any(Limit.class)))
+				.willReturn(Lists.newArrayList());
+			mockMvc.perform(get("/owners").param("lastName", "Unknown Surname"))
+				.andExpect(status().isOk())
+				.andExpect(model().attributeHasFieldErrorCode("owner", "lastName", "notFound"))
+				.andExpect(view().name("owners/findOwners"));
+		}
+
+		@Test
+		void testProcessFindFormBackwardWindow() throws Exception {
+			// backward reads return the owners closest to the cursor first
+			given(owners.findByLastNameBefore(eq("Davis"), eq("Davis"), eq(9), any(Limit.class)))
+				.willReturn(davises(8, 7, 6));
+			mockMvc
+				.perform(get("/owners").param("lastName", "Davis")
+					.param("cursor", new OwnerCursor("Davis", 9, true).encode()))
+				.andExpect(status().isOk())
+				.andExpect(view().name("owners/ownersList"))
+				.andExpect(model().attribute("listOwners", is(davises(6, 7, 8))))
+				.andExpect(model().attribute("nextCursor", new OwnerCursor("Davis", 8, false).encode()))
+				.andExpect(model().attributeDoesNotExist("previousCursor"));
+		}
+
+		@Test
+		void testProcessFindFormRejectsAMalformedCursor() throws Exception {
+			mockMvc.perform(get("/owners").param("lastName", "Davis").param("cursor", "not a cursor"))
+				.andExpect(status().isBadRequest());
+			mockMvc.perform(get("/owners").param("lastName", "Davis")
+				.param("cursor", Base64.getUrlEncoder().encodeToString("x9:Davis".getBytes(StandardCharsets.UTF_8))))
+				.andExpect(status().isBadRequest());
+		}
+
+		private List<OwnerSummary> davises(int... ids) {
+			List<OwnerSummary> davises = new ArrayList<>();
+			for (int id : ids) {
+				davises.add(
+						new OwnerSummary(id, "Betty", "Davis", "638 Cardinal Ave.", "Sun Prairie", "6085551749", null));
+			}
+			return davises;
+		}
+
+	}
+
 	@Test
 	void testInitUpdateOwnerForm() throws Exception {
 		mockMvc.perform(get("/owners/{ownerId}/edit", TEST_OWNER_ID))
@@ -191,11 +380,20 @@ class OwnerControllerTests {
 				.param("telephone", "1616291589"))
 			.andExpect(status().is3xxRedirection())
 			.andExpect(view().name("redirect:/owners/{ownerId}"));
+
+		verify(this.owners).updateContactDetails(any(Owner.class));
+		verify(this.owners, never()).findWithoutPetsById(TEST_OWNER_ID);
+		verify(this.owners, never()).save(any(Owner.class));
 	}
 
 	@Test
 	void testProcessUpdateOwnerFormUnchangedSuccess() throws Exception {
-		mockMvc.perform(post("/owners/{ownerId}/edit", TEST_OWNER_ID))
+		mockMvc
+			.perform(post("/owners/{ownerId}/edit", TEST_OWNER_ID).param("firstName", "George")
+				.param("lastName", "Franklin")
+				.param("address", "110 W. Liberty St.")
+				.param("city", "Madison")
+				.param("telephone", "6085551023"))
 			.andExpect(status().is3xxRedirection())
 			.andExpect(view().name("redirect:/owners/{ownerId}"));
 	}
@@ -214,19 +412,71 @@ class OwnerControllerTests {
 			.andExpect(view().name("owners/createOrUpdateOwnerForm"));
 	}
 
+	@Test
+	void testShowOwnerWithManyPetsPagesThePets() throws Exception {
+		this.ownerDetails.clear();
+		given(this.owners.findVersionAndPetCountById(TEST_OWNER_ID)).willReturn(new OwnerVersion(3, 55L));
+		given(this.owners.findPetSummaries(TEST_OWNER_ID, PageRequest.of(2, OwnerController.PET_PAGE_SIZE)))
+			.willReturn(List.of(new PetSummary(1, "Max", LocalDate.now(), "dog", 3L, LocalDate.now())));
+
+		mockMvc.perform(get("/owners/{ownerId}", TEST_OWNER_ID).param("petPage", "9"))
+			.andExpect(status().isOk())
+			.andExpect(view().name("owners/ownerDetails"))
+			.andExpect(model().attribute("currentPage", 3))
+			.andExpect(model().attribute("totalPages", 3))
+			.andExpect(model().attribute("petPage", hasSize(1)))
+			.andExpect(content().string(containsString("Show visits (3, last on")));
+		verify(this.owners, never()).findById(TEST_OWNER_ID);
+	}
+
 	@Test
 	void testShowOwner() throws Exception {
-		mockMvc.perform(get("/owners/{ownerId}", TEST_OWNER_ID))
+		OwnerDetails owner = (OwnerDetails) mockMvc.perform(get("/owners/{ownerId}", TEST_OWNER_ID))
 			.andExpect(status().isOk())
-			.andExpect(model().attribute("owner", hasProperty("lastName", is("Franklin"))))
-			.andExpect(model().attribute("owner", hasProperty("firstName", is("George"))))
-			.andExpect(model().attribute("owner", hasProperty("address", is("110 W. Liberty St."))))
-			.andExpect(model().attribute("owner", hasProperty("city", is("Madison"))))
-			.andExpect(model().attribute("owner", hasProperty("telephone", is("6085551023"))))
-			.andExpect(model().attribute("owner", hasProperty("pets", not(empty()))))
-			.andExpect(model().attribute("owner",
-					hasProperty("pets", hasItem(hasProperty("visits", hasSize(greaterThan(0)))))))
-			.andExpect(view().name("owners/ownerDetails"));
+			.andExpect(view().name("owners/ownerDetails"))
+			.andReturn()
+			.getModelAndView()
+			.getModel()
+			.get("owner");
+		assertThat(owner.lastName()).isEqualTo("Franklin");
+		assertThat(owner.firstName()).isEqualTo("George");
+		assertThat(owner.address()).isEqualTo("110 W. Liberty St.");
+		assertThat(owner.city()).isEqualTo("Madison");
+		assertThat(owner.telephone()).isEqualTo("6085551023");
+		assertThat(owner.pets()).isNotEmpty();
+		assertThat(owner.pets()).anySatisfy((pet) -> assertThat(pet.visits()).isNotEmpty());
+	}
+
+	@Test
+	void testShowOwnerNotModified() throws Exception {
+		String etag = mockMvc.perform(get("/owners/{ownerId}", TEST_OWNER_ID).locale(Locale.ENGLISH))
+			.andExpect(status().isOk())
+			.andExpect(header().exists(HttpHeaders.ETAG))
+			.andReturn()
+			.getResponse()
+			.getHeader(HttpHeaders.ETAG);
+		Mockito.clearInvocations(this.owners);
+
+		mockMvc
+			.perform(get("/owners/{ownerId}", TEST_OWNER_ID).locale(Locale.ENGLISH)
+				.header(HttpHeaders.IF_NONE_MATCH, etag))
+			.andExpect(status().isNotModified());
+		verify(this.owners, never()).findById(TEST_OWNER_ID);
+
+		mockMvc
+			.perform(get("/owners/{ownerId}", TEST_OWNER_ID).locale(Locale.GERMAN)
+				.header(HttpHeaders.IF_NONE_MATCH, etag))
+			.andExpect(status().isOk());
+		mockMvc
+			.perform(get("/owners/{ownerId}", TEST_OWNER_ID).locale(Locale.ENGLISH)
+				.header(HttpHeaders.IF_NONE_MATCH, etag)
+				.flashAttr("message", "Owner Values Updated"))
+			.andExpect(status().isOk());
+		given(this.owners.findVersionAndPetCountById(TEST_OWNER_ID)).willReturn(new OwnerVersion(4, 1L));
+		mockMvc
+			.perform(get("/owners/{ownerId}", TEST_OWNER_ID).locale(Locale.ENGLISH)
+				.header(HttpHeaders.IF_NONE_MATCH, etag))
+			.andExpect(status().isOk());
 	}
 
 }
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Test class for {@link OwnerDetailsCache}
+ */
+@ExtendWith(MockitoExtension.class)
+class OwnerDetailsCacheTests {
+
+	@Mock
+	private OwnerRepository owners;
+
+	@Test
+	void evictionDoesNotLetAConcurrentLoadRestoreTheOffHeapCopy() throws Exception {
+		given(this.owners.findById(1)).willReturn(owner("George"), owner("Georgina"));
+		InterleavingStore offHeap = new InterleavingStore();
+		OwnerDetailsCache cache = new OwnerDetailsCache(this.owners, Caffeine.newBuilder().build(),
+				new SimpleMeterRegistry(), false, 50, offHeap);
+		assertThat(cache.get(1).firstName()).isEqualTo("George");
+
+		offHeap.interleaved = () -> cache.get(1);
+		cache.ownerChanged(new OwnerChangedEvent(1));
+
+		// the concurrent read may still see the evicted entry, but must not cache
+		// it again
+		offHeap.result.get(5, TimeUnit.SECONDS);
+		assertThat(cache.get(1).firstName()).isEqualTo("Georgina");
+	}
+
+	private static Owner owner(String firstName) {
+		Owner owner = new Owner();
+		owner.setId(1);
+		owner.setFirstName(firstName);
+		owner.setLastName("Franklin");
+		return owner;
+	}
+
+	/**
+	 * Off-heap store running a read of the cache on another thread while an owner is
+	 * being evicted, after giving it time to complete.
+	 */
+	private static final class InterleavingStore extends OffHeapOwnerDetailsStore {
+
+		private Supplier<OwnerDetails> interleaved;
+
+		private CompletableFuture<OwnerDetails> result;
+
+		InterleavingStore() {
+			super(new OwnerDetailsCodec(), 2, 1024);
+		}
+
+		@Override
+		void remove(int ownerId) {
+			if (this.interleaved != null && this.result == null) {
+				this.result = CompletableFuture.supplyAsync(this.interleaved);
+				try {
+					this.result.get(200, TimeUnit.MILLISECONDS);
+				}
+				catch (TimeoutException ex) {
+					// held back until the eviction completes
+				}
+				catch (InterruptedException | ExecutionException ex) {
+					throw new IllegalStateException(ex);
+				}
+			}
+			super.remove(ownerId);
+		}
+
+	}
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.samples.petclinic.owner.OwnerDetails.PetDetails;
+import org.springframework.samples.petclinic.owner.OwnerDetails.VisitDetails;
+
+/**
+ * Test class for {@link OwnerDetailsCodec}
+ */
+class OwnerDetailsCodecTests {
+
+	private final OwnerDetailsCodec codec = new OwnerDetailsCodec();
+
+	@Test
+	void shouldRoundTripAnOwnerWithPetsAndVisits() {
+		Owner owner = new Owner();
+		owner.setId(7);
+		owner.setFirstName("Jeff");
+		owner.setLastName("Black");
+		owner.setAddress("1450 Oak Blvd.");
+		owner.setCity("Monona");
+		owner.setTelephone("6085555387");
+		owner.getPets().add(pet(10, "Lucky", "bird", LocalDate.of(2011, 8, 6)));
+		Pet samantha = pet(11, "Samantha", "cat", LocalDate.of(2012, 9, 4));
+		samantha.addVisit(visit(LocalDate.of(2013, 1, 1), "rabies shot"));
+		samantha.addVisit(visit(LocalDate.of(2013, 1, 4), "spayed – ünïcode"));
+		owner.getPets().add(samantha);
+		OwnerDetails details = OwnerDetails.of(owner);
+
+		OwnerDetails decoded = roundTrip(details);
+
+		assertThat(decoded).isEqualTo(details);
+		assertThat(decoded.pets()).extracting(PetDetails::type).containsExactly("bird", "cat");
+		assertThat(decoded.pets().get(1).visits()).extracting(VisitDetails::description)
+			.containsExactly("rabies shot", "spayed – ünïcode");
+	}
+
+	@Test
+	void shouldRoundTripNulls() {
+		OwnerDetails details = new OwnerDetails(3, null, null, "Davis", null, null, null,
+				List.of(new PetDetails(4, null, null, null, List.of(new VisitDetails(null, null)))));
+
+		assertThat(roundTrip(details)).isEqualTo(details);
+	}
+
+	@Test
+	void shouldEncodePetTypesAsDictionaryCodes() {
+		OwnerDetails cat = owner(new PetDetails(1, "Leo", LocalDate.of(2010, 9, 7), "cat", List.of()));
+		OwnerDetails longName = owner(
+				new PetDetails(1, "Leo", LocalDate.of(2010, 9, 7), "a much longer pet type name", List.of()));
+
+		assertThat(this.codec.encode(longName).remaining()).isEqualTo(this.codec.encode(cat).remaining());
+		assertThat(roundTrip(longName)).isEqualTo(longName);
+		assertThat(roundTrip(cat)).isEqualTo(cat);
+	}
+
+	@Test
+	void shouldEncodeDatesAsEpochDays() {
+		OwnerDetails details = owner(new PetDetails(1, "", LocalDate.of(2010, 9, 7), null, List.of()));
+
+		// id, version, five empty strings, pet count, then the pet: id, empty name, date,
+		// type code and visit count
+		assertThat(this.codec.encode(details).remaining()).isEqualTo(4 + 4 + 5 * 2 + 2 + (4 + 2 + 4 + 2 + 2));
+	}
+
+	@Test
+	void shouldRejectStringsTooLongToEncode() {
+		OwnerDetails details = new OwnerDetails(1, 0, "x".repeat(70_000), "", "", "", "", List.of());
+
+		assertThatIllegalArgumentException().isThrownBy(() -> this.codec.encode(details));
+	}
+
+	private OwnerDetails roundTrip(OwnerDetails details) {
+		ByteBuffer encoding = this.codec.encode(details);
+		OwnerDetails decoded = this.codec.decode(encoding);
+		assertThat(encoding.hasRemaining()).isFalse();
+		return decoded;
+	}
+
+	private static OwnerDetails owner(PetDetails pet) {
+		return new OwnerDetails(1, 0, "", "", "", "", "", List.of(pet));
+	}
+
+	private static Pet pet(int id, String name, String typeName, LocalDate birthDate) {
+		PetType type = new PetType();
+		type.setName(typeName);
+		Pet pet = new Pet();
+		pet.setId(id);
+		pet.setName(name);
+		pet.setType(type);
+		pet.setBirthDate(birthDate);
+		return pet;
+	}
+
+	private static Visit visit(LocalDate date, String description) {
+		Visit visit = new Visit();
+		visit.setDate(date);
+		visit.setDescription(description);
+		return visit;
+	}
+
+}
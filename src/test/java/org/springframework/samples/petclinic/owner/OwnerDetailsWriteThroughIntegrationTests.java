@@ -0,0 +1,114 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Checks that, in write-through mode, the owner details page shown after a write is
+ * served from the {@link OwnerDetailsCache} without going to the database, treating every
+ * owner with more than two pets as a large owner.
+ */
+@SpringBootTest(properties = { "spring.jpa.properties.hibernate.generate_statistics=true",
+		"petclinic.owners.details-write-through=true", "petclinic.owners.large-owner-pets=2" })
+@AutoConfigureMockMvc
+class OwnerDetailsWriteThroughIntegrationTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	@Autowired
+	private OwnerDetailsCache ownerDetails;
+
+	@Test
+	void ownerDetailsAfterAVisitBookingSkipsJdbc() throws Exception {
+		Counter writeThroughs = registry.get("petclinic.owners.details.writes").tag("mode", "write-through").counter();
+		double writes = writeThroughs.count();
+		mockMvc
+			.perform(post("/owners/{ownerId}/pets/{petId}/visits/new", 10, 13).param("date", "2024-01-04")
+				.param("description", "vaccination"))
+			.andExpect(status().is3xxRedirection());
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		mockMvc.perform(get("/owners/{ownerId}", 10))
+			.andExpect(status().isOk())
+			.andExpect(content().string(containsString("vaccination")));
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+		assertThat(writeThroughs.count()).isEqualTo(writes + 1);
+	}
+
+	@Test
+	void ownerDetailsAfterAnOwnerUpdateShowTheNewContactDetails() throws Exception {
+		mockMvc.perform(get("/owners/{ownerId}", 5)).andExpect(status().isOk());
+		mockMvc
+			.perform(post("/owners/{ownerId}/edit", 5).param("firstName", "Peter")
+				.param("lastName", "McTavish")
+				.param("address", "2387 S. Fair Way")
+				.param("city", "Madison")
+				.param("telephone", "6085552766"))
+			.andExpect(status().is3xxRedirection());
+		mockMvc.perform(get("/owners/{ownerId}", 5))
+			.andExpect(status().isOk())
+			.andExpect(content().string(containsString("6085552766")));
+	}
+
+	@Test
+	void largeOwnersAreEvictedRatherThanWrittenThrough() throws Exception {
+		Counter writeThroughs = registry.get("petclinic.owners.details.writes").tag("mode", "write-through").counter();
+		Counter evictions = registry.get("petclinic.owners.details.writes").tag("mode", "evict").counter();
+		// a third pet makes Jean Coleman a large owner
+		mockMvc
+			.perform(post("/owners/{ownerId}/pets/new", 6).param("name", "Tiger")
+				.param("type", "cat")
+				.param("birthDate", "2020-03-14"))
+			.andExpect(status().is3xxRedirection());
+		double writes = writeThroughs.count();
+		double evicted = evictions.count();
+
+		mockMvc
+			.perform(post("/owners/{ownerId}/pets/{petId}/visits/new", 6, 7).param("date", "2024-01-04")
+				.param("description", "vaccination"))
+			.andExpect(status().is3xxRedirection());
+
+		assertThat(writeThroughs.count()).isEqualTo(writes);
+		assertThat(evictions.count()).isEqualTo(evicted + 1);
+		assertThat(ownerDetails.getIfPresent(6)).isNull();
+	}
+
+}
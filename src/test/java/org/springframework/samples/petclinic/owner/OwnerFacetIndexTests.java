@@ -0,0 +1,138 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.BDDMockito.given;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.samples.petclinic.owner.OwnerFacetIndex.Facets;
+import org.springframework.samples.petclinic.owner.OwnerFacetIndex.Filter;
+import org.springframework.samples.petclinic.owner.OwnerFacetIndex.PetCount;
+import org.springframework.samples.petclinic.owner.OwnerFacetIndex.VisitRecency;
+
+/**
+ * Test class for {@link OwnerFacetIndex}
+ */
+@ExtendWith(MockitoExtension.class)
+class OwnerFacetIndexTests {
+
+	private static final LocalDate TODAY = LocalDate.of(2024, 6, 15);
+
+	@Mock
+	private OwnerRepository owners;
+
+	private OwnerFacetIndex index;
+
+	@BeforeEach
+	void setup() {
+		given(this.owners.findAllFacets()).willReturn(List.of(new OwnerFacetRow(1, "Madison", 1, "cat", null),
+				new OwnerFacetRow(2, "Sun Prairie", 2, "dog", LocalDate.of(2024, 5, 2)),
+				new OwnerFacetRow(2, "Sun Prairie", 3, "dog", LocalDate.of(2023, 1, 9)),
+				new OwnerFacetRow(3, "Madison", 4, "dog", LocalDate.of(2023, 12, 1)),
+				new OwnerFacetRow(3, "Madison", 5, "cat", null), new OwnerFacetRow(3, "Madison", 6, "bird", null),
+				new OwnerFacetRow(4, "Windsor", null, null, null)));
+		this.index = new OwnerFacetIndex(this.owners);
+	}
+
+	@Test
+	void shouldCountEveryFacetWithoutAFilter() {
+		Facets facets = this.index.browse(Filter.NONE, TODAY, 0, 10);
+
+		assertThat(facets.ownerIds()).containsExactly(1, 2, 3, 4);
+		assertThat(facets.total()).isEqualTo(4);
+		assertThat(facets.cities()).containsExactly(entry("Madison", 2), entry("Sun Prairie", 1), entry("Windsor", 1));
+		assertThat(facets.petTypes()).containsExactly(entry("bird", 1), entry("cat", 2), entry("dog", 2));
+		assertThat(facets.petCounts()).containsExactly(entry(PetCount.NONE, 1), entry(PetCount.ONE, 1),
+				entry(PetCount.TWO, 1), entry(PetCount.MANY, 1));
+		assertThat(facets.visits()).containsExactly(entry(VisitRecency.RECENT, 1), entry(VisitRecency.WITHIN_A_YEAR, 1),
+				entry(VisitRecency.NEVER, 2));
+	}
+
+	@Test
+	void shouldOrValuesWithinAFacetAndAndAcrossFacets() {
+		Filter filter = new Filter(Set.of("madison"), Set.of("cat", "dog"), Set.of(), Set.of(VisitRecency.NEVER));
+
+		Facets facets = this.index.browse(filter, TODAY, 0, 10);
+
+		assertThat(facets.ownerIds()).containsExactly(1);
+		// each facet is counted against the selection of the others
+		assertThat(facets.cities()).containsEntry("Madison", 1).containsEntry("Sun Prairie", 0);
+		assertThat(facets.petTypes()).containsEntry("cat", 1).containsEntry("dog", 0);
+		assertThat(facets.visits()).containsEntry(VisitRecency.NEVER, 1).containsEntry(VisitRecency.WITHIN_A_YEAR, 1);
+	}
+
+	@Test
+	void shouldPageTheMatchingOwners() {
+		Facets facets = this.index.browse(Filter.NONE, TODAY, 2, 3);
+
+		assertThat(facets.ownerIds()).containsExactly(3, 4);
+		assertThat(facets.total()).isEqualTo(4);
+	}
+
+	@Test
+	void shouldMeasureVisitRecencyFromToday() {
+		Facets facets = this.index.browse(Filter.NONE, TODAY.plusMonths(6), 0, 10);
+
+		assertThat(facets.visits()).containsExactly(entry(VisitRecency.WITHIN_A_YEAR, 1), entry(VisitRecency.OLDER, 1),
+				entry(VisitRecency.NEVER, 2));
+	}
+
+	@Test
+	void shouldReindexChangedOwners() {
+		this.index.refresh();
+		given(this.owners.findFacetsById(4)).willReturn(List.of(new OwnerFacetRow(4, "Madison", 7, "lizard", TODAY)));
+		given(this.owners.findFacetsById(1)).willReturn(List.of(new OwnerFacetRow(1, "Monona", 1, "cat", null)));
+
+		this.index.ownerChanged(new OwnerChangedEvent(4));
+		this.index.ownerChanged(new OwnerChangedEvent(1));
+
+		Facets facets = this.index.browse(Filter.NONE, TODAY, 0, 10);
+		assertThat(facets.cities()).containsExactly(entry("Madison", 2), entry("Monona", 1), entry("Sun Prairie", 1));
+		assertThat(facets.petTypes()).containsEntry("lizard", 1);
+		assertThat(facets.petCounts()).containsExactly(entry(PetCount.ONE, 2), entry(PetCount.TWO, 1),
+				entry(PetCount.MANY, 1));
+		assertThat(facets.visits()).containsEntry(VisitRecency.RECENT, 2);
+	}
+
+	@Test
+	void shouldKeepTheOwnersChangedDuringARefresh() {
+		this.index.refresh();
+		given(this.owners.findFacetsById(4)).willReturn(List.of(new OwnerFacetRow(4, "Madison", 7, "lizard", TODAY)));
+		List<OwnerFacetRow> rows = this.owners.findAllFacets();
+		given(this.owners.findAllFacets()).willAnswer((invocation) -> {
+			// the owner changes after the reload has read the facets
+			this.index.ownerChanged(new OwnerChangedEvent(4));
+			return rows;
+		});
+
+		this.index.refresh();
+
+		Facets facets = this.index.browse(Filter.NONE, TODAY, 0, 10);
+		assertThat(facets.cities()).containsExactly(entry("Madison", 3), entry("Sun Prairie", 1));
+		assertThat(facets.petTypes()).containsEntry("lizard", 1);
+	}
+
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Checks the number of SQL statements each owner, pet and visit endpoint issues, so that
+ * a change to the fetch plans (or an accidental eager association) shows up as a failing
+ * test rather than as a slow page.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+class OwnerFetchPlanIntegrationTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private OwnerRepository owners;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private OwnerDetailsCache ownerDetails;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setup() {
+		this.statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		this.statistics.clear();
+		this.ownerDetails.clear();
+	}
+
+	@Test
+	void ownerDetailsLoadsPetsAndVisitsInOneStatement() throws Exception {
+		mockMvc.perform(get("/owners/{ownerId}", 6)).andExpect(status().isOk());
+		// on a cache miss, the version lookup validating conditional requests, then the
+		// aggregate
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+	}
+
+	@Test
+	void ownerDetailsHitSkipsJdbc() throws Exception {
+		mockMvc.perform(get("/owners/{ownerId}", 6)).andExpect(status().isOk());
+		statistics.clear();
+		mockMvc.perform(get("/owners/{ownerId}", 6)).andExpect(status().isOk());
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+	}
+
+	@Test
+	void ownerDetailsEvictedFromTheHeapAreDecodedFromOffHeap() throws Exception {
+		mockMvc.perform(get("/owners/{ownerId}", 6)).andExpect(status().isOk());
+		cacheManager.getCache(OwnerDetailsCache.CACHE_NAME).clear();
+		statistics.clear();
+		mockMvc.perform(get("/owners/{ownerId}", 6))
+			.andExpect(status().isOk())
+			.andExpect(content().string(containsString("Jean")));
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+		assertThat(registry.get("petclinic.owners.details.off-heap.entries").gauge().value()).isPositive();
+		assertThat(registry.get("petclinic.owners.details.off-heap.live").gauge().value()).isPositive();
+	}
+
+	@Test
+	void ownerDetailsNotModifiedReadsTheVersionOnly() throws Exception {
+		mockMvc.perform(get("/owners/{ownerId}", 6)).andExpect(status().isOk());
+		String etag = mockMvc.perform(get("/owners/{ownerId}", 6))
+			.andExpect(status().isOk())
+			.andReturn()
+			.getResponse()
+			.getHeader(HttpHeaders.ETAG);
+		this.ownerDetails.clear();
+		statistics.clear();
+		mockMvc.perform(get("/owners/{ownerId}", 6).header(HttpHeaders.IF_NONE_MATCH, etag))
+			.andExpect(status().isNotModified());
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(statistics.getEntityLoadCount()).isZero();
+	}
+
+	@Test
+	void ownerDetailsModifiedByAVisitBooking() throws Exception {
+		String etag = mockMvc.perform(get("/owners/{ownerId}", 10))
+			.andExpect(status().isOk())
+			.andReturn()
+			.getResponse()
+			.getHeader(HttpHeaders.ETAG);
+		mockMvc
+			.perform(post("/owners/{ownerId}/pets/{petId}/visits/new", 10, 13).param("date", "2024-01-03")
+				.param("description", "follow-up"))
+			.andExpect(status().is3xxRedirection());
+		mockMvc.perform(get("/owners/{ownerId}", 10).header(HttpHeaders.IF_NONE_MATCH, etag))
+			.andExpect(status().isOk())
+			.andExpect(header().string(HttpHeaders.ETAG, not(etag)));
+	}
+
+	@Test
+	void ownerDetailsEvictedAfterAnOwnerUpdate() throws Exception {
+		mockMvc.perform(get("/owners/{ownerId}", 2)).andExpect(status().isOk());
+		mockMvc
+			.perform(post("/owners/{ownerId}/edit", 2).param("firstName", "Betty")
+				.param("lastName", "Davis")
+				.param("address", "638 Cardinal Ave.")
+				.param("city", "Sun Prairie")
+				.param("telephone", "6085551750"))
+			.andExpect(status().is3xxRedirection());
+		statistics.clear();
+		mockMvc.perform(get("/owners/{ownerId}", 2))
+			.andExpect(status().isOk())
+			.andExpect(content().string(containsString("6085551750")));
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+	}
+
+	@Test
+	void ownerEditFormLoadsTheOwnerRowOnly() throws Exception {
+		mockMvc.perform(get("/owners/{ownerId}/edit", 6)).andExpect(status().isOk());
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(statistics.getCollectionLoadCount()).isZero();
+	}
+
+	@Test
+	void ownerUpdateIssuesSingleRowUpdate() throws Exception {
+		int pets = owners.findById(6).getPets().size();
+		statistics.clear();
+		mockMvc
+			.perform(post("/owners/{ownerId}/edit", 6).param("firstName", "Jean")
+				.param("lastName", "Coleman")
+				.param("address", "105 N. Lake St.")
+				.param("city", "Monona")
+				.param("telephone", "6085552654"))
+			.andExpect(status().is3xxRedirection());
+		// the update, then the owner, pet and visit projections reindexing the owner for
+		// search and its facet rows reindexing it for browsing once committed
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1 + 3 + 1);
+		assertThat(owners.findById(6).getPets()).hasSize(pets);
+	}
+
+	@Test
+	void petUpdateIssuesSingleRowUpdate() throws Exception {
+		mockMvc
+			.perform(post("/owners/{ownerId}/pets/{petId}/edit", 6, 8).param("name", "Max")
+				.param("birthDate", "2012-09-04")
+				.param("type", "cat"))
+			.andExpect(status().is3xxRedirection());
+		assertThat(statistics.getEntityStatistics(Visit.class.getName()).getLoadCount()).isZero();
+		assertThat(statistics.getEntityUpdateCount()).isZero();
+	}
+
+	@Test
+	void petEditFormLoadsPetsWithoutVisits() throws Exception {
+		mockMvc.perform(get("/owners/{ownerId}/pets/{petId}/edit", 6, 7)).andExpect(status().isOk());
+		// pet types come from the PetTypeRegistry
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(statistics.getEntityStatistics(Visit.class.getName()).getLoadCount()).isZero();
+	}
+
+	@Test
+	void visitFormLoadsTheVisitsOfTheBookedPetOnly() throws Exception {
+		mockMvc.perform(get("/owners/{ownerId}/pets/{petId}/visits/new", 6, 7))
+			.andExpect(status().isOk())
+			.andExpect(content().string(containsString("spayed")))
+			.andExpect(content().string(not(containsString("neutered"))));
+		// the owner with its pets, then the visits of the booked pet
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+		assertThat(statistics.getEntityStatistics(Visit.class.getName()).getLoadCount()).isEqualTo(2);
+	}
+
+	@Test
+	void visitBookingInsertsWithoutLoadingTheOwner() throws Exception {
+		// a first booking reads a block of visit ids from the sequence
+		mockMvc
+			.perform(post("/owners/{ownerId}/pets/{petId}/visits/new", 10, 13).param("date", "2024-01-01")
+				.param("description", "checkup"))
+			.andExpect(status().is3xxRedirection());
+		statistics.clear();
+		mockMvc
+			.perform(post("/owners/{ownerId}/pets/{petId}/visits/new", 10, 13).param("date", "2024-01-02")
+				.param("description", "checkup"))
+			.andExpect(status().is3xxRedirection());
+		// the insert and the owner version increment, then the owner, pet and visit
+		// projections reindexing the owner for search and its facet rows reindexing it
+		// for
+		// browsing once committed
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(2 + 3 + 1);
+		assertThat(statistics.getEntityLoadCount()).isZero();
+	}
+
+	@Test
+	void ownerSearchUsesOneStatement() throws Exception {
+		mockMvc.perform(get("/owners").param("lastName", "Davis")).andExpect(status().isOk());
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+}
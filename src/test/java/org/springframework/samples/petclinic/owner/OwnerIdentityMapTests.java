@@ -0,0 +1,101 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Test class for {@link OwnerIdentityMap}
+ */
+@ExtendWith(MockitoExtension.class)
+class OwnerIdentityMapTests {
+
+	@Mock
+	private OwnerRepository owners;
+
+	private SimpleMeterRegistry registry;
+
+	private OwnerIdentityMap identityMap;
+
+	@BeforeEach
+	void setup() {
+		this.registry = new SimpleMeterRegistry();
+		this.identityMap = new OwnerIdentityMap(this.owners, this.registry);
+	}
+
+	@Test
+	void loadsEachOwnerOnce() {
+		Owner owner = new Owner();
+		given(this.owners.findWithPetsById(1)).willReturn(owner);
+
+		assertThat(this.identityMap.findWithPetsById(1)).isSameAs(owner);
+		assertThat(this.identityMap.findWithPetsById(1)).isSameAs(owner);
+
+		verify(this.owners, times(1)).findWithPetsById(1);
+		assertThat(count("hit")).isEqualTo(1);
+		assertThat(count("miss")).isEqualTo(1);
+	}
+
+	@Test
+	void richerFetchPlanAnswersPoorerLookups() {
+		Owner owner = new Owner();
+		given(this.owners.findById(1)).willReturn(owner);
+
+		this.identityMap.findById(1);
+
+		assertThat(this.identityMap.findWithPetsById(1)).isSameAs(owner);
+		assertThat(this.identityMap.findWithoutPetsById(1)).isSameAs(owner);
+		assertThat(count("hit")).isEqualTo(2);
+	}
+
+	@Test
+	void poorerFetchPlanIsReloadedForRicherLookups() {
+		Owner row = new Owner();
+		Owner aggregate = new Owner();
+		given(this.owners.findWithoutPetsById(1)).willReturn(row);
+		given(this.owners.findById(1)).willReturn(aggregate);
+
+		this.identityMap.findWithoutPetsById(1);
+
+		assertThat(this.identityMap.findById(1)).isSameAs(aggregate);
+		assertThat(this.identityMap.findWithoutPetsById(1)).isSameAs(aggregate);
+		assertThat(count("miss")).isEqualTo(2);
+	}
+
+	@Test
+	void missingOwnersAreNotRemembered() {
+		assertThat(this.identityMap.findById(42)).isNull();
+		assertThat(this.identityMap.findById(42)).isNull();
+
+		verify(this.owners, times(2)).findById(42);
+	}
+
+	private double count(String result) {
+		return this.registry.get("petclinic.owners.loads").tag("result", result).counter().count();
+	}
+
+}
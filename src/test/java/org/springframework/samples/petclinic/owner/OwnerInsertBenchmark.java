@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.samples.petclinic.PetClinicApplication;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Benchmark of inserting new owners, each with {@value #PETS} pets of {@value #VISITS}
+ * visits, {@value #OWNERS} owners per transaction, into the embedded database. A JDBC
+ * batch size of {@code 1} sends one statement per entity, as the identity columns the ids
+ * used to come from did; the configured size lets Hibernate send the inserts of each
+ * table in batches. Not run by the build; run {@link #main(String[])} from the test
+ * classpath, e.g. from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OwnerInsertBenchmark {
+
+	private static final int OWNERS = 10;
+
+	private static final int PETS = 3;
+
+	private static final int VISITS = 2;
+
+	@Param({ "1", "50" })
+	public int batchSize;
+
+	private ConfigurableApplicationContext context;
+
+	private OwnerRepository owners;
+
+	private TransactionTemplate transactions;
+
+	private List<PetType> petTypes;
+
+	@Setup(Level.Trial)
+	public void start() {
+		this.context = new SpringApplicationBuilder(PetClinicApplication.class).web(WebApplicationType.NONE)
+			.run("--spring.docker.compose.enabled=false", "--logging.level.root=WARN",
+					"--spring.jpa.properties.hibernate.jdbc.batch_size=" + this.batchSize);
+		this.owners = this.context.getBean(OwnerRepository.class);
+		this.transactions = new TransactionTemplate(this.context.getBean(PlatformTransactionManager.class));
+		this.petTypes = this.context.getBean(PetTypeRegistry.class).getPetTypes();
+	}
+
+	@TearDown(Level.Trial)
+	public void stop() {
+		this.context.close();
+	}
+
+	@Benchmark
+	public List<Owner> insert() {
+		return this.transactions.execute((status) -> {
+			List<Owner> saved = new ArrayList<>(OWNERS);
+			for (int o = 0; o < OWNERS; o++) {
+				Owner owner = owner(o);
+				this.owners.save(owner);
+				saved.add(owner);
+			}
+			return saved;
+		});
+	}
+
+	private Owner owner(int index) {
+		Owner owner = new Owner();
+		owner.setFirstName("Bench");
+		owner.setLastName("Owner" + index);
+		owner.setAddress(index + " Main St.");
+		owner.setCity("Madison");
+		owner.setTelephone("6085550000");
+		for (int p = 0; p < PETS; p++) {
+			Pet pet = new Pet();
+			pet.setName("Pet" + p);
+			pet.setBirthDate(LocalDate.of(2020, 1, 1));
+			pet.setType(this.petTypes.get(p % this.petTypes.size()));
+			for (int v = 0; v < VISITS; v++) {
+				Visit visit = new Visit();
+				visit.setDate(LocalDate.of(2024, 1, 1).plusDays(v));
+				visit.setDescription("checkup");
+				pet.addVisit(visit);
+			}
+			owner.addPet(pet);
+		}
+		return owner;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(OwnerInsertBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
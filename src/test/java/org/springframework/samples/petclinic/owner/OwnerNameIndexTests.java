@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.samples.petclinic.owner.OwnerNameIndex.Suggestion;
+
+/**
+ * Test class for {@link OwnerNameIndex}
+ */
+@ExtendWith(MockitoExtension.class)
+class OwnerNameIndexTests {
+
+	@Mock
+	private OwnerRepository owners;
+
+	private OwnerNameIndex index;
+
+	@BeforeEach
+	void setup() {
+		given(this.owners.findAllNames()).willReturn(List.of(new OwnerName(1, "Franklin"), new OwnerName(2, "Davis"),
+				new OwnerName(3, "Rodriquez"), new OwnerName(4, "Davis"), new OwnerName(9, "Escobito"),
+				new OwnerName(10, "Schroeder"), new OwnerName(11, "Davidson")));
+		this.index = new OwnerNameIndex(this.owners);
+	}
+
+	@Test
+	void shouldSuggestTheMostCommonNamesFirst() {
+		assertThat(this.index.suggest("da", 10)).containsExactly(new Suggestion("Davis", 2, List.of(2, 4)),
+				new Suggestion("Davidson", 1, List.of(11)));
+	}
+
+	@Test
+	void shouldLimitTheSuggestions() {
+		assertThat(this.index.suggest("", 2)).extracting(Suggestion::lastName).containsExactly("Davis", "Davidson");
+		assertThat(this.index.suggest("Davis", 1)).containsExactly(new Suggestion("Davis", 2, List.of(2)));
+	}
+
+	@Test
+	void shouldFindPrefixesCaseInsensitively() {
+		assertThat(this.index.hasPrefix("SCH")).isTrue();
+		assertThat(this.index.hasPrefix("")).isTrue();
+		assertThat(this.index.hasPrefix("Zz")).isFalse();
+		assertThat(this.index.hasPrefix("Franklins")).isFalse();
+	}
+
+	@Test
+	void shouldCountOwnersByPrefix() {
+		assertThat(this.index.count("")).isEqualTo(7);
+		assertThat(this.index.count("DAV")).isEqualTo(3);
+		assertThat(this.index.count("Davis")).isEqualTo(2);
+		assertThat(this.index.count("Zz")).isZero();
+	}
+
+	@Test
+	void shouldIndexCreatedAndRenamedOwners() {
+		this.index.refresh();
+
+		this.index.ownerNameChanged(new OwnerNameChangedEvent(12, "Dalton"));
+		this.index.ownerNameChanged(new OwnerNameChangedEvent(2, "Franklin"));
+		this.index.ownerNameChanged(new OwnerNameChangedEvent(11, "Franklin"));
+
+		assertThat(this.index.suggest("da", 10)).containsExactly(new Suggestion("Dalton", 1, List.of(12)),
+				new Suggestion("Davis", 1, List.of(4)));
+		assertThat(this.index.suggest("fr", 10)).containsExactly(new Suggestion("Franklin", 3, List.of(1, 2, 11)));
+	}
+
+	@Test
+	void shouldKeepTheNamesChangedDuringARefresh() {
+		this.index.refresh();
+		given(this.owners.findAllNames()).willAnswer((invocation) -> {
+			// committed after the names were read
+			this.index.ownerNameChanged(new OwnerNameChangedEvent(12, "Dalton"));
+			return List.of(new OwnerName(1, "Franklin"));
+		});
+
+		this.index.refresh();
+
+		assertThat(this.index.hasPrefix("Dal")).isTrue();
+		assertThat(this.index.suggest("", 10)).extracting(Suggestion::lastName).containsExactly("Dalton", "Franklin");
+	}
+
+}
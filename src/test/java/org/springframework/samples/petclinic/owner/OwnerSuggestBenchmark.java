@@ -0,0 +1,94 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.samples.petclinic.PetClinicApplication;
+
+/**
+ * Benchmark of the last name typeahead: the {@link OwnerNameIndex} against the
+ * {@code LIKE :lastName%} query of the owner search, on the sample data of the embedded
+ * database. Not run by the build; run {@link #main(String[])} from the test classpath,
+ * e.g. from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OwnerSuggestBenchmark {
+
+	@Param({ "", "D", "Da", "Zz" })
+	public String prefix;
+
+	private ConfigurableApplicationContext context;
+
+	private OwnerNameIndex index;
+
+	private OwnerRepository owners;
+
+	@Setup(Level.Trial)
+	public void start() {
+		this.context = new SpringApplicationBuilder(PetClinicApplication.class).web(WebApplicationType.NONE)
+			.run("--spring.docker.compose.enabled=false", "--logging.level.root=WARN");
+		this.index = this.context.getBean(OwnerNameIndex.class);
+		this.owners = this.context.getBean(OwnerRepository.class);
+	}
+
+	@TearDown(Level.Trial)
+	public void stop() {
+		this.context.close();
+	}
+
+	@Benchmark
+	public List<OwnerNameIndex.Suggestion> index() {
+		return this.index.suggest(this.prefix, 10);
+	}
+
+	@Benchmark
+	public Slice<OwnerSummary> sql() {
+		return this.owners.findSliceByLastName(this.prefix, PageRequest.of(0, 10));
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(OwnerSuggestBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the pet lookups of {@link Owner}
+ */
+class OwnerTests {
+
+	@Test
+	void shouldFindPetsByIdAndNameIgnoringCase() {
+		Owner owner = new Owner();
+		Pet leo = pet(1, "Leo");
+		Pet basil = pet(2, "Basil");
+		owner.getPets().add(leo);
+		owner.getPets().add(basil);
+
+		assertThat(owner.getPet(2)).isSameAs(basil);
+		assertThat(owner.getPet(3)).isNull();
+		assertThat(owner.getPet("LEO")).isSameAs(leo);
+		assertThat(owner.getPet("Rosy")).isNull();
+	}
+
+	@Test
+	void shouldFindPetsAddedSinceTheLookupsWereBuilt() {
+		Owner owner = new Owner();
+		owner.getPets().add(pet(1, "Leo"));
+		assertThat(owner.getPet(1)).isNotNull();
+
+		Pet jewel = new Pet();
+		owner.addPet(jewel);
+		jewel.setName("Jewel");
+		assertThat(owner.getPet("jewel")).isSameAs(jewel);
+		assertThat(owner.getPet("jewel", true)).isNull();
+
+		jewel.setId(4);
+		assertThat(owner.getPet(4)).isSameAs(jewel);
+		assertThat(owner.getPet("jewel", true)).isSameAs(jewel);
+
+		// pets added to the collection directly, as when it is loaded
+		owner.getPets().add(pet(5, "Rosy"));
+		assertThat(owner.getPet(5)).isNotNull();
+		assertThat(owner.getPet("rosy")).isNotNull();
+	}
+
+	private static Pet pet(int id, String name) {
+		Pet pet = new Pet();
+		pet.setId(id);
+		pet.setName(name);
+		return pet;
+	}
+
+}
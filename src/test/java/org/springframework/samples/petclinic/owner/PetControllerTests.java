@@ -25,10 +25,18 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.aot.DisabledInAotMode;
 import org.springframework.test.web.servlet.MockMvc;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
@@ -40,8 +48,11 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  *
  * @author Colin But
  */
+@Import(SimpleMeterRegistry.class)
 @WebMvcTest(value = PetController.class,
-		includeFilters = @ComponentScan.Filter(value = PetTypeFormatter.class, type = FilterType.ASSIGNABLE_TYPE))
+		includeFilters = @ComponentScan.Filter(
+				value = { PetTypeFormatter.class, PetTypeRegistry.class, OwnerIdentityMap.class, OwnerService.class },
+				type = FilterType.ASSIGNABLE_TYPE))
 @DisabledInNativeImage
 @DisabledInAotMode
 class PetControllerTests {
@@ -53,20 +64,28 @@ class PetControllerTests {
 	@Autowired
 	private MockMvc mockMvc;
 
+	@Autowired
+	private PetTypeRegistry petTypes;
+
 	@MockBean
 	private OwnerRepository owners;
 
+	@MockBean
+	private VisitRepository visits;
+
 	@BeforeEach
 	void setup() {
 		PetType cat = new PetType();
 		cat.setId(3);
 		cat.setName("hamster");
 		given(this.owners.findPetTypes()).willReturn(Lists.newArrayList(cat));
+		this.petTypes.refresh();
 		Owner owner = new Owner();
 		Pet pet = new Pet();
 		owner.addPet(pet);
 		pet.setId(TEST_PET_ID);
-		given(this.owners.findById(TEST_OWNER_ID)).willReturn(owner);
+		given(this.owners.findWithPetsById(TEST_OWNER_ID)).willReturn(owner);
+		given(this.owners.updatePet(eq(TEST_OWNER_ID), any(Pet.class))).willReturn(1);
 	}
 
 	@Test
@@ -87,6 +106,34 @@ class PetControllerTests {
 			.andExpect(view().name("redirect:/owners/{ownerId}"));
 	}
 
+	@Test
+	void testProcessCreationFormLoadsTheOwnerOnce() throws Exception {
+		mockMvc
+			.perform(post("/owners/{ownerId}/pets/new", TEST_OWNER_ID).param("name", "Betty")
+				.param("type", "hamster")
+				.param("birthDate", "2015-02-12"))
+			.andExpect(status().is3xxRedirection());
+
+		// within the transaction adding the pet
+		verify(this.owners, times(1)).findWithPetsById(TEST_OWNER_ID);
+	}
+
+	@Test
+	void testProcessCreationFormRejectsATakenName() throws Exception {
+		Pet betty = new Pet();
+		betty.setId(2);
+		betty.setName("Betty");
+		this.owners.findWithPetsById(TEST_OWNER_ID).getPets().add(betty);
+
+		mockMvc
+			.perform(post("/owners/{ownerId}/pets/new", TEST_OWNER_ID).param("name", "betty")
+				.param("type", "hamster")
+				.param("birthDate", "2015-02-12"))
+			.andExpect(model().attributeHasFieldErrorCode("pet", "name", "duplicate"))
+			.andExpect(status().isOk())
+			.andExpect(view().name("pets/createOrUpdatePetForm"));
+	}
+
 	@Test
 	void testProcessCreationFormHasErrors() throws Exception {
 		mockMvc
@@ -116,6 +163,9 @@ class PetControllerTests {
 				.param("birthDate", "2015-02-12"))
 			.andExpect(status().is3xxRedirection())
 			.andExpect(view().name("redirect:/owners/{ownerId}"));
+
+		verify(this.owners).updatePet(eq(TEST_OWNER_ID), any(Pet.class));
+		verify(this.owners, never()).save(any(Owner.class));
 	}
 
 	@Test
@@ -129,4 +179,34 @@ class PetControllerTests {
 			.andExpect(view().name("pets/createOrUpdatePetForm"));
 	}
 
+	@Test
+	void testProcessUpdateFormLoadsTheOwnerOnce() throws Exception {
+		mockMvc
+			.perform(post("/owners/{ownerId}/pets/{petId}/edit", TEST_OWNER_ID, TEST_PET_ID).param("name", "Betty")
+				.param("type", "hamster")
+				.param("birthDate", "2015-02-12"))
+			.andExpect(status().is3xxRedirection());
+
+		// within the transaction updating the pet
+		verify(this.owners, times(1)).findWithPetsById(TEST_OWNER_ID);
+	}
+
+	@Test
+	void testProcessUpdateFormRejectsATakenName() throws Exception {
+		Pet betty = new Pet();
+		betty.setId(2);
+		betty.setName("Betty");
+		this.owners.findWithPetsById(TEST_OWNER_ID).getPets().add(betty);
+
+		mockMvc
+			.perform(post("/owners/{ownerId}/pets/{petId}/edit", TEST_OWNER_ID, TEST_PET_ID).param("name", "betty")
+				.param("type", "hamster")
+				.param("birthDate", "2015-02-12"))
+			.andExpect(model().attributeHasFieldErrorCode("pet", "name", "duplicate"))
+			.andExpect(status().isOk())
+			.andExpect(view().name("pets/createOrUpdatePetForm"));
+
+		verify(this.owners, never()).updatePet(eq(TEST_OWNER_ID), any(Pet.class));
+	}
+
 }
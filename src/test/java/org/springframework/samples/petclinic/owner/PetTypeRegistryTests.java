@@ -0,0 +1,77 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Test class for {@link PetTypeRegistry}
+ */
+@ExtendWith(MockitoExtension.class)
+class PetTypeRegistryTests {
+
+	@Mock
+	private OwnerRepository owners;
+
+	private PetTypeRegistry registry;
+
+	@BeforeEach
+	void setup() {
+		this.registry = new PetTypeRegistry(this.owners);
+	}
+
+	@Test
+	void shouldIndexPetTypesByIdAndName() {
+		given(this.owners.findPetTypes()).willReturn(List.of(petType(1, "cat"), petType(2, "dog")));
+
+		assertThat(this.registry.getPetTypes()).extracting(PetType::getName).containsExactly("cat", "dog");
+		assertThat(this.registry.findById(2).getName()).isEqualTo("dog");
+		assertThat(this.registry.findByName("cat").getId()).isEqualTo(1);
+		assertThat(this.registry.findByName("fish")).isNull();
+		verify(this.owners, times(1)).findPetTypes();
+	}
+
+	@Test
+	void shouldSwapInRefreshedPetTypes() {
+		given(this.owners.findPetTypes()).willReturn(List.of(petType(1, "cat")),
+				List.of(petType(1, "cat"), petType(7, "fish")));
+
+		assertThat(this.registry.findByName("fish")).isNull();
+		this.registry.refresh();
+
+		assertThat(this.registry.findByName("fish").getId()).isEqualTo(7);
+		assertThat(this.registry.getPetTypes()).hasSize(2);
+	}
+
+	private PetType petType(int id, String name) {
+		PetType petType = new PetType();
+		petType.setId(id);
+		petType.setName(name);
+		return petType;
+	}
+
+}
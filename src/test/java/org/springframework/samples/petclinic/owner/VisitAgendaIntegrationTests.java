@@ -0,0 +1,79 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Checks the visit agenda against the sample data.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class VisitAgendaIntegrationTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void shouldListTheVisitsOfARangeAsJson() throws Exception {
+		mockMvc
+			.perform(get("/visits/agenda").param("from", "2013-01-01")
+				.param("to", "2013-01-02")
+				.accept(MediaType.APPLICATION_JSON))
+			.andExpect(status().isOk())
+			.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+			.andExpect(jsonPath("$", hasSize(2)))
+			.andExpect(jsonPath("$[0].date").value("2013-01-01"))
+			.andExpect(jsonPath("$[0].petName").value("Samantha"))
+			.andExpect(jsonPath("$[0].petType").value("cat"))
+			.andExpect(jsonPath("$[0].ownerLastName").value("Coleman"))
+			.andExpect(jsonPath("$[1].date").value("2013-01-02"));
+	}
+
+	@Test
+	void shouldShowTheVisitsOfAWeek() throws Exception {
+		mockMvc.perform(get("/visits/agenda.html").param("from", "2012-12-31"))
+			.andExpect(status().isOk())
+			.andExpect(view().name("visits/agenda"))
+			.andExpect(model().attribute("visits", hasSize(4)))
+			.andExpect(model().attribute("truncated", false))
+			.andExpect(content().string(containsString("rabies shot")))
+			.andExpect(content().string(containsString("from=2013-01-07&amp;to=2013-01-13")));
+	}
+
+	@Test
+	void shouldRejectInvalidRanges() throws Exception {
+		mockMvc.perform(get("/visits/agenda").param("from", "2013-01-02").param("to", "2013-01-01"))
+			.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/visits/agenda.html").param("from", "2013-01-01").param("to", "2015-01-01"))
+			.andExpect(status().isBadRequest());
+	}
+
+}
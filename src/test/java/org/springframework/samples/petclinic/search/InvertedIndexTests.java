@@ -0,0 +1,123 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.samples.petclinic.search.InvertedIndex.Field;
+import org.springframework.samples.petclinic.search.InvertedIndex.Indexed;
+import org.springframework.samples.petclinic.search.SearchDocument.Kind;
+
+/**
+ * Test class for {@link InvertedIndex}
+ */
+class InvertedIndexTests {
+
+	private final InvertedIndex index = new InvertedIndex();
+
+	@Test
+	void shouldTokenizeAndNormalize() {
+		assertThat(Tokenizer.tokenize("Jean-Luc  MÜLLER, 608-555-1023")).containsExactly("jean", "luc", "muller", "608",
+				"555", "1023");
+		assertThat(Tokenizer.tokenize(null)).isEmpty();
+		assertThat(Tokenizer.tokenize(" ,; ")).isEmpty();
+	}
+
+	@Test
+	void shouldMatchEveryTermOfTheQuery() {
+		this.index.replaceOwner(1, List.of(owner(1, "George", "Franklin", "Madison"), pet(1, "Leo", "cat")));
+		this.index.replaceOwner(2, List.of(owner(2, "Betty", "Davis", "Madison")));
+
+		assertThat(ids(this.index.search("madison", PageRequest.of(0, 10)))).containsExactlyInAnyOrder(1, 2);
+		assertThat(ids(this.index.search("Franklin MADISON", PageRequest.of(0, 10)))).containsExactly(1);
+		assertThat(ids(this.index.search("franklin monona", PageRequest.of(0, 10)))).isEmpty();
+		assertThat(ids(this.index.search("  ", PageRequest.of(0, 10)))).isEmpty();
+	}
+
+	@Test
+	void shouldRankNamesAboveOtherText() {
+		this.index.replaceOwner(1, List.of(owner(1, "George", "Franklin", "Madison")));
+		this.index.replaceOwner(2, List.of(owner(2, "Madison", "Davis", "Sun Prairie")));
+
+		assertThat(ids(this.index.search("madison", PageRequest.of(0, 10)))).containsExactly(2, 1);
+	}
+
+	@Test
+	void shouldPageTheHits() {
+		for (int id = 1; id <= 5; id++) {
+			this.index.replaceOwner(id, List.of(owner(id, "George", "Franklin", "Madison")));
+		}
+
+		Page<SearchHit> page = this.index.search("franklin", PageRequest.of(1, 2));
+
+		assertThat(ids(page)).containsExactly(3, 4);
+		assertThat(page.getTotalElements()).isEqualTo(5);
+		assertThat(page.getTotalPages()).isEqualTo(3);
+	}
+
+	@Test
+	void shouldReplaceTheDocumentsOfAnOwner() {
+		this.index.replaceOwner(1, List.of(owner(1, "George", "Franklin", "Madison"), pet(1, "Leo", "cat")));
+
+		this.index.replaceOwner(1, List.of(owner(1, "George", "Franklin", "Monona")));
+
+		assertThat(ids(this.index.search("leo", PageRequest.of(0, 10)))).isEmpty();
+		assertThat(ids(this.index.search("madison", PageRequest.of(0, 10)))).isEmpty();
+		assertThat(ids(this.index.search("monona", PageRequest.of(0, 10)))).containsExactly(1);
+		assertThat(this.index.size()).isEqualTo(1);
+		this.index.replaceOwner(1, List.of());
+		assertThat(this.index.size()).isZero();
+	}
+
+	@Test
+	void shouldReplaceAllTheDocumentsOfAKind() {
+		this.index.replaceOwner(1, List.of(owner(1, "James", "Carter", "Madison")));
+		this.index.replaceAll(Kind.VET, List.of(vet(1, "James Carter", "radiology")), "1");
+
+		this.index.replaceAll(Kind.VET, List.of(vet(2, "Helen Leary", "surgery")), "2");
+
+		assertThat(this.index.search("carter", PageRequest.of(0, 10))).extracting((hit) -> hit.document().kind())
+			.containsExactly(Kind.OWNER);
+		assertThat(ids(this.index.search("surgery", PageRequest.of(0, 10)))).containsExactly(2);
+		assertThat(this.index.version(Kind.VET)).isEqualTo("2");
+		assertThat(this.index.version(Kind.OWNER)).isNull();
+	}
+
+	private static List<Integer> ids(Page<SearchHit> hits) {
+		return hits.map((hit) -> hit.document().id()).getContent();
+	}
+
+	private static Indexed owner(int id, String firstName, String lastName, String city) {
+		return Indexed.of(new SearchDocument(Kind.OWNER, id, firstName + " " + lastName, city, "/owners/" + id),
+				new Field(firstName, 3), new Field(lastName, 3), new Field(city, 1));
+	}
+
+	private static Indexed pet(int id, String name, String type) {
+		return Indexed.of(new SearchDocument(Kind.PET, id, name, type, "/owners/1"), new Field(name, 3),
+				new Field(type, 1));
+	}
+
+	private static Indexed vet(int id, String name, String specialties) {
+		return Indexed.of(new SearchDocument(Kind.VET, id, name, specialties, "/vets.html"), new Field(name, 3),
+				new Field(specialties, 2));
+	}
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.samples.petclinic.owner.OwnerChangedEvent;
+import org.springframework.samples.petclinic.search.SearchRepository.OwnerRow;
+import org.springframework.samples.petclinic.vet.VetDirectory;
+import org.springframework.samples.petclinic.vet.VetDirectoryChangedEvent;
+
+/**
+ * Test class for {@link SearchIndex}
+ */
+@ExtendWith(MockitoExtension.class)
+class SearchIndexTests {
+
+	@Mock
+	private SearchRepository repository;
+
+	@Mock
+	private VetDirectory vetDirectory;
+
+	private SearchIndex index;
+
+	@BeforeEach
+	void setup() {
+		given(this.repository.findMinOwnerId()).willReturn(1);
+		given(this.vetDirectory.getSnapshot()).willReturn(vets("1", "Carter"));
+		this.index = new SearchIndex(this.repository, this.vetDirectory, 1000, 1);
+	}
+
+	@Test
+	void shouldReplayOwnersChangedDuringAReindex() {
+		given(this.repository.findMaxOwnerId()).willAnswer((invocation) -> {
+			this.index.ownerChanged(new OwnerChangedEvent(1));
+			return 1;
+		});
+		// read by the reindex before the change, then replayed
+		given(this.repository.findOwners(1, 1)).willReturn(List.of(owner("George")), List.of(owner("Georgina")));
+
+		this.index.reindex();
+
+		assertThat(hits("georgina")).containsExactly(1);
+		assertThat(hits("george")).isEmpty();
+	}
+
+	@Test
+	void shouldReindexTheVetsOnceTheDirectoryHasChanged() {
+		given(this.repository.findMaxOwnerId()).willReturn(1);
+		this.index.reindex();
+		assertThat(hits("carter")).containsExactly(1);
+
+		VetDirectory.Snapshot changed = vets("2", "Leary");
+		given(this.vetDirectory.getSnapshot()).willReturn(changed);
+		assertThat(hits("leary")).isEmpty();
+		this.index.vetsChanged(new VetDirectoryChangedEvent(changed));
+
+		assertThat(hits("leary")).containsExactly(1);
+		assertThat(hits("carter")).isEmpty();
+	}
+
+	@Test
+	void shouldIndexTheVetsIntoEachReindex() {
+		given(this.repository.findMaxOwnerId()).willReturn(1);
+		this.index.reindex();
+		this.index.reindex();
+
+		assertThat(hits("carter")).containsExactly(1);
+	}
+
+	private List<Integer> hits(String query) {
+		return this.index.search(query, PageRequest.of(0, 10)).map((hit) -> hit.document().id()).getContent();
+	}
+
+	private static OwnerRow owner(String firstName) {
+		return new OwnerRow(1, firstName, "Franklin", "110 W. Liberty St.", "Madison", "6085551023");
+	}
+
+	private static VetDirectory.Snapshot vets(String version, String lastName) {
+		return new VetDirectory.Snapshot(List.of(new VetDirectory.Entry(1, "James", lastName, List.of())), null,
+				new byte[0], new byte[0], version);
+	}
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.samples.petclinic.PetClinicApplication;
+import org.springframework.samples.petclinic.search.SearchDocument.Kind;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Checks the search against the sample data, including the documents indexed after a
+ * write and a full reindex split into many ranges.
+ */
+@SpringBootTest(classes = PetClinicApplication.class, properties = "petclinic.search.reindex-range-size=3")
+@AutoConfigureMockMvc
+class SearchIntegrationTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private SearchIndex searchIndex;
+
+	@Test
+	void shouldFindOwnersPetsVetsAndVisits() {
+		assertThat(kinds("franklin")).containsExactly(Kind.OWNER);
+		assertThat(kinds("6085551023")).containsExactly(Kind.OWNER);
+		assertThat(kinds("samantha")).containsExactly(Kind.PET);
+		assertThat(kinds("radiology")).containsOnly(Kind.VET);
+		assertThat(kinds("rabies shot")).contains(Kind.VISIT);
+	}
+
+	@Test
+	void shouldFindEveryOwnerAfterAParallelReindex() {
+		this.searchIndex.reindex();
+
+		assertThat(this.searchIndex.search("madison", PageRequest.of(0, 20)))
+			.filteredOn((hit) -> hit.document().kind() == Kind.OWNER)
+			.extracting((hit) -> hit.document().id())
+			.contains(1, 5, 8, 9);
+	}
+
+	@Test
+	void shouldIndexBookedVisits() throws Exception {
+		mockMvc
+			.perform(post("/owners/{ownerId}/pets/{petId}/visits/new", 10, 13).param("date", "2024-02-01")
+				.param("description", "dewormed with praziquantel"))
+			.andExpect(status().is3xxRedirection());
+
+		mockMvc.perform(get("/search").param("q", "Praziquantel"))
+			.andExpect(status().isOk())
+			.andExpect(view().name("search/searchResults"))
+			.andExpect(model().attribute("hits", hasSize(1)))
+			.andExpect(content().string(containsString("dewormed with praziquantel (Sly)")));
+	}
+
+	@Test
+	void shouldIndexRenamedOwners() throws Exception {
+		mockMvc
+			.perform(post("/owners/{ownerId}/edit", 8).param("firstName", "Maria")
+				.param("lastName", "Escobito-Quintero")
+				.param("address", "345 Maple St.")
+				.param("city", "Madison")
+				.param("telephone", "6085557683"))
+			.andExpect(status().is3xxRedirection());
+
+		assertThat(kinds("quintero")).containsExactly(Kind.OWNER);
+	}
+
+	private List<Kind> kinds(String query) {
+		return this.searchIndex.search(query, PageRequest.of(0, 20)).map((hit) -> hit.document().kind()).getContent();
+	}
+
+}
@@ -17,26 +17,39 @@
 package org.springframework.samples.petclinic.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 
 import java.time.LocalDate;
 import java.util.Collection;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.samples.petclinic.owner.Owner;
 import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.owner.OwnerService;
+import org.springframework.samples.petclinic.owner.OwnerSummary;
 import org.springframework.samples.petclinic.owner.Pet;
 import org.springframework.samples.petclinic.owner.PetType;
 import org.springframework.samples.petclinic.owner.Visit;
+import org.springframework.samples.petclinic.owner.VisitRepository;
+import org.springframework.samples.petclinic.vet.Specialty;
 import org.springframework.samples.petclinic.vet.Vet;
 import org.springframework.samples.petclinic.vet.VetRepository;
 import org.springframework.transaction.annotation.Transactional;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 /**
  * Integration test of the Service and the Repository layer.
  * <p>
@@ -68,12 +81,22 @@ import org.springframework.transaction.annotation.Transactional;
 @DataJpaTest
 // Ensure that if the mysql profile is active we connect to the real database:
 @AutoConfigureTestDatabase(replace = Replace.NONE)
+@Import({ OwnerService.class, SimpleMeterRegistry.class })
 // @TestPropertySource("/application-postgres.properties")
 class ClinicServiceTests {
 
 	@Autowired
 	protected OwnerRepository owners;
 
+	@Autowired
+	protected VisitRepository visits;
+
+	@Autowired
+	protected OwnerService ownerService;
+
+	@Autowired
+	protected MeterRegistry registry;
+
 	@Autowired
 	protected VetRepository vets;
 
@@ -88,13 +111,57 @@ class ClinicServiceTests {
 		assertThat(owners).isEmpty();
 	}
 
+	@Test
+	void shouldFindOwnerSliceByLastNameWithoutCounting() {
+		Slice<OwnerSummary> owners = this.owners.findSliceByLastName("", PageRequest.of(0, 5));
+		assertThat(owners.getContent()).hasSize(5);
+		assertThat(owners.hasNext()).isTrue();
+
+		owners = this.owners.findSliceByLastName("Davis", PageRequest.of(0, 5));
+		assertThat(owners.getContent()).extracting(OwnerSummary::firstName).containsExactly("Betty", "Harold");
+		assertThat(owners.hasNext()).isFalse();
+
+		assertThat(this.owners.countByLastName("")).isEqualTo(10);
+	}
+
+	@Test
+	void shouldAggregatePetNamesIntoOwnerSummary() {
+		OwnerSummary coleman = this.owners.findSliceByLastName("Coleman", PageRequest.of(0, 5)).getContent().get(0);
+		assertThat(coleman.id()).isEqualTo(6);
+		assertThat(coleman.city()).isEqualTo("Monona");
+		assertThat(coleman.petNames()).isEqualTo("Max, Samantha");
+	}
+
+	@Test
+	void shouldFindOwnersByLastNameWithKeyset() {
+		List<OwnerSummary> first = this.owners.findByLastNameAfter("", "", 0, Limit.of(3));
+		assertThat(first).extracting(OwnerSummary::lastName).containsExactly("Black", "Coleman", "Davis");
+
+		OwnerSummary last = first.get(2);
+		List<OwnerSummary> next = this.owners.findByLastNameAfter("", last.lastName(), last.id(), Limit.of(3));
+		assertThat(next).extracting(OwnerSummary::lastName).containsExactly("Davis", "Escobito", "Estaban");
+		assertThat(next.get(0).id()).isGreaterThan(last.id());
+
+		List<OwnerSummary> previous = this.owners.findByLastNameBefore("", next.get(0).lastName(), next.get(0).id(),
+				Limit.of(3));
+		assertThat(previous).extracting(OwnerSummary::id)
+			.containsExactly(first.get(2).id(), first.get(1).id(), first.get(0).id());
+	}
+
 	@Test
 	void shouldFindSingleOwnerWithPet() {
 		Owner owner = this.owners.findById(1);
 		assertThat(owner.getLastName()).startsWith("Franklin");
 		assertThat(owner.getPets()).hasSize(1);
-		assertThat(owner.getPets().get(0).getType()).isNotNull();
-		assertThat(owner.getPets().get(0).getType().getName()).isEqualTo("cat");
+		assertThat(owner.getPets().iterator().next().getType()).isNotNull();
+		assertThat(owner.getPets().iterator().next().getType().getName()).isEqualTo("cat");
+	}
+
+	@Test
+	void shouldFindOwnerWithEachPetOnceWhateverTheirVisits() {
+		Owner owner = this.owners.findById(6);
+		assertThat(owner.getPets()).extracting(Pet::getName).containsExactly("Max", "Samantha");
+		assertThat(owner.getPet("Samantha").getVisits()).hasSize(2);
 	}
 
 	@Test
@@ -131,6 +198,102 @@ class ClinicServiceTests {
 		assertThat(owner.getLastName()).isEqualTo(newLastName);
 	}
 
+	@Test
+	@Transactional
+	void shouldUpdateOwnerContactDetails() {
+		Owner owner = new Owner();
+		owner.setId(1);
+		owner.setFirstName("George");
+		owner.setLastName("Franklin");
+		owner.setAddress("110 W. Liberty St.");
+		owner.setCity("Madison");
+		owner.setTelephone("6085550000");
+
+		assertThat(this.owners.updateContactDetails(owner)).isEqualTo(1);
+
+		owner = this.owners.findById(1);
+		assertThat(owner.getTelephone()).isEqualTo("6085550000");
+		assertThat(owner.getPets()).hasSize(1);
+	}
+
+	@Test
+	@Transactional
+	void shouldUpdatePetOnlyForItsOwner() {
+		Pet pet = new Pet();
+		pet.setId(7);
+		pet.setName("Samantha Jr");
+		pet.setBirthDate(LocalDate.of(2012, 9, 5));
+
+		assertThat(this.owners.updatePet(1, pet)).isZero();
+		assertThat(this.owners.updatePet(6, pet)).isEqualTo(1);
+
+		Pet pet7 = this.owners.findById(6).getPet(7);
+		assertThat(pet7.getName()).isEqualTo("Samantha Jr");
+		assertThat(pet7.getBirthDate()).isEqualTo(LocalDate.of(2012, 9, 5));
+		// a pet without a type keeps its current one
+		assertThat(pet7.getType().getName()).isEqualTo("cat");
+		assertThat(pet7.getVisits()).isNotEmpty();
+	}
+
+	@Test
+	@Transactional
+	void shouldAddPetWithOwnerCommand() {
+		Pet pet = new Pet();
+		pet.setName("bowser");
+		pet.setType(EntityUtils.getById(this.owners.findPetTypes(), PetType.class, 2));
+		pet.setBirthDate(LocalDate.now());
+		long added = this.registry.get("petclinic.owners.commands").tag("command", "add-pet").timer().count();
+
+		this.ownerService.addPet(6, pet);
+
+		Pet bowser = this.owners.findWithPetsById(6).getPet("bowser");
+		assertThat(bowser).isSameAs(pet);
+		assertThat(bowser.getId()).isNotNull();
+		assertThat(this.registry.get("petclinic.owners.commands").tag("command", "add-pet").timer().count())
+			.isEqualTo(added + 1);
+	}
+
+	@Test
+	@Transactional
+	void shouldIncrementOwnerVersionOnEveryCommand() {
+		int version = this.owners.findVersionById(6);
+		Owner owner = new Owner();
+		owner.setId(6);
+		owner.setFirstName("Jean");
+		owner.setLastName("Coleman");
+		owner.setAddress("105 N. Lake St.");
+		owner.setCity("Monona");
+		owner.setTelephone("6085552654");
+		Pet pet = new Pet();
+		pet.setId(7);
+		pet.setName("Samantha");
+		pet.setBirthDate(LocalDate.of(2012, 9, 4));
+		Visit visit = new Visit();
+		visit.setDescription("checkup");
+		Pet newPet = new Pet();
+		newPet.setName("fluffy");
+		newPet.setType(EntityUtils.getById(this.owners.findPetTypes(), PetType.class, 1));
+		newPet.setBirthDate(LocalDate.now());
+
+		this.ownerService.updateOwner(owner);
+		this.ownerService.updatePet(6, pet);
+		this.ownerService.bookVisit(6, 7, visit);
+		this.ownerService.addPet(6, newPet);
+
+		assertThat(this.owners.findVersionById(6)).isEqualTo(version + 4);
+		assertThat(this.owners.findVersionById(999)).isNull();
+	}
+
+	@Test
+	@Transactional
+	void shouldRejectOwnerCommandForPetOfAnotherOwner() {
+		Visit visit = new Visit();
+		visit.setDescription("test");
+
+		assertThatIllegalArgumentException().isThrownBy(() -> this.ownerService.bookVisit(1, 7, visit))
+			.withMessage("Pet ID 7 not found for owner ID 1");
+	}
+
 	@Test
 	void shouldFindAllPetTypes() {
 		Collection<PetType> petTypes = this.owners.findPetTypes();
@@ -191,6 +354,16 @@ class ClinicServiceTests {
 		assertThat(vet.getSpecialties().get(1).getName()).isEqualTo("surgery");
 	}
 
+	@Test
+	void shouldFindVetsWithSpecialtiesInOneQuery() {
+		List<Vet> vets = this.vets.findAllWithSpecialties();
+
+		assertThat(vets).hasSize(this.vets.findAll().size());
+		assertThat(vets).extracting(Vet::getId).isSorted().doesNotHaveDuplicates();
+		Vet vet = EntityUtils.getById(vets, Vet.class, 3);
+		assertThat(vet.getSpecialties()).extracting(Specialty::getName).containsExactly("dentistry", "surgery");
+	}
+
 	@Test
 	@Transactional
 	void shouldAddNewVisitForPet() {
@@ -208,6 +381,24 @@ class ClinicServiceTests {
 			.allMatch(value -> value.getId() != null);
 	}
 
+	@Test
+	@Transactional
+	void shouldAppendVisitForPetOfOwner() {
+		int added = this.visits.addVisit(6, 7, LocalDate.now(), "appended");
+
+		assertThat(added).isEqualTo(1);
+		assertThat(this.owners.findById(6).getPet(7).getVisits())
+			.anyMatch(visit -> "appended".equals(visit.getDescription()) && visit.getId() != null);
+	}
+
+	@Test
+	@Transactional
+	void shouldNotAppendVisitForPetOfAnotherOwner() {
+		int added = this.visits.addVisit(1, 7, LocalDate.now(), "test");
+
+		assertThat(added).isZero();
+	}
+
 	@Test
 	void shouldFindVisitsByPetId() {
 		Owner owner6 = this.owners.findById(6);
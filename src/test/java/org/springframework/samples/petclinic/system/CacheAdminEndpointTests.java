@@ -0,0 +1,132 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.samples.petclinic.PetClinicApplication;
+import org.springframework.test.web.servlet.MockMvc;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Integration test for the Caffeine {@link CacheConfiguration} and the
+ * {@link CacheAdminEndpoint}, with a {@code greetings} cache that has a
+ * {@link CacheReloader}.
+ */
+@SpringBootTest(classes = PetClinicApplication.class,
+		properties = { "petclinic.cache.specs.greetings.maximum-weight=10",
+				"petclinic.cache.specs.greetings.refresh-after-write=10m" })
+@AutoConfigureMockMvc
+@Import(CacheAdminEndpointTests.GreetingsConfiguration.class)
+class CacheAdminEndpointTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	@Test
+	void shouldListCaches() throws Exception {
+		mockMvc.perform(get("/actuator/cacheadmin"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.greetings.warmable").value(true))
+			.andExpect(jsonPath("$['owner-details'].warmable").value(false));
+	}
+
+	@Test
+	void shouldWarmAndEvictCache() throws Exception {
+		mockMvc.perform(post("/actuator/cacheadmin/greetings"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.size").value(2));
+
+		mockMvc.perform(delete("/actuator/cacheadmin/greetings"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.size").value(0));
+	}
+
+	@Test
+	void shouldNotFindUnknownCache() throws Exception {
+		mockMvc.perform(get("/actuator/cacheadmin/owners")).andExpect(status().isNotFound());
+	}
+
+	@Test
+	void shouldPublishCacheStatistics() {
+		Cache greetings = cacheManager.getCache("greetings");
+		greetings.get("en", () -> "Hello");
+		greetings.get("en", () -> "Hello");
+
+		assertThat(registry.get("cache.gets").tag("cache", "greetings").tag("result", "hit").functionCounter().count())
+			.isPositive();
+	}
+
+	@Test
+	void shouldWeighPagesByTheirElements() {
+		assertThat(CacheConfiguration.weigh("key", new PageImpl<>(List.of("a", "b", "c")))).isEqualTo(3);
+		assertThat(CacheConfiguration.weigh("key", List.of())).isEqualTo(1);
+		assertThat(CacheConfiguration.weigh("key", "value")).isEqualTo(1);
+	}
+
+	@TestConfiguration(proxyBeanMethods = false)
+	static class GreetingsConfiguration {
+
+		@Bean
+		CacheReloader greetingsReloader() {
+			return new CacheReloader() {
+
+				@Override
+				public String getCacheName() {
+					return "greetings";
+				}
+
+				@Override
+				public Collection<?> getWarmUpKeys() {
+					return List.of("en", "fr");
+				}
+
+				@Override
+				public Object load(Object key) {
+					return "en".equals(key) ? "Hello" : "Bonjour";
+				}
+
+			};
+		}
+
+	}
+
+}
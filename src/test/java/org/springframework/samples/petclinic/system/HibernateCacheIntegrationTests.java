@@ -0,0 +1,155 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.function.Supplier;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.samples.petclinic.PetClinicApplication;
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.owner.OwnerService;
+import org.springframework.samples.petclinic.owner.Pet;
+import org.springframework.samples.petclinic.owner.PetType;
+import org.springframework.samples.petclinic.vet.Vet;
+import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Checks that the Hibernate second-level cache answers repeated reads without going to
+ * the database, with the opt-in owners region enabled.
+ */
+@SpringBootTest(classes = PetClinicApplication.class,
+		properties = { "spring.jpa.properties.hibernate.generate_statistics=true",
+				"petclinic.cache.regions.owners.maximum-weight=100" })
+class HibernateCacheIntegrationTests {
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private TransactionTemplate transactions;
+
+	@Autowired
+	private OwnerRepository owners;
+
+	@Autowired
+	private OwnerService ownerService;
+
+	@Autowired
+	private VetRepository vets;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setup() {
+		this.statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+	}
+
+	@Test
+	void petTypeHitSkipsJdbc() {
+		inTransaction(() -> this.entityManager.find(PetType.class, 2));
+		this.statistics.clear();
+
+		PetType petType = inTransaction(() -> this.entityManager.find(PetType.class, 2));
+
+		assertThat(petType.getName()).isEqualTo("dog");
+		assertThat(this.statistics.getPrepareStatementCount()).isZero();
+		assertThat(this.statistics.getDomainDataRegionStatistics("pet-types").getHitCount()).isEqualTo(1);
+	}
+
+	@Test
+	void vetsWithSpecialtiesHitSkipsJdbc() {
+		this.vets.findAllWithSpecialties();
+		this.statistics.clear();
+
+		Vet douglas = this.vets.findAllWithSpecialties().get(2);
+
+		assertThat(douglas.getSpecialties()).hasSize(2);
+		assertThat(this.statistics.getPrepareStatementCount()).isZero();
+		assertThat(this.statistics.getQueryCacheHitCount()).isEqualTo(1);
+	}
+
+	@Test
+	void ownerWithPetsHitSkipsJdbc() {
+		int loaded = inTransaction(() -> this.entityManager.find(Owner.class, 3).getPets().size());
+		this.statistics.clear();
+
+		int pets = inTransaction(() -> this.entityManager.find(Owner.class, 3).getPets().size());
+
+		assertThat(pets).isEqualTo(loaded).isPositive();
+		assertThat(this.statistics.getPrepareStatementCount()).isZero();
+		assertThat(this.statistics.getDomainDataRegionStatistics("owners").getHitCount()).isPositive();
+	}
+
+	@Test
+	void ownerUpdateInvalidatesTheCachedOwner() {
+		inTransaction(() -> this.entityManager.find(Owner.class, 4));
+		Owner owner = inTransaction(() -> this.entityManager.find(Owner.class, 4));
+		owner.setTelephone("6085550004");
+		this.owners.updateContactDetails(owner);
+
+		Owner updated = inTransaction(() -> this.entityManager.find(Owner.class, 4));
+
+		assertThat(updated.getTelephone()).isEqualTo("6085550004");
+	}
+
+	@Test
+	void petUpdateKeepsTheReferenceData() {
+		inTransaction(() -> this.entityManager.find(PetType.class, 3));
+		Pet sly = new Pet();
+		sly.setId(13);
+		sly.setName("Sly");
+		sly.setBirthDate(LocalDate.of(2012, 6, 8));
+		this.ownerService.updatePet(10, sly);
+		this.statistics.clear();
+
+		inTransaction(() -> this.entityManager.find(PetType.class, 3));
+
+		assertThat(this.statistics.getPrepareStatementCount()).isZero();
+	}
+
+	@Test
+	void regionsPublishStatistics() {
+		inTransaction(() -> this.entityManager.find(PetType.class, 1));
+
+		assertThat(this.registry.get("cache.puts").tag("cache", "pet-types").functionCounter().count()).isPositive();
+		assertThat(this.registry.find("cache.puts").tag("cache", "owners").functionCounter()).isNotNull();
+	}
+
+	private <T> T inTransaction(Supplier<T> action) {
+		return this.transactions.execute((status) -> action.get());
+	}
+
+}
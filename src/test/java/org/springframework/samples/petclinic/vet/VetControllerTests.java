@@ -23,16 +23,24 @@ import org.junit.jupiter.api.condition.DisabledInNativeImage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.aot.DisabledInAotMode;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -40,7 +48,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * Test class for the {@link VetController}
  */
 
-@WebMvcTest(VetController.class)
+@WebMvcTest(value = VetController.class,
+		includeFilters = @ComponentScan.Filter(value = VetDirectory.class, type = FilterType.ASSIGNABLE_TYPE))
 @DisabledInNativeImage
 @DisabledInAotMode
 class VetControllerTests {
@@ -51,6 +60,9 @@ class VetControllerTests {
 	@MockBean
 	private VetRepository vets;
 
+	@Autowired
+	private VetDirectory vetDirectory;
+
 	private Vet james() {
 		Vet james = new Vet();
 		james.setFirstName("James");
@@ -71,12 +83,29 @@ class VetControllerTests {
 		return helen;
 	}
 
+	private Vet linda() {
+		Vet linda = new Vet();
+		linda.setFirstName("Linda");
+		linda.setLastName("Douglas");
+		linda.setId(3);
+		Specialty surgery = new Specialty();
+		surgery.setId(2);
+		surgery.setName("surgery");
+		linda.addSpecialty(surgery);
+		Specialty dentistry = new Specialty();
+		dentistry.setId(3);
+		dentistry.setName("dentistry");
+		linda.addSpecialty(dentistry);
+		return linda;
+	}
+
 	@BeforeEach
 	void setup() {
 		given(this.vets.findAll()).willReturn(Lists.newArrayList(james(), helen()));
 		given(this.vets.findAll(any(Pageable.class)))
 			.willReturn(new PageImpl<Vet>(Lists.newArrayList(james(), helen())));
-
+		given(this.vets.findAllWithSpecialties()).willReturn(Lists.newArrayList(james(), helen(), linda()));
+		this.vetDirectory.refresh();
 	}
 
 	@Test
@@ -89,6 +118,37 @@ class VetControllerTests {
 
 	}
 
+	@Test
+	void testShowVetListHtmlFromTheDirectorySnapshot() throws Exception {
+		clearInvocations(this.vets);
+		mockMvc.perform(get("/vets.html"))
+			.andExpect(status().isOk())
+			.andExpect(model().attribute("totalItems", 3L))
+			.andExpect(content().string(containsString("Linda Douglas")));
+		verifyNoInteractions(this.vets);
+	}
+
+	@Test
+	void testShowVetListHtmlBySpecialties() throws Exception {
+		clearInvocations(this.vets);
+		mockMvc.perform(get("/vets.html").param("specialty", "Surgery", "dentistry"))
+			.andExpect(status().isOk())
+			.andExpect(model().attribute("totalItems", 1L))
+			.andExpect(content().string(containsString("Linda Douglas")))
+			.andExpect(content().string(not(containsString("Helen Leary"))));
+		verifyNoInteractions(this.vets);
+	}
+
+	@Test
+	void testShowResourcesVetListBySpecialties() throws Exception {
+		mockMvc.perform(get("/vets").param("specialty", "radiology", "dentistry").param("match", "ANY"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.vetList[*].id").value(contains(2, 3)));
+		mockMvc.perform(get("/vets").param("specialty", "radiology", "dentistry").accept(MediaType.APPLICATION_XML))
+			.andExpect(status().isOk())
+			.andExpect(xpath("/vets/vetList").nodeCount(0));
+	}
+
 	@Test
 	void testShowResourcesVetList() throws Exception {
 		ResultActions actions = mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON))
@@ -97,4 +157,59 @@ class VetControllerTests {
 			.andExpect(jsonPath("$.vetList[0].id").value(1));
 	}
 
+	@Test
+	void testShowResourcesVetListDefaultsToJson() throws Exception {
+		mockMvc.perform(get("/vets"))
+			.andExpect(status().isOk())
+			.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+			.andExpect(jsonPath("$.vetList[1].specialties[0].name").value("radiology"));
+	}
+
+	@Test
+	void testShowResourcesVetListXml() throws Exception {
+		mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_XML))
+			.andExpect(status().isOk())
+			.andExpect(content().contentType(MediaType.APPLICATION_XML))
+			.andExpect(xpath("/vets/vetList[2]/lastName").string("Leary"))
+			.andExpect(xpath("/vets/vetList[2]/specialties/name").string("radiology"));
+	}
+
+	@Test
+	void testShowResourcesVetListNotModified() throws Exception {
+		String etag = mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON))
+			.andExpect(status().isOk())
+			.andReturn()
+			.getResponse()
+			.getHeader(HttpHeaders.ETAG);
+		mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON).header(HttpHeaders.IF_NONE_MATCH, etag))
+			.andExpect(status().isNotModified());
+		mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_XML).header(HttpHeaders.IF_NONE_MATCH, etag))
+			.andExpect(status().isOk());
+	}
+
+	@Test
+	void testShowVetListHtmlNotModified() throws Exception {
+		String etag = mockMvc.perform(get("/vets.html?page=1"))
+			.andExpect(status().isOk())
+			.andReturn()
+			.getResponse()
+			.getHeader(HttpHeaders.ETAG);
+		clearInvocations(this.vets);
+		mockMvc.perform(get("/vets.html?page=1").header(HttpHeaders.IF_NONE_MATCH, etag))
+			.andExpect(status().isNotModified());
+		verifyNoInteractions(this.vets);
+
+		given(this.vets.findAllWithSpecialties()).willReturn(Lists.newArrayList(james()));
+		this.vetDirectory.refresh();
+		mockMvc.perform(get("/vets.html?page=1").header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isOk());
+	}
+
+	@Test
+	void testShowResourcesVetListServesTheSnapshot() throws Exception {
+		clearInvocations(this.vets);
+		mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk());
+		mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_XML)).andExpect(status().isOk());
+		verifyNoInteractions(this.vets);
+	}
+
 }
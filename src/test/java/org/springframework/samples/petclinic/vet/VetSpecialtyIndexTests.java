@@ -0,0 +1,67 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.samples.petclinic.vet.VetSpecialtyIndex.Match;
+
+/**
+ * Test class for {@link VetSpecialtyIndex}
+ */
+class VetSpecialtyIndexTests {
+
+	private final VetSpecialtyIndex index = new VetSpecialtyIndex(List.of(vet(1), vet(2, "radiology"),
+			vet(3, "dentistry", "surgery"), vet(4, "surgery"), vet(5, "radiology", "surgery")));
+
+	@Test
+	void shouldMatchAllTheSpecialties() {
+		assertThat(ids(List.of("surgery", "dentistry"), Match.ALL)).containsExactly(3);
+		assertThat(ids(List.of("SURGERY"), Match.ALL)).containsExactly(3, 4, 5);
+		assertThat(ids(List.of("surgery", "anesthesia"), Match.ALL)).isEmpty();
+	}
+
+	@Test
+	void shouldMatchAnyOfTheSpecialties() {
+		assertThat(ids(List.of("radiology", "dentistry"), Match.ANY)).containsExactly(2, 3, 5);
+		assertThat(ids(List.of("anesthesia", "dentistry"), Match.ANY)).containsExactly(3);
+	}
+
+	@Test
+	void shouldReturnEveryVetWithoutSpecialties() {
+		assertThat(ids(List.of(), Match.ALL)).containsExactly(1, 2, 3, 4, 5);
+		assertThat(this.index.getSpecialtyNames()).containsExactly("dentistry", "radiology", "surgery");
+	}
+
+	private List<Integer> ids(List<String> specialties, Match match) {
+		return this.index.find(specialties, match).stream().map(Vet::getId).toList();
+	}
+
+	private static Vet vet(int id, String... specialties) {
+		Vet vet = new Vet();
+		vet.setId(id);
+		for (String name : specialties) {
+			Specialty specialty = new Specialty();
+			specialty.setName(name);
+			vet.addSpecialty(specialty);
+		}
+		return vet;
+	}
+
+}